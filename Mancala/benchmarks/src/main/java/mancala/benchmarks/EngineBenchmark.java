@@ -0,0 +1,103 @@
+package mancala.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static mancala.benchmarks.GameClasses.*;
+
+/**
+ * Benchmarks of MancalaEngine on the same positions and games as ModelBenchmark.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EngineBenchmark {
+
+    @Param({ "4" })
+    public int stonesPerPit;
+
+    private Object start;
+    private Object midGame;
+    private Object engine;
+    private long seed;
+
+    @Setup
+    public void setUp() throws Throwable {
+        start = (Object) NEW_ENGINE.invokeExact(stonesPerPit);
+        midGame = (Object) NEW_ENGINE.invokeExact(stonesPerPit);
+        for (int pit : ModelBenchmark.OPENING) {
+            ENGINE_MOVE.invokeExact(midGame, pit);
+        }
+        engine = (Object) NEW_ENGINE.invokeExact(stonesPerPit);
+        seed = 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * One move on the mid game board of ModelBenchmark.moveAndUndo, restoring the board by copying.
+     */
+    @Benchmark
+    public int move() throws Throwable {
+        ENGINE_COPY.invokeExact(engine, midGame);
+        ENGINE_MOVE.invokeExact(engine, ModelBenchmark.MID_GAME_PIT);
+        return (int) ENGINE_LEGAL.invokeExact(engine);
+    }
+
+    @Benchmark
+    public int legalMoves() throws Throwable {
+        return (int) ENGINE_LEGAL.invokeExact(midGame);
+    }
+
+    @Benchmark
+    public int checkIfGameOver() throws Throwable {
+        return (int) ENGINE_GAME_OVER.invokeExact(midGame);
+    }
+
+    /**
+     * A full game between two random players.
+     * @return the winner
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int randomGame() throws Throwable {
+        ENGINE_COPY.invokeExact(engine, start);
+        while (true) {
+            int moves = (int) ENGINE_LEGAL.invokeExact(engine);
+            if (moves == 0) {
+                return 0; // only moves that lap the board are left
+            }
+            for (int skip = nextInt(Integer.bitCount(moves)); skip > 0; skip--) {
+                moves &= moves - 1;
+            }
+            ENGINE_MOVE.invokeExact(engine, Integer.numberOfTrailingZeros(moves));
+            int gameOverFlag = (int) ENGINE_GAME_OVER.invokeExact(engine);
+            if (gameOverFlag > 0) {
+                return (int) ENGINE_WINNER.invokeExact(engine, gameOverFlag);
+            }
+        }
+    }
+
+    private int nextInt(int bound) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) ((seed >>> 33) % bound);
+    }
+}
@@ -0,0 +1,160 @@
+package mancala.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import javax.swing.Icon;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Access to the game classes from the benchmarks.
+ * The game lives in the default package, which cannot be imported, while JMH refuses benchmarks in the default
+ * package. The benchmarks therefore call the game through these method handles, typed with Object in place of
+ * the game classes. They are static final, so the JIT inlines them like direct calls.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+final class GameClasses {
+
+    // MancalaBoardModel
+    static final MethodHandle NEW_MODEL;         // (int) -> model
+    static final MethodHandle MODEL_MOVE;        // (model, pit) -> void
+    static final MethodHandle MODEL_UNDO;        // (model) -> void
+    static final MethodHandle MODEL_AMOUNT;      // (model, pit) -> int
+    static final MethodHandle MODEL_LAST_STONE;  // (model) -> boolean
+    static final MethodHandle MODEL_GAME_OVER;   // (model) -> int
+    static final MethodHandle MODEL_WINNER;      // (model, flag) -> int
+    static final MethodHandle MODEL_BOARD;       // (model) -> int[]
+    static final MethodHandle MODEL_ATTACH;      // (model, listener) -> void
+    private static final Class<?> LISTENER;      // MancalaListener
+    private static final MethodHandle NO_OP;     // (event) -> void
+
+    // MancalaEngine
+    static final MethodHandle NEW_ENGINE;        // (int) -> engine
+    static final MethodHandle ENGINE_COPY;       // (engine, other) -> void
+    static final MethodHandle ENGINE_MOVE;       // (engine, pit) -> void
+    static final MethodHandle ENGINE_LEGAL;      // (engine) -> int
+    static final MethodHandle ENGINE_GAME_OVER;  // (engine) -> int
+    static final MethodHandle ENGINE_WINNER;     // (engine, flag) -> int
+
+    // MancalaSearch
+    static final MethodHandle NEW_SEARCH;        // () -> search
+    static final MethodHandle SEARCH_FIND;       // (search, engine, millis, depth) -> int
+    static final MethodHandle SEARCH_NODES;      // (search) -> long
+    static final MethodHandle SEARCH_TABLE;      // (search) -> table
+
+    // TranspositionTable
+    static final MethodHandle TABLE_CLEAR;       // (table) -> void
+
+    // Stone and the board styles
+    static final MethodHandle NEW_STONE;         // (count) -> Icon
+    static final MethodHandle NEW_HORIZONTAL;    // () -> HorizontalStyleBoard
+    static final MethodHandle ADD_STONES;        // (board, pits, data) -> void
+    static final MethodHandle CREATE_BOARD;      // (board) -> Icon
+    static final MethodHandle ADD_PITS;          // (board, pits, label) -> void
+
+    // BoardComponent
+    static final MethodHandle NEW_COMPONENT;     // (vertical) -> JComponent
+    static final MethodHandle COMPONENT_BOARD;   // (component, data) -> void
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> model = Class.forName("MancalaBoardModel");
+            Class<?> engine = Class.forName("MancalaEngine");
+            Class<?> search = Class.forName("MancalaSearch");
+            Class<?> table = Class.forName("TranspositionTable");
+            Class<?> stone = Class.forName("Stone");
+            Class<?> horizontal = Class.forName("HorizontalStyleBoard");
+            Class<?> component = Class.forName("BoardComponent");
+
+            NEW_MODEL = constructor(lookup, model, int.class);
+            MODEL_MOVE = virtual(lookup, model, "move", void.class, int.class);
+            MODEL_UNDO = virtual(lookup, model, "undoMove", void.class);
+            MODEL_AMOUNT = virtual(lookup, model, "getAmountInPit", int.class, int.class);
+            MODEL_LAST_STONE = virtual(lookup, model, "isLastStoneOnBoard", boolean.class);
+            MODEL_GAME_OVER = virtual(lookup, model, "checkIfGameOver", int.class);
+            MODEL_WINNER = virtual(lookup, model, "checkWinner", int.class, int.class);
+            MODEL_BOARD = virtual(lookup, model, "getCurrentBoard", int[].class);
+            LISTENER = Class.forName("MancalaListener");
+            MODEL_ATTACH = lookup.findVirtual(model, "attach", methodType(void.class, LISTENER))
+                    .asType(methodType(void.class, Object.class, Object.class));
+            NO_OP = MethodHandles.empty(methodType(void.class, Class.forName("BoardChangeEvent")));
+
+            NEW_ENGINE = constructor(lookup, engine, int.class);
+            ENGINE_COPY = lookup.findVirtual(engine, "copyFrom", methodType(void.class, engine))
+                    .asType(methodType(void.class, Object.class, Object.class));
+            ENGINE_MOVE = virtual(lookup, engine, "move", void.class, int.class);
+            ENGINE_LEGAL = virtual(lookup, engine, "legalMoves", int.class);
+            ENGINE_GAME_OVER = virtual(lookup, engine, "checkIfGameOver", int.class);
+            ENGINE_WINNER = virtual(lookup, engine, "checkWinner", int.class, int.class);
+
+            NEW_SEARCH = lookup.findConstructor(search, methodType(void.class)).asType(methodType(Object.class));
+            SEARCH_FIND = lookup.findVirtual(search, "findBestMove",
+                            methodType(int.class, engine, long.class, int.class))
+                    .asType(methodType(int.class, Object.class, Object.class, long.class, int.class));
+            SEARCH_NODES = virtual(lookup, search, "getNodes", long.class);
+            SEARCH_TABLE = virtual(lookup, search, "getTranspositionTable", table).asType(
+                    methodType(Object.class, Object.class));
+
+            TABLE_CLEAR = virtual(lookup, table, "clear", void.class);
+
+            NEW_STONE = lookup.findConstructor(stone, methodType(void.class, int.class))
+                    .asType(methodType(Icon.class, int.class));
+            NEW_HORIZONTAL = lookup.findConstructor(horizontal, methodType(void.class))
+                    .asType(methodType(Object.class));
+            ADD_STONES = virtual(lookup, horizontal, "addStonesToPits", void.class, ArrayList.class, int[].class);
+            CREATE_BOARD = virtual(lookup, horizontal, "createBoard", Icon.class);
+            ADD_PITS = virtual(lookup, horizontal, "addPitsToBoard", void.class, ArrayList.class, JLabel.class);
+
+            NEW_COMPONENT = lookup.findConstructor(component, methodType(void.class, boolean.class))
+                    .asType(methodType(JComponent.class, boolean.class));
+            COMPONENT_BOARD = virtual(lookup, component, "setBoard", void.class, int[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GameClasses() {
+    }
+
+    /**
+     * Creates the 12 pit buttons the way MancalaBoardView.displayBoard does.
+     * @return the pits, A1 - A6 then B1 - B6
+     */
+    static ArrayList<JButton> createPits() {
+        ArrayList<JButton> pits = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            pits.add(new JButton());
+        }
+        return pits;
+    }
+
+    /**
+     * Creates a MancalaListener that does nothing, like a view with nothing to repaint.
+     * @return the listener
+     */
+    static Object newListener() {
+        return MethodHandleProxies.asInterfaceInstance(LISTENER, NO_OP);
+    }
+
+    private static MethodHandle constructor(MethodHandles.Lookup lookup, Class<?> owner, Class<?>... parameters)
+            throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findConstructor(owner, methodType(void.class, parameters));
+        return handle.asType(methodType(Object.class, parameters));
+    }
+
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> owner, String name,
+                                        Class<?> returnType, Class<?>... parameters)
+            throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(owner, name, methodType(returnType, parameters));
+        return handle.asType(handle.type().changeParameterType(0, Object.class));
+    }
+}
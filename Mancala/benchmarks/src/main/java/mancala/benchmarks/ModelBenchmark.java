@@ -0,0 +1,193 @@
+package mancala.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static mancala.benchmarks.GameClasses.*;
+
+/**
+ * Benchmarks of MancalaBoardModel: a single move, the game over checks, getCurrentBoard, listener notification
+ * and whole random games played with the turn rules of MancalaBoardView. Apart from notifyListeners the model has
+ * one listener, like the model attached to MancalaBoardView. The contended group has one thread moving and undoing
+ * while three others read the board of the same model, as spectators and analysis threads would.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ModelBenchmark {
+
+    //Opening played before measuring single moves, so that the board is not symmetric
+    static final int[] OPENING = { 2, 5, 9, 0, 7 };
+    static final int MID_GAME_PIT = 3;
+
+    @Param({ "4" })
+    public int stonesPerPit;
+
+    private Object model;
+    private long seed;
+
+    @Setup
+    public void setUp() throws Throwable {
+        model = (Object) NEW_MODEL.invokeExact(stonesPerPit);
+        for (int pit : OPENING) {
+            MODEL_MOVE.invokeExact(model, pit);
+        }
+        MODEL_ATTACH.invokeExact(model, newListener());
+        seed = 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * One move on a mid game board followed by undoMove, which notifies the listeners twice.
+     */
+    @Benchmark
+    public int moveAndUndo() throws Throwable {
+        MODEL_MOVE.invokeExact(model, MID_GAME_PIT);
+        int stones = (int) MODEL_AMOUNT.invokeExact(model, 6);
+        MODEL_UNDO.invokeExact(model);
+        return stones;
+    }
+
+    /**
+     * moveAndUndo on a model with the given number of listeners attached.
+     */
+    @Benchmark
+    public int notifyListeners(Listeners listeners) throws Throwable {
+        MODEL_MOVE.invokeExact(listeners.model, MID_GAME_PIT);
+        int stones = (int) MODEL_AMOUNT.invokeExact(listeners.model, 6);
+        MODEL_UNDO.invokeExact(listeners.model);
+        return stones;
+    }
+
+    @Benchmark
+    public int checkIfGameOver() throws Throwable {
+        return (int) MODEL_GAME_OVER.invokeExact(model);
+    }
+
+    @Benchmark
+    public int checkWinner() throws Throwable {
+        return (int) MODEL_WINNER.invokeExact(model, 0);
+    }
+
+    @Benchmark
+    public int[] getCurrentBoard() throws Throwable {
+        return (int[]) MODEL_BOARD.invokeExact(model);
+    }
+
+    /**
+     * A full game between two random players, on a new model like a new game from the main menu.
+     * @return the winner
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int randomGame() throws Throwable {
+        Object game = (Object) NEW_MODEL.invokeExact(stonesPerPit);
+        boolean turnA = true;
+        while (true) {
+            int first = turnA ? 0 : 6;
+            int index = turnA ? 0 : 7;
+            int nonEmpty = 0;
+            for (int i = 0; i < 6; i++) {
+                if ((int) MODEL_AMOUNT.invokeExact(game, index + i) != 0) nonEmpty++;
+            }
+            int choice = nextInt(nonEmpty);
+            int pit = first;
+            for (int i = 0; ; i++) {
+                if ((int) MODEL_AMOUNT.invokeExact(game, index + i) != 0 && choice-- == 0) {
+                    pit = first + i;
+                    break;
+                }
+            }
+            try {
+                MODEL_MOVE.invokeExact(game, pit);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                return 0; // a huge pile lapped the board, see MancalaEngine.legalMoves
+            }
+            if (!(boolean) MODEL_LAST_STONE.invokeExact(game)) {
+                turnA = !turnA;
+            }
+            int gameOverFlag = (int) MODEL_GAME_OVER.invokeExact(game);
+            if (gameOverFlag > 0) {
+                return (int) MODEL_WINNER.invokeExact(game, gameOverFlag);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int contendedMove(Shared shared) throws Throwable {
+        MODEL_MOVE.invokeExact(shared.model, MID_GAME_PIT);
+        int stones = (int) MODEL_AMOUNT.invokeExact(shared.model, 6);
+        MODEL_UNDO.invokeExact(shared.model);
+        return stones;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public int[] contendedRead(Shared shared) throws Throwable {
+        return (int[]) MODEL_BOARD.invokeExact(shared.model);
+    }
+
+    @State(Scope.Group)
+    public static class Shared {
+
+        Object model;
+
+        @Setup
+        public void setUp() throws Throwable {
+            model = (Object) NEW_MODEL.invokeExact(4);
+            for (int pit : OPENING) {
+                MODEL_MOVE.invokeExact(model, pit);
+            }
+            MODEL_ATTACH.invokeExact(model, newListener());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Listeners {
+
+        @Param({ "0", "1", "4", "16" })
+        public int count;
+
+        Object model;
+
+        @Setup
+        public void setUp() throws Throwable {
+            model = (Object) NEW_MODEL.invokeExact(4);
+            for (int pit : OPENING) {
+                MODEL_MOVE.invokeExact(model, pit);
+            }
+            for (int i = 0; i < count; i++) {
+                MODEL_ATTACH.invokeExact(model, newListener());
+            }
+        }
+    }
+
+    private int nextInt(int bound) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) ((seed >>> 33) % bound);
+    }
+}
@@ -0,0 +1,146 @@
+package mancala.benchmarks;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.swing.Icon;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static mancala.benchmarks.GameClasses.*;
+
+/**
+ * Rendering benchmarks: painting one Stone icon into an offscreen image, painting the 14 icons of a frame,
+ * and HorizontalStyleBoard.addStonesToPits, which runs on every model change. Then the whole horizontal board,
+ * as the label and buttons of HorizontalStyleBoard and as a BoardComponent, and one pit of the BoardComponent,
+ * which is what it repaints when a pit changes.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    //A board in the middle of a 4 stone game
+    private static final int[] BOARD = { 0, 5, 6, 1, 6, 6, 3, 5, 0, 5, 5, 5, 1, 0 };
+
+    @Param({ "4", "20", "48" })
+    public int stones;
+
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private Icon stone;
+    private Icon[] frame;
+    private Object board;
+    private ArrayList<JButton> pits;
+    private JLabel buttonBoard;
+    private JComponent paintedBoard;
+    private Graphics2D pitGraphics;     // clipped to pit A3 of the painted board
+
+    @Setup
+    public void setUp() throws Throwable {
+        image = new BufferedImage(1000, 320, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        graphics.setColor(Color.GRAY);
+        stone = (Icon) NEW_STONE.invokeExact(stones);
+        frame = new Icon[BOARD.length];
+        for (int i = 0; i < BOARD.length; i++) {
+            frame[i] = (Icon) NEW_STONE.invokeExact(i == 6 ? stones : BOARD[i]);
+        }
+        board = (Object) NEW_HORIZONTAL.invokeExact();
+        pits = createPits();
+
+        int[] data = BOARD.clone();
+        data[6] = stones;
+        buttonBoard = new JLabel((Icon) CREATE_BOARD.invokeExact(board));
+        ADD_STONES.invokeExact(board, pits, data);
+        ADD_PITS.invokeExact(board, pits, buttonBoard);
+        buttonBoard.setSize(buttonBoard.getPreferredSize());
+        layOut(buttonBoard);
+
+        paintedBoard = (JComponent) NEW_COMPONENT.invokeExact(false);
+        COMPONENT_BOARD.invokeExact((Object) paintedBoard, data);
+        paintedBoard.setSize(paintedBoard.getPreferredSize());
+        pitGraphics = (Graphics2D) graphics.create();
+        pitGraphics.clipRect(400, 165, 100, 70);
+    }
+
+    private static void layOut(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents()) {
+            if (child instanceof Container) {
+                layOut((Container) child);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pitGraphics.dispose();
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintStone() {
+        stone.paintIcon(null, graphics, 0, 0);
+        return image;
+    }
+
+    /**
+     * Paints every pit of a board whose Mancala A holds the stones parameter.
+     */
+    @Benchmark
+    public BufferedImage paintFrame() {
+        for (int i = 0; i < frame.length; i++) {
+            frame[i].paintIcon(null, graphics, (i % 7) * 100, (i / 7) * 160);
+        }
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintButtonBoard() {
+        buttonBoard.paint(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintPaintedBoard() {
+        paintedBoard.paint(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintPaintedPit() {
+        paintedBoard.paint(pitGraphics);
+        return image;
+    }
+
+    @Benchmark
+    public ArrayList<JButton> addStonesToPits() throws Throwable {
+        ADD_STONES.invokeExact(board, pits, BOARD);
+        return pits;
+    }
+}
@@ -0,0 +1,77 @@
+package mancala.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static mancala.benchmarks.GameClasses.*;
+
+/**
+ * Benchmark of MancalaSearch: a fixed depth search from the mid game board of ModelBenchmark, starting from an
+ * empty transposition table each time.
+ * Besides searches per second, the nodes counter is reported per second, which is the search speed.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SearchBenchmark {
+
+    private static final long NO_TIME_LIMIT = 3_600_000; // milliseconds
+
+    @Param({ "10", "14" })
+    public int depth;
+
+    private Object search;
+    private Object midGame;
+
+    @Setup
+    public void setUp() throws Throwable {
+        search = (Object) NEW_SEARCH.invokeExact();
+        midGame = (Object) NEW_ENGINE.invokeExact(4);
+        for (int pit : ModelBenchmark.OPENING) {
+            ENGINE_MOVE.invokeExact(midGame, pit);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() throws Throwable {
+        TABLE_CLEAR.invokeExact((Object) SEARCH_TABLE.invokeExact(search));
+    }
+
+    @Benchmark
+    public int fixedDepth(Nodes counter) throws Throwable {
+        int move = (int) SEARCH_FIND.invokeExact(search, midGame, NO_TIME_LIMIT, depth);
+        counter.nodes += (long) SEARCH_NODES.invokeExact(search);
+        return move;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            nodes = 0;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Tells MancalaListeners what changed on a MancalaBoardModel: the pits whose stones changed, with the old and new
+ * number of stones of each, and what caused the change. A listener can update just those pits, and a copy of the
+ * board can be kept up to date with applyTo, or read whole from getSnapshot, which is the board just after the
+ * change even if the model has changed again since. One event is made per change and shared by all listeners, so it
+ * is immutable.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class BoardChangeEvent {
+
+    //What caused the change
+    public static final int MOVE = 0;
+    public static final int UNDO = 1;
+    public static final int END_OF_GAME = 2;  // the stones left were moved to a Mancala
+    public static final int REDO = 3;
+    public static final int JUMP = 4;         // went to another ply of the game
+
+    private final MancalaBoardModel model;
+    private final int cause;
+    private final int pitNumber;
+    private final int[] changes;    // pit, old count, new count of each changed pit
+    private final BoardSnapshot snapshot;
+
+    private BoardChangeEvent(MancalaBoardModel model, int cause, int pitNumber, int[] changes,
+                             BoardSnapshot snapshot) {
+        this.model = model;
+        this.cause = cause;
+        this.pitNumber = pitNumber;
+        this.changes = changes;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Makes the event for a change of the board.
+     * @param model the model that changed
+     * @param cause MOVE, UNDO, END_OF_GAME, REDO or JUMP
+     * @param pitNumber the pit played for a MOVE, 0 - 11, otherwise -1
+     * @param before the snapshot before the change
+     * @param after the snapshot after the change
+     * @return the event, listing the pits that differ
+     */
+    static BoardChangeEvent between(MancalaBoardModel model, int cause, int pitNumber, BoardSnapshot before,
+                                    BoardSnapshot after) {
+        int changed = 0;
+        for (int i = 0; i < MancalaEngine.NUMBER_OF_PITS; i++) {
+            if (before.getAmountInPit(i) != after.getAmountInPit(i)) changed++;
+        }
+        int[] changes = new int[3 * changed];
+        for (int i = 0, j = 0; i < MancalaEngine.NUMBER_OF_PITS; i++) {
+            if (before.getAmountInPit(i) != after.getAmountInPit(i)) {
+                changes[j++] = i;
+                changes[j++] = before.getAmountInPit(i);
+                changes[j++] = after.getAmountInPit(i);
+            }
+        }
+        return new BoardChangeEvent(model, cause, pitNumber, changes, after);
+    }
+
+    public MancalaBoardModel getModel() {
+        return model;
+    }
+
+    /**
+     * Gets the state the change left the model in.
+     * @return the snapshot published by the change
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets what caused the change.
+     * @return MOVE, UNDO, END_OF_GAME, REDO or JUMP
+     */
+    public int getCause() {
+        return cause;
+    }
+
+    /**
+     * Gets the pit played.
+     * @return the pit number, 0 - 5 for A and 6 - 11 for B, or -1 if the change is not a move
+     */
+    public int getPitNumber() {
+        return pitNumber;
+    }
+
+    /**
+     * Gets the number of pits, Mancalas included, whose stones changed.
+     * @return the number of changed pits
+     */
+    public int getChangedPits() {
+        return changes.length / 3;
+    }
+
+    /**
+     * Gets a changed pit.
+     * @param i the change, 0 - getChangedPits() - 1
+     * @return the position of the pit in the board array, 0 - 13
+     */
+    public int getPit(int i) {
+        return changes[3 * i];
+    }
+
+    /**
+     * Gets the number of stones a changed pit had before the change.
+     * @param i the change, 0 - getChangedPits() - 1
+     * @return the old number of stones
+     */
+    public int getOldCount(int i) {
+        return changes[3 * i + 1];
+    }
+
+    /**
+     * Gets the number of stones a changed pit has after the change.
+     * @param i the change, 0 - getChangedPits() - 1
+     * @return the new number of stones
+     */
+    public int getNewCount(int i) {
+        return changes[3 * i + 2];
+    }
+
+    /**
+     * Brings a copy of the board from before the change up to date.
+     * @param board the board to update, as returned by getCurrentBoard
+     */
+    public void applyTo(int[] board) {
+        for (int j = 0; j < changes.length; j += 3) {
+            board[changes[j]] = changes[j + 2];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("BoardChangeEvent [cause=").append(cause)
+                .append(", pitNumber=").append(pitNumber).append(", changes=");
+        for (int j = 0; j < changes.length; j += 3) {
+            text.append(j == 0 ? "" : " ").append(changes[j]).append(':')
+                    .append(changes[j + 1]).append("->").append(changes[j + 2]);
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,358 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import javax.swing.JComponent;
+
+/**
+ * One component that paints the whole board: the Mancalas, the pits, their labels and the stones, in the horizontal
+ * or the vertical layout. It replaces the label, panels and 14 buttons of the other board styles, so a repaint
+ * doesn't go through a layout manager or any button UI.
+ *
+ * The board without stones is drawn once into a VolatileImage, which the graphics card keeps, and every repaint
+ * copies the damaged part of it and draws the stones of the pits inside that part. setStones repaints only the pit
+ * that changed. The board is scaled to fit the component and centered; pitAt finds the pit under a point.
+ * Stones moving between pits, as set by SowingAnimator, are drawn over the pits.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class BoardComponent extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int NO_PIT = -1;
+
+    private static final Color BOARD_COLOR = new Color(160, 160, 160);
+    private static final Color PIT_COLOR = new Color(102, 102, 0);
+    private static final Color MANCALA_COLOR = new Color(0, 76, 153);
+    private static final Color LABEL_COLOR = Color.BLACK;
+    private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 30);
+    private static final int STONES_TOP = 5;    // space between the top of a pit and its first row of stones
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final Rectangle[] pitBounds = new Rectangle[14];    // by position in the board array, board units
+    private final String[] labels = new String[14];
+    private final Rectangle[] labelBounds = new Rectangle[14];
+    private final Stone[] stones = new Stone[14];
+    private final int[] counts = new int[14];
+    private final Stone flyingStone = new Stone(1);
+    private double[] flying = new double[0];    // x, y of each stone in flight, board units
+    private int flyingCount;
+
+    private VolatileImage background;   // the board without stones, in device pixels
+    private BufferedImage offscreen;    // the same, when there is no screen
+    private double scale = 1;           // component pixels per board unit
+    private int offsetX;
+    private int offsetY;
+
+    /**
+     * Constructs an empty board.
+     * @param vertical true for the layout of VerticalStyleBoard, false for that of HorizontalStyleBoard
+     */
+    public BoardComponent(boolean vertical) {
+        if (vertical) {
+            boardWidth = 600;
+            boardHeight = 600;
+            layOutVertical();
+        } else {
+            boardWidth = 1000;
+            boardHeight = 320;
+            layOutHorizontal();
+        }
+        for (int pit = 0; pit < stones.length; pit++) {
+            stones[pit] = new Stone(0);
+        }
+        setOpaque(true);
+    }
+
+    /**
+     * Mancala B on the left, B6 - B1 above A1 - A6, Mancala A on the right.
+     */
+    private void layOutHorizontal() {
+        for (int column = 0; column < 6; column++) {
+            int x = 180 + column * 110;
+            place(12 - column, "B" + (6 - column), new Rectangle(x, 85, 100, 70), new Rectangle(x, 15, 100, 60));
+            place(column, "A" + (column + 1), new Rectangle(x, 165, 100, 70), new Rectangle(x, 245, 100, 60));
+        }
+        place(13, "B", new Rectangle(60, 90, 100, 140), new Rectangle(10, 90, 40, 140));
+        place(6, "A", new Rectangle(840, 90, 100, 140), new Rectangle(950, 90, 40, 140));
+    }
+
+    /**
+     * Mancala B at the top, A1 - A6 down the left beside B6 - B1, Mancala A at the bottom.
+     */
+    private void layOutVertical() {
+        for (int row = 0; row < 6; row++) {
+            int y = 110 + row * 62;
+            place(row, "A" + (row + 1), new Rectangle(195, y, 100, 55), new Rectangle(105, y, 80, 55));
+            place(12 - row, "B" + (6 - row), new Rectangle(305, y, 100, 55), new Rectangle(415, y, 80, 55));
+        }
+        place(13, "B", new Rectangle(250, 10, 100, 90), new Rectangle(190, 10, 50, 90));
+        place(6, "A", new Rectangle(250, 490, 100, 90), new Rectangle(190, 490, 50, 90));
+    }
+
+    private void place(int pit, String label, Rectangle bounds, Rectangle labelBound) {
+        pitBounds[pit] = bounds;
+        labels[pit] = label;
+        labelBounds[pit] = labelBound;
+    }
+
+    /**
+     * Sets the number of stones of every pit.
+     * @param board the number of stones in each pit, as returned by MancalaBoardModel.getCurrentBoard
+     */
+    public void setBoard(int[] board) {
+        for (int pit = 0; pit < board.length; pit++) {
+            setStones(pit, board[pit]);
+        }
+    }
+
+    /**
+     * Sets the number of stones of one pit and repaints just that pit.
+     * @param pit the position of the pit in the board array, 6 and 13 being the Mancalas
+     * @param count the number of stones
+     */
+    public void setStones(int pit, int count) {
+        if (counts[pit] == count) {
+            return;
+        }
+        counts[pit] = count;
+        stones[pit].setNumberOfStones(count);
+        updateScale();
+        repaint(toComponent(pitBounds[pit]));
+    }
+
+    public int getStones(int pit) {
+        return counts[pit];
+    }
+
+    /**
+     * Gets where a stone lies in a pit, the stones being laid out in rows as Stone draws them.
+     * @param pit the position of the pit in the board array
+     * @param index the stone, 0 for the first
+     * @return the top left corner of the stone, in board units; rows past the bottom of the pit share its last row
+     */
+    public Point2D.Double getStoneLocation(int pit, int index) {
+        Rectangle bounds = pitBounds[pit];
+        int step = Stone.DIAMETER + 1;
+        int lastRow = Math.max(0, (bounds.height - STONES_TOP - Stone.DIAMETER) / step);
+        int row = Math.min(index / Stone.MAX_STONE_PER_ROW, lastRow);
+        return new Point2D.Double(bounds.x + Stone.DIAMETER + (index % Stone.MAX_STONE_PER_ROW) * step,
+                bounds.y + STONES_TOP + row * step);
+    }
+
+    /**
+     * Sets the stones drawn on top of the pits, as they move from one pit to another. Only the places the stones
+     * leave and the places they reach are repainted.
+     * @param locations the top left corner of each stone, x then y, in board units
+     * @param count the number of stones
+     */
+    public void setFlyingStones(double[] locations, int count) {
+        updateScale();
+        for (int i = 0; i < flyingCount; i++) {
+            repaint(stoneBounds(flying[2 * i], flying[2 * i + 1]));
+        }
+        if (flying.length < 2 * count) {
+            flying = new double[2 * count];
+        }
+        System.arraycopy(locations, 0, flying, 0, 2 * count);
+        flyingCount = count;
+        for (int i = 0; i < flyingCount; i++) {
+            repaint(stoneBounds(flying[2 * i], flying[2 * i + 1]));
+        }
+    }
+
+    /**
+     * Finds the pit under a point of the component.
+     * @param x the x coordinate, in component pixels
+     * @param y the y coordinate, in component pixels
+     * @return the pit number used by PitMouseListener, 0 - 5 for A1 - A6 and 6 - 11 for B1 - B6, or NO_PIT if
+     *         the point is not on a pit; the Mancalas are not pits that can be played
+     */
+    public int pitAt(int x, int y) {
+        updateScale();
+        double boardX = (x - offsetX) / scale;
+        double boardY = (y - offsetY) / scale;
+        for (int pit = 0; pit < pitBounds.length; pit++) {
+            if (pit != 6 && pit != 13 && pitBounds[pit].contains(boardX, boardY)) {
+                return pit < 6 ? pit : pit - 1;
+            }
+        }
+        return NO_PIT;
+    }
+
+    /**
+     * Gets where a pit is painted.
+     * @param pit the position of the pit in the board array
+     * @return the bounds of the pit in component pixels
+     */
+    public Rectangle getPitBounds(int pit) {
+        updateScale();
+        return toComponent(pitBounds[pit]);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        return new Dimension(boardWidth, boardHeight);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        updateScale();
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            paintBackground(g2);
+            g2.translate(offsetX, offsetY);
+            g2.scale(scale, scale);
+            for (int pit = 0; pit < pitBounds.length; pit++) {
+                Rectangle bounds = pitBounds[pit];
+                if (counts[pit] > 0 && clip.intersects(toComponent(bounds))) {
+                    Graphics2D pitGraphics = (Graphics2D) g2.create(bounds.x, bounds.y, bounds.width, bounds.height);
+                    stones[pit].paintIcon(this, pitGraphics, 0, STONES_TOP);
+                    pitGraphics.dispose();
+                }
+            }
+            for (int i = 0; i < flyingCount; i++) {
+                double x = flying[2 * i];
+                double y = flying[2 * i + 1];
+                if (clip.intersects(stoneBounds(x, y))) {
+                    //Stone draws DIAMETER right of where it is told
+                    Graphics2D stoneGraphics = (Graphics2D) g2.create();
+                    stoneGraphics.translate(x - Stone.DIAMETER, y);
+                    flyingStone.paintIcon(this, stoneGraphics, 0, 0);
+                    stoneGraphics.dispose();
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * Copies the board without stones from the VolatileImage, drawing it again if it was lost or never drawn.
+     * When there is no screen to keep an image on, as when headless, a BufferedImage is kept instead.
+     */
+    private void paintBackground(Graphics2D g2) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            if (offscreen == null || offscreen.getWidth() != getWidth() || offscreen.getHeight() != getHeight()) {
+                offscreen = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()),
+                        BufferedImage.TYPE_INT_RGB);
+                Graphics2D offscreenGraphics = offscreen.createGraphics();
+                drawBoard(offscreenGraphics, 1);
+                offscreenGraphics.dispose();
+            }
+            g2.drawImage(offscreen, 0, 0, null);
+            return;
+        }
+        //draw the image at the resolution of the screen, which is scaled on high DPI displays
+        AffineTransform transform = g2.getTransform();
+        double deviceScale = Math.max(transform.getScaleX(), transform.getScaleY());
+        int width = (int) Math.ceil(getWidth() * deviceScale);
+        int height = (int) Math.ceil(getHeight() * deviceScale);
+        do {
+            int state = background == null ? VolatileImage.IMAGE_INCOMPATIBLE : background.validate(configuration);
+            if (state == VolatileImage.IMAGE_INCOMPATIBLE
+                    || background.getWidth() != width || background.getHeight() != height) {
+                if (background != null) {
+                    background.flush();
+                }
+                background = configuration.createCompatibleVolatileImage(width, height);
+                renderBackground(deviceScale);
+            } else if (state == VolatileImage.IMAGE_RESTORED) {
+                renderBackground(deviceScale);
+            }
+            g2.drawImage(background, 0, 0, getWidth(), getHeight(), null);
+        } while (background.contentsLost());
+    }
+
+    private void renderBackground(double deviceScale) {
+        Graphics2D g2 = background.createGraphics();
+        try {
+            drawBoard(g2, deviceScale);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * Draws the board, the pits and the labels, without stones.
+     * @param g2 where to draw, in component pixels times deviceScale
+     * @param deviceScale device pixels per component pixel
+     */
+    private void drawBoard(Graphics2D g2, double deviceScale) {
+        g2.scale(deviceScale, deviceScale);
+        g2.setColor(BOARD_COLOR);
+        g2.fillRect(0, 0, getWidth(), getHeight());
+        g2.translate(offsetX, offsetY);
+        g2.scale(scale, scale);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(LABEL_FONT);
+        FontMetrics metrics = g2.getFontMetrics();
+        for (int pit = 0; pit < pitBounds.length; pit++) {
+            Rectangle bounds = pitBounds[pit];
+            g2.setColor(pit == 6 || pit == 13 ? MANCALA_COLOR : PIT_COLOR);
+            g2.fillRoundRect(bounds.x, bounds.y, bounds.width, bounds.height, 20, 20);
+
+            Rectangle labelBound = labelBounds[pit];
+            g2.setColor(LABEL_COLOR);
+            g2.drawString(labels[pit],
+                    labelBound.x + (labelBound.width - metrics.stringWidth(labels[pit])) / 2,
+                    labelBound.y + (labelBound.height - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+    }
+
+    /**
+     * Fits the board in the component, keeping its proportions, and centers it.
+     */
+    private void updateScale() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            scale = 1;
+            offsetX = 0;
+            offsetY = 0;
+            return;
+        }
+        scale = Math.min((double) width / boardWidth, (double) height / boardHeight);
+        offsetX = (int) ((width - boardWidth * scale) / 2);
+        offsetY = (int) ((height - boardHeight * scale) / 2);
+    }
+
+    private Rectangle stoneBounds(double x, double y) {
+        return toComponent(new Rectangle((int) Math.floor(x) - 1, (int) Math.floor(y) - 1,
+                Stone.DIAMETER + 3, Stone.DIAMETER + 3));
+    }
+
+    /**
+     * Converts a rectangle of the board to component pixels, rounding outwards.
+     */
+    private Rectangle toComponent(Rectangle bounds) {
+        int x = (int) Math.floor(offsetX + bounds.x * scale);
+        int y = (int) Math.floor(offsetY + bounds.y * scale);
+        int right = (int) Math.ceil(offsetX + (bounds.x + bounds.width) * scale);
+        int bottom = (int) Math.ceil(offsetY + (bounds.y + bounds.height) * scale);
+        return new Rectangle(x, y, right - x, bottom - y);
+    }
+}
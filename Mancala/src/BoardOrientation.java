@@ -20,6 +20,25 @@ public interface BoardOrientation {
      */
     void addStonesToPits(ArrayList<JButton> pits, int[] pitsData);
 
+    /**
+     * Add stones to one pit or Mancala, leaving the others as they are
+     * @param pits - Arraylist of JButtons i.e. pits that need to be added to the board
+     * @param pit - position of the pit in the board array, 6 and 13 being the Mancalas
+     * @param stones - number of stones in the pit
+     */
+    void addStonesToPit(ArrayList<JButton> pits, int pit, int stones);
+
+    /**
+     * Show a change of the board, by default by adding stones to each pit that changed
+     * @param pits - Arraylist of JButtons i.e. pits that need to be added to the board
+     * @param event - the pits that changed and why
+     */
+    default void showChange(ArrayList<JButton> pits, BoardChangeEvent event) {
+        for (int i = 0; i < event.getChangedPits(); i++) {
+            addStonesToPit(pits, event.getPit(i), event.getNewCount(i));
+        }
+    }
+
     /**
      * Add all the pits and labels to the board 
      * @param pits - Arraylist of JButtons i.e. pits that need to be added to the board
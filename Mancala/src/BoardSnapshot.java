@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+/**
+ * One state of a MancalaBoardModel: the board, the board before the last move, which undoMove goes back to, and
+ * whether the last stone of that move landed in the mover's Mancala. A snapshot never changes, so any thread may
+ * read it, as long as it likes, without a lock or a copy, and every read sees the same board. The model changes
+ * by replacing its snapshot with a new one.
+ *
+ * Each board is packed the way MancalaEngine packs it, a byte a pit in two longs, so a snapshot is a few words
+ * and loads straight into an engine with setPackedBoard. A board holds at most 255 stones.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public final class BoardSnapshot {
+
+    public static final int MAX_STONES = 255;
+
+    private static final long SIDE = 0xFFFF_FFFF_FFFFL;    // pits 1 - 6 of a side, without its Mancala
+
+    private final long lowPits;             // pits 0 - 6, one byte each
+    private final long highPits;            // pits 7 - 13
+    private final long previousLowPits;
+    private final long previousHighPits;
+    private final boolean lastStoneOnBoard;
+
+    BoardSnapshot(long lowPits, long highPits, long previousLowPits, long previousHighPits,
+                  boolean lastStoneOnBoard) {
+        this.lowPits = lowPits;
+        this.highPits = highPits;
+        this.previousLowPits = previousLowPits;
+        this.previousHighPits = previousHighPits;
+        this.lastStoneOnBoard = lastStoneOnBoard;
+    }
+
+    /**
+     * Makes a snapshot of boards in the layout of MancalaBoardModel.getCurrentBoard.
+     * @param board the board
+     * @param previousBoard the board before the last move
+     * @param lastStoneOnBoard whether the last move ended in the mover's Mancala
+     * @return the snapshot
+     */
+    static BoardSnapshot of(int[] board, int[] previousBoard, boolean lastStoneOnBoard) {
+        return new BoardSnapshot(pack(board, 0), pack(board, 7), pack(previousBoard, 0), pack(previousBoard, 7),
+                lastStoneOnBoard);
+    }
+
+    /**
+     * Makes a snapshot of a board whose previous board is already packed.
+     * @param board the board, in the layout of MancalaBoardModel.getCurrentBoard
+     * @param previousLowPits pits 0 - 6 of the board before the last move
+     * @param previousHighPits pits 7 - 13 of the board before the last move
+     * @param lastStoneOnBoard whether the last move ended in the mover's Mancala
+     * @return the snapshot
+     */
+    static BoardSnapshot of(int[] board, long previousLowPits, long previousHighPits, boolean lastStoneOnBoard) {
+        return new BoardSnapshot(pack(board, 0), pack(board, 7), previousLowPits, previousHighPits, lastStoneOnBoard);
+    }
+
+    /**
+     * Checks that a board can be packed.
+     * @param board the board
+     * @throws IllegalArgumentException if the board doesn't have 14 pits or holds more than MAX_STONES stones
+     */
+    static void checkBoard(int[] board) {
+        if (board.length != MancalaEngine.NUMBER_OF_PITS) {
+            throw new IllegalArgumentException("Board must have " + MancalaEngine.NUMBER_OF_PITS + " pits: "
+                    + board.length);
+        }
+        int stones = 0;
+        for (int pit : board) {
+            if (pit < 0) {
+                throw new IllegalArgumentException("Pits must hold 0 stones or more: " + pit);
+            }
+            stones += pit;
+        }
+        if (stones > MAX_STONES) {
+            throw new IllegalArgumentException("Board must hold 0 - " + MAX_STONES + " stones: " + stones);
+        }
+    }
+
+    private static long pack(int[] board, int first) {
+        long pits = 0;
+        for (int pit = 0; pit < 7; pit++) {
+            pits |= (long) board[first + pit] << (8 * pit);
+        }
+        return pits;
+    }
+
+    private static int unpack(long low, long high, int pitNumber) {
+        return pitNumber < 7 ? (int) (low >>> (8 * pitNumber)) & 0xFF : (int) (high >>> (8 * (pitNumber - 7))) & 0xFF;
+    }
+
+    /**
+     * Gets the number of stones in a pit.
+     * @param pitNumber the position in the board array, 0 - 13
+     * @return the number of stones
+     */
+    public int getAmountInPit(int pitNumber) {
+        return unpack(lowPits, highPits, pitNumber);
+    }
+
+    /**
+     * Gets the number of stones a pit had before the last move.
+     * @param pitNumber the position in the board array, 0 - 13
+     * @return the number of stones
+     */
+    public int getPreviousAmountInPit(int pitNumber) {
+        return unpack(previousLowPits, previousHighPits, pitNumber);
+    }
+
+    /**
+     * Copies the board into a new array.
+     * @return the number of stones in each of the 14 pits
+     */
+    public int[] getBoard() {
+        return getBoard(lowPits, highPits);
+    }
+
+    /**
+     * Copies the board before the last move into a new array.
+     * @return the number of stones in each of the 14 pits
+     */
+    public int[] getPreviousBoard() {
+        return getBoard(previousLowPits, previousHighPits);
+    }
+
+    private static int[] getBoard(long low, long high) {
+        int[] board = new int[MancalaEngine.NUMBER_OF_PITS];
+        for (int pit = 0; pit < board.length; pit++) {
+            board[pit] = unpack(low, high, pit);
+        }
+        return board;
+    }
+
+    /**
+     * Gets the board packed the way MancalaEngine.getLowPits packs it.
+     * @return pits 0 - 6, one byte each
+     */
+    public long getLowPits() {
+        return lowPits;
+    }
+
+    /**
+     * Gets the board packed the way MancalaEngine.getHighPits packs it.
+     * @return pits 7 - 13, one byte each
+     */
+    public long getHighPits() {
+        return highPits;
+    }
+
+    long getPreviousLowPits() {
+        return previousLowPits;
+    }
+
+    long getPreviousHighPits() {
+        return previousHighPits;
+    }
+
+    /**
+     * Checks if the last stone of the last move was dropped in a Mancala.
+     * @return true if the player who moved gets another turn
+     */
+    public boolean isLastStoneOnBoard() {
+        return lastStoneOnBoard;
+    }
+
+    /**
+     * Checks if the pits of either player are all empty, as MancalaBoardModel.checkIfGameOver does.
+     * @return 0 if the game is not over, 1 if the A pits are empty or 2 if only the B pits are empty
+     */
+    public int checkIfGameOver() {
+        return (lowPits & SIDE) == 0 ? 1 : (highPits & SIDE) == 0 ? 2 : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BoardSnapshot " + Arrays.toString(getBoard());
+    }
+}
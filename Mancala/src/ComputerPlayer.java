@@ -0,0 +1,31 @@
+/**
+ * Interface representing the computer opponents that MancalaBoardView can play against
+ * @author Hieu Hoang, Aria, Aryan
+ */
+public interface ComputerPlayer {
+    /**
+     * Finds the move to play within a time budget
+     * @param position the position to play from, left unchanged
+     * @param timeBudgetMillis the time allowed for the move
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    int findBestMove(MancalaEngine position, long timeBudgetMillis);
+
+    /**
+     * Asks a running findBestMove to return as soon as possible. May be called from any thread.
+     */
+    void stop();
+
+    /**
+     * Describes how the last move was found, for the message shown after it
+     * @return a short description such as the depth searched
+     */
+    String describeLastMove();
+
+    /**
+     * Describes the search findBestMove is running, for the message shown while the computer thinks. May be
+     * called from any thread.
+     * @return a short description of the search so far, such as the depth, score and speed
+     */
+    String describeProgress();
+}
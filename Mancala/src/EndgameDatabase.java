@@ -0,0 +1,306 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Exact values of every position with up to a given number of stones left in the 12 pits, so that late positions
+ * don't have to be searched. The value of a position is what the player to move will still gain over the
+ * opponent with perfect play by both sides: the final Mancala difference minus the current one. It doesn't depend
+ * on what is already in the Mancalas, as long as no pit holds 14 stones or more, which is why at most
+ * MAX_STONES stones can be covered.
+ *
+ * The tables are solved backwards from the end of the game, fewest stones first. Within one number of stones,
+ * a move that neither scores nor captures only carries stones towards the mover's Mancala, so positions can't
+ * repeat and each one is solved after the positions it leads to.
+ *
+ * The file holds a 32 byte header followed by one signed byte per position: the boards with n stones come after
+ * all boards with fewer stones, ranked among themselves by the combinatorial number system, and each board has
+ * a byte for A to move then a byte for B to move. It is read through a MappedByteBuffer, so opening it costs
+ * nothing and the pages are shared with other processes using the same file.
+ *
+ * Generate a file with: java EndgameDatabase [file] [stones]
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class EndgameDatabase {
+
+    public static final int MAX_STONES = 13;
+    public static final String DEFAULT_FILE = "mancala-endgame.db";
+
+    private static final long MAGIC = 0x4D4E434C45474442L; // "MNCLEGDB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int PITS = 12;
+    private static final byte UNKNOWN = Byte.MIN_VALUE;
+    private static final long MANCALA_BYTE = 0xFFL << 48;   // Mancala A or B in a packed side
+
+    //BINOMIAL[n][k] = n choose k
+    private static final long[][] BINOMIAL = new long[MAX_STONES + PITS + 1][PITS + 1];
+
+    static {
+        for (int n = 0; n < BINOMIAL.length; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, PITS); k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final ByteBuffer values;
+    private final int maxStones;
+
+    private EndgameDatabase(ByteBuffer values, int maxStones) {
+        this.values = values;
+        this.maxStones = maxStones;
+    }
+
+    /**
+     * Maps a database file into memory.
+     * @param file the file written by generate
+     * @return the database
+     * @throws IOException if the file can't be read or is not an endgame database
+     */
+    public static EndgameDatabase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER_SIZE || mapped.getLong(0) != MAGIC || mapped.getInt(8) != VERSION) {
+                throw new IOException(file + " is not a Mancala endgame database");
+            }
+            int maxStones = mapped.getInt(12);
+            if (maxStones > MAX_STONES || channel.size() != HEADER_SIZE + 2 * boardsUpTo(maxStones)) {
+                throw new IOException(file + " is damaged");
+            }
+            return new EndgameDatabase(mapped.position(HEADER_SIZE).slice(), maxStones);
+        }
+    }
+
+    /**
+     * Gets the largest number of stones on the board covered by the database.
+     * @return the number of stones
+     */
+    public int getMaxStones() {
+        return maxStones;
+    }
+
+    /**
+     * Checks if a position is in the database.
+     * @param position the position
+     * @return true if at most getMaxStones stones are left in the pits
+     */
+    public boolean contains(MancalaEngine position) {
+        return position.getStonesOnBoard() <= maxStones;
+    }
+
+    /**
+     * Gets what the player to move will still gain over the opponent with perfect play.
+     * @param position a position for which contains is true
+     * @return the final Mancala difference minus the current one, from the point of view of the player to move
+     */
+    public int getValue(MancalaEngine position) {
+        return values.get(index(position));
+    }
+
+    /**
+     * Gets the final Mancala difference with perfect play.
+     * @param position a position for which contains is true
+     * @return the Mancala of A minus the Mancala of B at the end of the game
+     */
+    public int getFinalDifference(MancalaEngine position) {
+        int value = getValue(position);
+        if (position.getCurrentTurn() == MancalaEngine.B_TURN) {
+            value = -value;
+        }
+        return position.getMancalaDifference() + value;
+    }
+
+    /**
+     * Predicts the result of the game with perfect play, in the way MancalaBoardModel.checkWinner reports it.
+     * @param position a position for which contains is true
+     * @return 1 if winner is A or
+     *         2 if the winner is B or
+     *         3 if there is a tie
+     */
+    public int predictWinner(MancalaEngine position) {
+        int difference = getFinalDifference(position);
+        return difference > 0 ? 1 : difference < 0 ? 2 : 3;
+    }
+
+    /**
+     * Solves every position with up to maxStones stones on the board and writes the database file.
+     * @param file the file to write
+     * @param maxStones the number of stones to cover, 0 - MAX_STONES
+     * @throws IOException if the file can't be written
+     */
+    public static void generate(Path file, int maxStones) throws IOException {
+        if (maxStones < 0 || maxStones > MAX_STONES) {
+            throw new IllegalArgumentException("Stones must be 0 - " + MAX_STONES + ": " + maxStones);
+        }
+        byte[] table = new Solver(maxStones).solve();
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(partial);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(maxStones);
+            out.writeLong(table.length);
+            out.writeLong(0); // reserved
+            out.write(table);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Gets the number of boards with at most the given number of stones in the 12 pits.
+     */
+    private static long boardsUpTo(int stones) {
+        return BINOMIAL[stones + PITS][PITS];
+    }
+
+    private static int index(MancalaEngine position) {
+        return (int) (2 * rank(position) + position.getCurrentTurn());
+    }
+
+    /**
+     * Ranks a board: the boards with fewer stones first, then the colex rank of the 11 bar positions that split
+     * the stones into 12 pits.
+     */
+    private static long rank(MancalaEngine position) {
+        int stones = 0;
+        long rank = 0;
+        for (int i = 0; i < PITS - 1; i++) {
+            stones += position.getAmountInPit(i < 6 ? i : i + 1);
+            rank += BINOMIAL[stones + i][i + 1];
+        }
+        stones += position.getAmountInPit(PITS);
+        return (stones == 0 ? 0 : boardsUpTo(stones - 1)) + rank;
+    }
+
+    /**
+     * The opposite of rank, for a board with a known number of stones.
+     */
+    private static void unrank(long rank, int stones, int[] pits) {
+        int bar = stones + PITS - 2;
+        int placed = stones;
+        for (int i = PITS - 2; i >= 0; i--) {
+            while (BINOMIAL[bar][i + 1] > rank) {
+                bar--;
+            }
+            rank -= BINOMIAL[bar][i + 1];
+            //bar - i stones lie before this bar
+            pits[i + 1] = placed - (bar - i);
+            placed = bar - i;
+            bar--;
+        }
+        pits[0] = placed;
+    }
+
+    /**
+     * Fills the table in order of stones on the board, solving positions depth first when a position with the
+     * same number of stones is needed first.
+     */
+    private static class Solver {
+
+        private final int maxStones;
+        private final byte[] table;
+        private final MancalaEngine[] stack;
+        private final int[] pits = new int[PITS];
+        private final int[] board = new int[MancalaEngine.NUMBER_OF_PITS];
+
+        Solver(int maxStones) {
+            this.maxStones = maxStones;
+            table = new byte[(int) (2 * boardsUpTo(maxStones))];
+            Arrays.fill(table, UNKNOWN);
+            //a chain of positions with the same stones is at most as long as the stones can travel
+            stack = new MancalaEngine[PITS * (maxStones + 1) + 2];
+            for (int i = 0; i < stack.length; i++) {
+                stack[i] = new MancalaEngine();
+            }
+        }
+
+        byte[] solve() {
+            for (int stones = 0; stones <= maxStones; stones++) {
+                long first = stones == 0 ? 0 : boardsUpTo(stones - 1);
+                long last = boardsUpTo(stones);
+                for (long rank = first; rank < last; rank++) {
+                    unrank(rank - first, stones, pits);
+                    for (int i = 0; i < PITS; i++) {
+                        board[i < 6 ? i : i + 1] = pits[i];
+                    }
+                    board[MancalaEngine.MANCALA_A] = 0;
+                    board[MancalaEngine.MANCALA_B] = 0;
+                    for (int turn = MancalaEngine.A_TURN; turn <= MancalaEngine.B_TURN; turn++) {
+                        stack[0].setBoard(board, turn);
+                        value(0);
+                    }
+                }
+            }
+            return table;
+        }
+
+        /**
+         * Solves stack[level], whose Mancalas are empty.
+         */
+        private int value(int level) {
+            MancalaEngine position = stack[level];
+            int entry = index(position);
+            if (table[entry] != UNKNOWN) {
+                return table[entry];
+            }
+
+            int stones = position.getStonesOnBoard();
+            int turn = position.getCurrentTurn();
+            int value;
+            int gameOverFlag = position.checkIfGameOver();
+            if (gameOverFlag == 1) {
+                value = turn == MancalaEngine.B_TURN ? stones : -stones; // B keeps what is left
+            } else if (gameOverFlag == 2) {
+                value = turn == MancalaEngine.A_TURN ? stones : -stones; // A keeps what is left
+            } else {
+                value = -Integer.MAX_VALUE;
+                MancalaEngine child = stack[level + 1];
+                for (int moves = position.legalMoves(); moves != 0; moves &= moves - 1) {
+                    child.copyFrom(position);
+                    child.move(Integer.numberOfTrailingZeros(moves));
+                    int gained = child.getMancalaDifference();
+                    if (turn == MancalaEngine.B_TURN) {
+                        gained = -gained;
+                    }
+                    //continue from the child with its Mancalas emptied
+                    child.setPackedBoard(child.getLowPits() & ~MANCALA_BYTE, child.getHighPits() & ~MANCALA_BYTE,
+                            child.getCurrentTurn());
+                    int rest = value(level + 1);
+                    value = Math.max(value, gained + (child.getCurrentTurn() == turn ? rest : -rest));
+                }
+            }
+            table[entry] = (byte) value;
+            return value;
+        }
+    }
+
+    /**
+     * Generates a database file.
+     * @param args the file (default mancala-endgame.db) and the number of stones (default MAX_STONES)
+     * @throws IOException if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE);
+        int stones = args.length > 1 ? Integer.parseInt(args[1]) : MAX_STONES;
+        long start = System.nanoTime();
+        generate(file, stones);
+        System.out.printf("%s: %d positions with up to %d stones in %.1f s%n", file, 2 * boardsUpTo(stones), stones,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
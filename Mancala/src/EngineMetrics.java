@@ -0,0 +1,272 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of what the engine and the game do, to find out why the computer player is slow on a host: the
+ * searches with their nodes, table hits, cutoffs, depth and time, the moves applied, and the time the listeners
+ * of MancalaBoardModel take to be told of a change.
+ *
+ * The counters are LongAdders, striped so that the threads of a ParallelSearch or of a GameServer never contend on
+ * one counter. A search counts its nodes and cutoffs in plain fields of its own and adds them here once, when it
+ * is done, so nothing is added per node. Everything is behind one volatile flag, read once a search, a move or a
+ * notification: with the metrics disabled, which they are unless the system property mancala.metrics is true,
+ * they cost that read and nothing else.
+ *
+ * The counters are shown through JMX by register, and can be enabled there while the program runs. Each search
+ * and each notification can also be a Flight Recorder event, SearchEvent and NotificationEvent, if the system
+ * property mancala.jfr is true or the metrics are enabled. Otherwise no event is made, so that the jdk.jfr
+ * classes, a hundred of them, aren't loaded: they would take longer to load than MancalaCli takes to start.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public final class EngineMetrics implements EngineMetricsMBean {
+
+    public static final String OBJECT_NAME = "Mancala:type=EngineMetrics";
+
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    private static final boolean EVENTS = Boolean.getBoolean("mancala.jfr");
+
+    private volatile boolean enabled = Boolean.getBoolean("mancala.metrics");
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAccumulator maxSearchNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder tableProbes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder firstMoveCutoffs = new LongAdder();
+    private final LongAdder depths = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder movesApplied = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder notificationNanos = new LongAdder();
+    private final LongAccumulator maxNotificationNanos = new LongAccumulator(Math::max, 0);
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Gets the metrics of the program.
+     * @return the one instance
+     */
+    public static EngineMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Shows the metrics to JMX clients such as JConsole, under OBJECT_NAME on the platform MBean server. Doing it
+     * again does nothing.
+     */
+    public static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            //registered before
+        } catch (JMException | SecurityException e) {
+            System.err.println("Engine metrics not shown in JMX: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Tells whether searches and notifications are to be Flight Recorder events.
+     * @return true if the system property mancala.jfr is true or the metrics are enabled
+     */
+    static boolean recordsEvents() {
+        return EVENTS || INSTANCE.enabled;
+    }
+
+    /**
+     * Counts a search that chose a move, if the metrics are enabled.
+     * @param depth the depth reached
+     * @param nodes the nodes searched, by all the threads
+     * @param table the transposition table probes and hits of the search
+     * @param cutoffs the cutoffs
+     * @param firstMoveCutoffs the cutoffs made by the first move tried
+     * @param nanos the time the search took
+     */
+    static void searched(int depth, long nodes, TranspositionTable.Counters table, long cutoffs,
+            long firstMoveCutoffs, long nanos) {
+        EngineMetrics metrics = INSTANCE;
+        if (metrics.enabled) {
+            metrics.searches.increment();
+            metrics.searchNanos.add(nanos);
+            metrics.maxSearchNanos.accumulate(nanos);
+            metrics.nodes.add(nodes);
+            metrics.tableProbes.add(table.getProbes());
+            metrics.tableHits.add(table.getHits());
+            metrics.cutoffs.add(cutoffs);
+            metrics.firstMoveCutoffs.add(firstMoveCutoffs);
+            metrics.depths.add(depth);
+            metrics.maxDepth.accumulate(depth);
+        }
+    }
+
+    /**
+     * Counts a move applied to a board, if the metrics are enabled.
+     */
+    static void moveApplied() {
+        if (INSTANCE.enabled) {
+            INSTANCE.movesApplied.increment();
+        }
+    }
+
+    /**
+     * Tells whether notifications are to be timed for notified.
+     * @return true if the metrics are enabled
+     */
+    static boolean timesNotifications() {
+        return INSTANCE.enabled;
+    }
+
+    /**
+     * Counts the listeners of a change told of it.
+     * @param nanos the time they took
+     */
+    static void notified(long nanos) {
+        EngineMetrics metrics = INSTANCE;
+        metrics.notifications.increment();
+        metrics.notificationNanos.add(nanos);
+        metrics.maxNotificationNanos.accumulate(nanos);
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Gets the speed of the searches, over the time they took; the nodes of all the threads of a ParallelSearch
+     * count.
+     * @return the nodes per second
+     */
+    @Override
+    public long getNodesPerSecond() {
+        long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : (long) (nodes.sum() * 1e9 / nanos);
+    }
+
+    /**
+     * Gets the share of the transposition table probes that found the position.
+     * @return the hits per probe, 0 - 1
+     */
+    @Override
+    public double getTableHitRate() {
+        return rate(tableHits.sum(), tableProbes.sum());
+    }
+
+    /**
+     * Gets the share of the cutoffs made by the first move tried, which tells how good the move ordering is.
+     * @return the first move cutoffs per cutoff, 0 - 1
+     */
+    @Override
+    public double getFirstMoveCutoffRate() {
+        return rate(firstMoveCutoffs.sum(), cutoffs.sum());
+    }
+
+    @Override
+    public double getAverageDepth() {
+        return rate(depths.sum(), searches.sum());
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    @Override
+    public double getAverageMoveMillis() {
+        return rate(searchNanos.sum(), searches.sum()) / 1e6;
+    }
+
+    @Override
+    public double getMaxMoveMillis() {
+        return maxSearchNanos.get() / 1e6;
+    }
+
+    /**
+     * Gets the moves played on a MancalaBoardModel or a GameSession.
+     * @return the number of moves
+     */
+    @Override
+    public long getMovesApplied() {
+        return movesApplied.sum();
+    }
+
+    /**
+     * Gets the changes of a MancalaBoardModel told to listeners.
+     * @return the number of notifications
+     */
+    @Override
+    public long getNotifications() {
+        return notifications.sum();
+    }
+
+    @Override
+    public double getAverageNotificationMicros() {
+        return rate(notificationNanos.sum(), notifications.sum()) / 1e3;
+    }
+
+    @Override
+    public double getMaxNotificationMicros() {
+        return maxNotificationNanos.get() / 1e3;
+    }
+
+    /**
+     * Sets every total back to 0. Counts added meanwhile by other threads may be kept or lost.
+     */
+    @Override
+    public void reset() {
+        searches.reset();
+        searchNanos.reset();
+        maxSearchNanos.reset();
+        nodes.reset();
+        tableProbes.reset();
+        tableHits.reset();
+        cutoffs.reset();
+        firstMoveCutoffs.reset();
+        depths.reset();
+        maxDepth.reset();
+        movesApplied.reset();
+        notifications.reset();
+        notificationNanos.reset();
+        maxNotificationNanos.reset();
+    }
+
+    private static double rate(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d searches, %d nodes/s, table hits %.1f%%, first move cutoffs %.1f%%, depth %.1f "
+                        + "(max %d), %.2f ms a move (max %.2f), %d moves applied, %d notifications of %.1f us "
+                        + "(max %.1f)", getSearches(), getNodesPerSecond(), 100 * getTableHitRate(),
+                100 * getFirstMoveCutoffRate(), getAverageDepth(), getMaxDepth(), getAverageMoveMillis(),
+                getMaxMoveMillis(), getMovesApplied(), getNotifications(), getAverageNotificationMicros(),
+                getMaxNotificationMicros());
+    }
+}
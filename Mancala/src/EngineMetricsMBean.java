@@ -0,0 +1,42 @@
+/**
+ * The attributes and operations of EngineMetrics as JMX shows them, under EngineMetrics.OBJECT_NAME. Every total
+ * counts from the start or the last reset, and only while the metrics are enabled.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+public interface EngineMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSearches();
+
+    long getNodes();
+
+    long getNodesPerSecond();
+
+    double getTableHitRate();
+
+    double getFirstMoveCutoffRate();
+
+    double getAverageDepth();
+
+    long getMaxDepth();
+
+    double getAverageMoveMillis();
+
+    double getMaxMoveMillis();
+
+    long getMovesApplied();
+
+    long getNotifications();
+
+    double getAverageNotificationMicros();
+
+    double getMaxNotificationMicros();
+
+    void reset();
+}
@@ -0,0 +1,307 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Goes through an archive of games with the engine and annotates every move. Each position of a game is searched
+ * to a fixed depth; the move played gets the score the search gives it, and a move that scores at least a number
+ * of stones below the best move is a blunder. The games are written to a new archive in the order they were read,
+ * with the scores in its evaluation column, and the blunders are listed in a text file.
+ *
+ * The games are analysed on a ForkJoinPool, a task a game, each on a MancalaSearch of the thread that runs it,
+ * whose table is cleared for every game, so the scores of a game don't depend on the thread or on the games it
+ * analysed before. The calling thread reads the archive and writes the results through a window of games: a game
+ * is read into a slot of the window only once the game it held is analysed and written, so the reader waits for
+ * the analysis and never more than the window is in memory, however large the archive. The slots, their records
+ * and their tasks are reused, so the analysis allocates nothing a game.
+ *
+ * Run with: java GameAnalysis archive annotated [depth] [blunder stones] [threads]
+ * The blunders go to the annotated file's name followed by .blunders.txt.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameAnalysis {
+
+    public static final int DEFAULT_DEPTH = 10;
+    public static final int DEFAULT_BLUNDER = 4;    // stones
+    public static final int GAMES_PER_THREAD = 64;  // games in the window for each thread
+
+    private static final int TABLE_MEGABYTES = 4;
+    private static final long NO_TIME_LIMIT = 3_600_000; // milliseconds
+    private static final int WON = MancalaSearch.WIN_SCORE - MancalaSearch.MAX_DEPTH; // the lowest won score
+
+    private final int depth;
+    private final int blunder;
+    private final int threads;
+    private final ThreadLocal<Analyst> analysts = ThreadLocal.withInitial(Analyst::new);
+
+    /**
+     * Constructs a GameAnalysis.
+     * @param depth the depth each position is searched to, 1 - MancalaSearch.MAX_DEPTH
+     * @param blunder the stones a move must lose against the best move to be a blunder, 1 or more
+     * @param threads the number of threads analysing
+     */
+    public GameAnalysis(int depth, int blunder, int threads) {
+        if (depth < 1 || depth > MancalaSearch.MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be 1 - " + MancalaSearch.MAX_DEPTH + ": " + depth);
+        }
+        if (blunder < 1) {
+            throw new IllegalArgumentException("Blunder stones must be 1 or more: " + blunder);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one analysis thread is needed: " + threads);
+        }
+        this.depth = depth;
+        this.blunder = blunder;
+        this.threads = threads;
+    }
+
+    /**
+     * Analyses every game of an archive.
+     * @param archive the games
+     * @param annotated the file the annotated games are written to, replaced once they all are
+     * @param blunders the text file the blunders are written to
+     * @return the totals of the analysis
+     * @throws IOException if the archive can't be read or is damaged, or the results can't be written
+     */
+    public Statistics run(Path archive, Path annotated, Path blunders) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("Mancala analysis " + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        Game[] window = new Game[threads * GAMES_PER_THREAD];
+        for (int i = 0; i < window.length; i++) {
+            window[i] = new Game();
+        }
+        Statistics statistics = new Statistics();
+        Path partial = annotated.resolveSibling(annotated.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        try (GameRecordReader reader = new GameRecordReader(archive);
+             GameRecordWriter writer = GameRecordWriter.create(partial);
+             BufferedWriter report = Files.newBufferedWriter(blunders)) {
+            long read = 0;
+            long written = 0;
+            while (true) {
+                Game game = window[(int) (read % window.length)];
+                if (read - written == window.length) {
+                    write(game, writer, report, statistics);    // the game read a window ago, in this slot
+                    written++;
+                }
+                if (!reader.next(game.record)) {
+                    break;
+                }
+                game.number = ++read;
+                game.reinitialize();
+                pool.execute(game);
+            }
+            for (; written < read; written++) {
+                write(window[(int) (written % window.length)], writer, report, statistics);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Files.move(partial, annotated, StandardCopyOption.REPLACE_EXISTING);
+        statistics.nanos = System.nanoTime() - start;
+        return statistics;
+    }
+
+    /**
+     * Waits for the analysis of a game and writes it.
+     */
+    private static void write(Game game, GameRecordWriter writer, BufferedWriter report, Statistics statistics)
+            throws IOException {
+        game.join();
+        statistics.games++;
+        if (!game.valid) {
+            statistics.invalid++;
+            writer.write(game.record);  // as it is, so the annotated archive keeps every game
+            return;
+        }
+        writer.write(game.annotated);
+        statistics.positions += game.annotated.getPlies();
+        statistics.nodes += game.nodes;
+        statistics.blunders += game.blunderCount;
+        int[] blunders = game.blunders;
+        for (int i = 0; i < game.blunderCount * Game.BLUNDER_SIZE; i += Game.BLUNDER_SIZE) {
+            report.write(String.format("Game %d, move %d by %s: pit %d scores %d, pit %d scores %d%n",
+                    game.number, blunders[i] + 1, blunders[i + 1] == MancalaEngine.A_TURN ? "A" : "B",
+                    blunders[i + 2], blunders[i + 3], blunders[i + 4], blunders[i + 5]));
+        }
+    }
+
+    /**
+     * A slot of the window: a game read from the archive, and the task that analyses it.
+     */
+    private final class Game extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        //ply, player, pit played, its score, best pit, its score
+        private static final int BLUNDER_SIZE = 6;
+
+        private final GameRecord record = new GameRecord();
+        private final GameRecord annotated = new GameRecord();
+        private long number;        // counted from 1 in the archive
+        private boolean valid;      // false if the moves don't replay to the recorded result
+        private long nodes;
+        private int[] blunders = new int[8 * BLUNDER_SIZE];
+        private int blunderCount;
+
+        @Override
+        protected void compute() {
+            analysts.get().analyse(this);
+        }
+
+        private void addBlunder(int ply, int player, int pit, int score, int best, int bestScore) {
+            if ((blunderCount + 1) * BLUNDER_SIZE > blunders.length) {
+                blunders = Arrays.copyOf(blunders, 2 * blunders.length);
+            }
+            int i = blunderCount++ * BLUNDER_SIZE;
+            blunders[i] = ply;
+            blunders[i + 1] = player;
+            blunders[i + 2] = pit;
+            blunders[i + 3] = score;
+            blunders[i + 4] = best;
+            blunders[i + 5] = bestScore;
+        }
+    }
+
+    /**
+     * The search and the board of one thread.
+     */
+    private final class Analyst {
+
+        private final MancalaSearch search = new MancalaSearch(new TranspositionTable(TABLE_MEGABYTES));
+        private final MancalaEngine position = new MancalaEngine();
+
+        /**
+         * Scores every move of a game against the best move of its position.
+         */
+        private void analyse(Game game) {
+            GameRecord record = game.record;
+            game.nodes = 0;
+            game.blunderCount = 0;
+            game.valid = record.verify(position);
+            if (!game.valid) {
+                return;
+            }
+            search.getTranspositionTable().clear();
+            GameRecord annotated = game.annotated;
+            annotated.reset(record.getStonesPerPit());
+            position.initializeTheBoard(record.getStonesPerPit());
+            for (int ply = 0; ply < record.getPlies(); ply++) {
+                int pit = record.getMove(ply);
+                int best = pit;
+                int bestScore;
+                int score;
+                if (Integer.bitCount(position.legalMoves()) == 1) {
+                    score = bestScore = search.evaluateMove(position, pit, depth);
+                } else {
+                    best = search.findBestMove(position, NO_TIME_LIMIT, depth);
+                    score = bestScore = search.getBestScore();
+                    if (pit != best) {
+                        game.nodes += search.getNodes();
+                        score = search.evaluateMove(position, pit, depth);
+                    }
+                }
+                game.nodes += search.getNodes();
+                //a move that still wins, or a position already lost, is no blunder whatever the stones
+                if (bestScore - score >= blunder && score < WON && bestScore > -WON) {
+                    game.addBlunder(ply, position.getCurrentTurn(), pit, score, best, bestScore);
+                }
+                annotated.addMove(pit, record.getClock(ply), score);
+                position.move(pit);
+            }
+            annotated.setResult(record.getWinner(), record.getMancalaA(), record.getMancalaB());
+        }
+    }
+
+    /**
+     * Totals of an analysis, added up by the thread that writes the results.
+     */
+    public static class Statistics {
+
+        private long games;
+        private long invalid;
+        private long positions;
+        private long blunders;
+        private long nodes;
+        private long nanos;
+
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of games whose moves don't replay to their recorded result. They are written without
+         * evaluations.
+         * @return the number of games not analysed
+         */
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public long getPositions() {
+            return positions;
+        }
+
+        public long getBlunders() {
+            return blunders;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Gets the speed of the analysis, reading and writing included.
+         * @return the positions analysed per second
+         */
+        public double getPositionsPerSecond() {
+            return nanos == 0 ? 0 : positions * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d not analysed), %d positions, %d blunders, %d nodes in %.2f s, "
+                            + "%.0f positions/s, %.0f nodes/s", games, invalid, positions, blunders, nodes,
+                    nanos / 1e9, getPositionsPerSecond(), nanos == 0 ? 0 : nodes * 1e9 / nanos);
+        }
+    }
+
+    /**
+     * Analyses an archive and prints the totals.
+     * @param args the archive, the annotated archive, the depth (default 10), the stones of a blunder (default 4)
+     *             and the number of threads (default all processors)
+     * @throws IOException if the archive can't be read or the results can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java GameAnalysis archive annotated [depth] [blunder stones] [threads]");
+            return;
+        }
+        Path archive = Paths.get(args[0]);
+        Path annotated = Paths.get(args[1]);
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+        int blunder = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_BLUNDER;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        Path blunders = annotated.resolveSibling(annotated.getFileName() + ".blunders.txt");
+
+        Statistics statistics = new GameAnalysis(depth, blunder, threads).run(archive, annotated, blunders);
+        System.out.println(archive + " at depth " + depth + ", blunders of " + blunder + " stones, " + threads
+                + " threads");
+        System.out.println(statistics);
+    }
+}
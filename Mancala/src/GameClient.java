@@ -0,0 +1,332 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A connection to a GameServer. The simple calls, newGame, play, undo, redo, state and end, send one request and
+ * wait for its reply. To keep many sessions busy on one connection, the send methods buffer requests that flush
+ * sends together, and receive reads their replies in order; up to MAX_PENDING requests may wait for a reply.
+ *
+ * Run with: java GameClient [port] [games] [sessions]
+ * to play random games on a server on the loopback address, checking every reply against a GameSession of
+ * its own.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameClient implements Closeable {
+
+    //Requests that may wait for a reply; their replies fit in the server's buffer for one connection
+    public static final int MAX_PENDING = 1024;
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(MAX_PENDING * 6);
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_PENDING * GameProtocol.REPLY_SIZE);
+    private int pending;
+
+    /**
+     * Connects to a server.
+     * @param address the address of the server
+     * @throws IOException if the connection fails
+     */
+    public GameClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.flip();
+    }
+
+    public Reply newGame(int stonesPerPit) throws IOException {
+        sendNewGame(stonesPerPit);
+        return receive(new Reply());
+    }
+
+    public Reply play(int sessionId, int pitNumber) throws IOException {
+        sendPlay(sessionId, pitNumber);
+        return receive(new Reply());
+    }
+
+    public Reply undo(int sessionId) throws IOException {
+        sendRequest(GameProtocol.UNDO, sessionId);
+        return receive(new Reply());
+    }
+
+    public Reply redo(int sessionId) throws IOException {
+        sendRequest(GameProtocol.REDO, sessionId);
+        return receive(new Reply());
+    }
+
+    public Reply state(int sessionId) throws IOException {
+        sendRequest(GameProtocol.STATE, sessionId);
+        return receive(new Reply());
+    }
+
+    public Reply end(int sessionId) throws IOException {
+        sendRequest(GameProtocol.END, sessionId);
+        return receive(new Reply());
+    }
+
+    /**
+     * Buffers a request to start a session.
+     * @param stonesPerPit the number of stones each pit initially contains
+     */
+    public void sendNewGame(int stonesPerPit) {
+        checkPending();
+        out.put(GameProtocol.NEW_GAME).put((byte) stonesPerPit);
+    }
+
+    /**
+     * Buffers a request to play a pit.
+     * @param sessionId the session
+     * @param pitNumber the pit number, 0 - 11
+     */
+    public void sendPlay(int sessionId, int pitNumber) {
+        checkPending();
+        out.put(GameProtocol.PLAY).putInt(sessionId).put((byte) pitNumber);
+    }
+
+    /**
+     * Buffers a request that only names a session.
+     * @param type GameProtocol.UNDO, REDO, STATE or END
+     * @param sessionId the session
+     */
+    public void sendRequest(byte type, int sessionId) {
+        if (GameProtocol.requestSize(type) != 5) {
+            throw new IllegalArgumentException("Not a session request: " + type);
+        }
+        checkPending();
+        out.put(type).putInt(sessionId);
+    }
+
+    private void checkPending() {
+        if (pending == MAX_PENDING) {
+            throw new IllegalStateException("More than " + MAX_PENDING + " requests waiting for a reply");
+        }
+        pending++;
+    }
+
+    /**
+     * Sends the buffered requests.
+     * @throws IOException if the connection fails
+     */
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Waits for the reply to the oldest request without one, sending the buffered requests first.
+     * @param reply the reply that receives it
+     * @return the reply passed in
+     * @throws IOException if the connection fails or is closed by the server
+     */
+    public Reply receive(Reply reply) throws IOException {
+        if (pending == 0) {
+            throw new IllegalStateException("No request waiting for a reply");
+        }
+        if (out.position() > 0) {
+            flush();
+        }
+        while (in.remaining() < GameProtocol.REPLY_SIZE) {
+            in.compact();
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+        reply.read(in);
+        pending--;
+        return reply;
+    }
+
+    /**
+     * Gets the number of requests sent or buffered without a reply received.
+     * @return the requests waiting, 0 - MAX_PENDING
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The state of a session after a request.
+     */
+    public static class Reply {
+
+        private int sessionId;
+        private int result;
+        private int currentTurn;
+        private int winner;
+        private int undosA;
+        private int undosB;
+        private int ply;
+        private final int[] board = new int[MancalaEngine.NUMBER_OF_PITS];
+
+        void read(ByteBuffer in) throws IOException {
+            if (in.get() != GameProtocol.GAME) {
+                throw new IOException("Not a game reply");
+            }
+            sessionId = in.getInt();
+            result = in.get();
+            currentTurn = in.get();
+            winner = in.get();
+            undosA = in.get();
+            undosB = in.get();
+            ply = in.getShort() & 0xFFFF;
+            for (int pit = 0; pit < board.length; pit++) {
+                board[pit] = in.get() & 0xFF;
+            }
+        }
+
+        public int getSessionId() {
+            return sessionId;
+        }
+
+        /**
+         * Gets the result of the request.
+         * @return what MancalaGame.play, undo or redo returned, GameProtocol.OK or an error of GameProtocol
+         */
+        public int getResult() {
+            return result;
+        }
+
+        public int getCurrentTurn() {
+            return currentTurn;
+        }
+
+        public int getWinner() {
+            return winner;
+        }
+
+        public int getUndosLeft(int player) {
+            return player == MancalaGame.A_TURN ? undosA : undosB;
+        }
+
+        public int getPly() {
+            return ply;
+        }
+
+        public int getAmountInPit(int pitNumber) {
+            return board[pitNumber];
+        }
+
+        /**
+         * Checks if the reply shows the state of a session.
+         * @param session the session
+         * @return true if the turn, the winner, the undos, the ply and the board are those of the session
+         */
+        public boolean matches(GameSession session) {
+            if (currentTurn != session.getCurrentTurn() || winner != session.getWinner()
+                    || undosA != session.getUndosLeft(MancalaGame.A_TURN)
+                    || undosB != session.getUndosLeft(MancalaGame.B_TURN) || ply != session.getPly()) {
+                return false;
+            }
+            for (int pit = 0; pit < board.length; pit++) {
+                if (board[pit] != session.getAmountInPit(pit)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "session " + sessionId + ", result " + result + ", turn " + currentTurn + ", winner " + winner
+                    + ", undos " + undosA + "/" + undosB + ", ply " + ply + ", board " + Arrays.toString(board);
+        }
+    }
+
+    /**
+     * Plays random games on a server, with some undos and redos, keeping many sessions busy at once, and checks
+     * each reply against a GameSession playing the same moves.
+     * @param args the port (default GameServer.DEFAULT_PORT), the number of games (default 10000) and the number
+     *             of sessions played at once (default 100)
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int sessions = Math.min(args.length > 2 ? Integer.parseInt(args[2]) : 100, MAX_PENDING);
+        final int none = -1, newGame = 0, end = 1, undo = 2, redo = 3, play = 4;   // play + pit number
+        final int maxRequests = 1000;   // per game, ending those left with pits the model can't play
+        SplittableRandom random = new SplittableRandom(1);
+        MancalaEngine engine = new MancalaEngine();
+        Reply reply = new Reply();
+        int[] ids = new int[sessions];
+        GameSession[] local = new GameSession[sessions];
+        int[] requests = new int[sessions];
+        int[] requestsInGame = new int[sessions];
+        int started = 0;
+        int finished = 0;
+        long sent = 0;
+        long start = System.nanoTime();
+        try (GameClient client = new GameClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            for (int count = -1; count != 0; sent += count) {
+                //one request for every session, then their replies in the same order
+                count = 0;
+                for (int i = 0; i < sessions; i++) {
+                    int kind = random.nextInt(20);
+                    if (local[i] == null) {
+                        requests[i] = started < games ? newGame : none;
+                        started += started < games ? 1 : 0;
+                    } else if (local[i].isGameOver() && kind > 1 || ++requestsInGame[i] == maxRequests) {
+                        requests[i] = end;
+                    } else {
+                        requests[i] = kind == 0 ? undo : kind == 1 ? redo
+                                : play + random.nextInt(6) + 6 * local[i].getCurrentTurn();
+                    }
+                    if (requests[i] == newGame) {
+                        client.sendNewGame(4);
+                    } else if (requests[i] == end || requests[i] == undo || requests[i] == redo) {
+                        client.sendRequest(requests[i] == end ? GameProtocol.END
+                                : requests[i] == undo ? GameProtocol.UNDO : GameProtocol.REDO, ids[i]);
+                    } else if (requests[i] != none) {
+                        client.sendPlay(ids[i], requests[i] - play);
+                    }
+                    count += requests[i] == none ? 0 : 1;
+                }
+                for (int i = 0; i < sessions; i++) {
+                    if (requests[i] == none) {
+                        continue;
+                    }
+                    client.receive(reply);
+                    if (requests[i] == newGame) {
+                        ids[i] = reply.getSessionId();
+                        local[i] = new GameSession(4);
+                        requestsInGame[i] = 0;
+                    }
+                    int expected = requests[i] == newGame || requests[i] == end ? GameProtocol.OK
+                            : requests[i] == undo ? local[i].undo(engine)
+                            : requests[i] == redo ? local[i].redo(engine) : local[i].play(requests[i] - play, engine);
+                    if (reply.getSessionId() != ids[i] || reply.getResult() != expected || !reply.matches(local[i])) {
+                        throw new IllegalStateException("Expected result " + expected + " in session " + ids[i]
+                                + ", got " + reply);
+                    }
+                    if (requests[i] == end) {
+                        local[i] = null;
+                        finished++;
+                    }
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d requests in %.2f s, %.0f requests/s, every reply as expected%n",
+                finished, sent, seconds, sent / seconds);
+    }
+}
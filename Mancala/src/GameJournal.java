@@ -0,0 +1,510 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A write-ahead journal of the sessions of a GameServer, so that they survive a restart. Every change a server
+ * accepts, a new game, a move, an undo, a redo or an end, is appended as a record of RECORD_SIZE bytes: the
+ * session, the ply after the change and the type of the change with its pit or stones. Records are numbered in
+ * the order they are appended, starting from 0.
+ *
+ * Records are written by a thread of the journal in batches. While one batch is written and forced to disk,
+ * every record appended meanwhile gathers into the next one, so the journal costs one fsync a batch however
+ * many moves it holds; under load the batches grow and the fsyncs stay the same. getDurable tells which records
+ * are on disk, and a server sends no reply to a change until its record is. Each batch starts with its number of
+ * records and their CRC32C, so a batch that a crash left half written is found and dropped.
+ *
+ * The records go into segment files of about SEGMENT_RECORDS records each. Once a few segments are full, a
+ * snapshot of every session is written, packed boards and moves, and the segments it covers are deleted, so the
+ * journal only grows with the sessions, not with the moves ever played. The snapshot is written while the server
+ * runs: each session is written with the number of its last record, and at recovery only the later records of
+ * that session are replayed. A session that ended before the snapshot got to it is left out, and so are its records
+ * up to the end of the snapshot.
+ *
+ * On start the snapshot is read and the segments are replayed through the moves of GameSession, which must give
+ * the same results as when the records were written. The sessions recovered are written to a new snapshot right
+ * away and the old segments deleted, so each run starts with an empty segment.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameJournal implements Closeable {
+
+    //session (4 bytes), ply (2 bytes), type (3 bits) and pit or stones (5 bits)
+    public static final int RECORD_SIZE = 7;
+    public static final int SEGMENT_RECORDS = 1 << 20;
+    private static final int SEGMENTS_PER_SNAPSHOT = 4;
+
+    private static final long SEGMENT_MAGIC = 0x4D4E434C4A524E4CL;   // "MNCLJRNL"
+    private static final long SNAPSHOT_MAGIC = 0x4D4E434C534E4150L;  // "MNCLSNAP"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 20;               // magic, version, first record
+    private static final int BATCH_HEADER_SIZE = 8;                  // records, CRC32C
+    private static final String SNAPSHOT_FILE = "snapshot";
+    private static final int INITIAL_BATCH = 1 << 12;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final ConcurrentMap<Integer, GameSession> sessions;
+    private final AtomicInteger nextId;
+    private final Runnable onCommit;
+    private final Thread writer;
+
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BATCH);     // guarded by lock
+    private long appended;                                              // guarded by lock
+    private boolean closing;                                            // guarded by lock
+
+    private ByteBuffer writing = ByteBuffer.allocate(INITIAL_BATCH);     // used by the writer
+    private final ByteBuffer batchHeader = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+    private final CRC32C checksum = new CRC32C();
+    private FileChannel segment;
+    private long segmentFirst;
+    private long segmentRecords;
+    private final List<Path> fullSegments = new ArrayList<>();          // guarded by itself
+    private Thread snapshotter;                                         // used by the writer
+
+    private volatile long durable;
+    private volatile IOException failure;
+    private long snapshotEnd;                                           // used by recovery
+
+    /**
+     * Opens a journal, recovering the sessions it holds, and starts writing it.
+     * @param directory the directory of the journal, created if it doesn't exist
+     * @param sessions the map that receives the sessions by id, then holds the live sessions of the server
+     * @param nextId receives the id after the highest one ever used
+     * @param onCommit run by the writer after each batch is on disk, or once the journal fails
+     * @throws IOException if the journal can't be read, doesn't replay, or can't be written
+     */
+    public GameJournal(Path directory, ConcurrentMap<Integer, GameSession> sessions, AtomicInteger nextId,
+                       Runnable onCommit) throws IOException {
+        this.directory = directory;
+        this.sessions = sessions;
+        this.nextId = nextId;
+        this.onCommit = onCommit;
+        Files.createDirectories(directory);
+        List<Path> segments = recover();
+        //start over from the sessions recovered, numbering records after any a session has seen
+        long first = appended;
+        for (GameSession session : sessions.values()) {
+            first = Math.max(first, session.getLastRecord() + 1);
+        }
+        for (GameSession session : sessions.values()) {
+            session.setLastRecord(first - 1);
+        }
+        appended = first;
+        durable = first;
+        writeSnapshot(first, segments);
+        openSegment(first);
+        writer = new Thread(this::writeBatches, "GameJournal-" + directory.getFileName());
+        writer.start();
+    }
+
+    /**
+     * Appends the record of a change a session has just made. The caller holds the lock of the session, so that
+     * the records of a session are in the order of its changes.
+     * @param sessionId the session
+     * @param session the session after the change
+     * @param type GameProtocol.NEW_GAME, PLAY, UNDO, REDO or END
+     * @param value the pit played, the stones of a new game, or 0
+     * @return the number of records appended so far, which getDurable reaches once this record is on disk
+     */
+    public long append(int sessionId, GameSession session, int type, int value) {
+        synchronized (lock) {
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(2 * pending.capacity());
+                pending.flip();
+                pending = larger.put(pending);
+            }
+            putRecord(pending, sessionId, session.getPly(), type, value);
+            if (pending.position() == RECORD_SIZE) {
+                lock.notifyAll();
+            }
+            session.setLastRecord(appended);
+            return ++appended;
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, int sessionId, int ply, int type, int value) {
+        buffer.putInt(sessionId).putShort((short) ply).put((byte) (type << 5 | value));
+    }
+
+    /**
+     * Gets the number of records on disk; they are the first ones appended.
+     * @return the records that survive a crash
+     */
+    public long getDurable() {
+        return durable;
+    }
+
+    /**
+     * Gets the error that stopped the journal. Records appended after it are never written.
+     * @return the error, or null while the journal works
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Writes the records appended so far, then a snapshot of the sessions, and closes the journal. The sessions
+     * must no longer change.
+     * @throws IOException if the journal failed or can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+            if (snapshotter != null) {
+                snapshotter.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+        segment.close();
+        if (failure != null) {
+            throw failure;
+        }
+        List<Path> segments;
+        synchronized (fullSegments) {
+            segments = new ArrayList<>(fullSegments);
+        }
+        segments.add(segmentFile(segmentFirst));
+        writeSnapshot(appended, segments);
+    }
+
+    /**
+     * Writes the batches appended until the journal is closed and the last batch written.
+     */
+    private void writeBatches() {
+        try {
+            while (true) {
+                long end;
+                synchronized (lock) {
+                    while (pending.position() == 0 && !closing) {
+                        lock.wait();
+                    }
+                    if (pending.position() == 0) {
+                        return;
+                    }
+                    ByteBuffer batch = pending;
+                    pending = writing;
+                    writing = batch;
+                    end = appended;
+                }
+                writing.flip();
+                int records = writing.remaining() / RECORD_SIZE;
+                checksum.reset();
+                checksum.update(writing.duplicate());
+                batchHeader.clear();
+                batchHeader.putInt(records).putInt((int) checksum.getValue()).flip();
+                ByteBuffer[] batch = { batchHeader, writing };
+                while (writing.hasRemaining()) {
+                    segment.write(batch);
+                }
+                segment.force(false);
+                writing.clear();
+                durable = end;
+                onCommit.run();
+                segmentRecords += records;
+                if (segmentRecords >= SEGMENT_RECORDS) {
+                    nextSegment(end);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            onCommit.run();
+        } catch (InterruptedException e) {
+            failure = new IOException("Interrupted", e);
+            onCommit.run();
+        }
+    }
+
+    /**
+     * Closes the full segment and starts another, and starts a snapshot once there are enough full segments.
+     */
+    private void nextSegment(long first) throws IOException {
+        segment.close();
+        int full;
+        synchronized (fullSegments) {
+            fullSegments.add(segmentFile(segmentFirst));
+            full = fullSegments.size();
+        }
+        openSegment(first);
+        if (full >= SEGMENTS_PER_SNAPSHOT && (snapshotter == null || !snapshotter.isAlive())) {
+            List<Path> covered;
+            synchronized (fullSegments) {
+                covered = new ArrayList<>(fullSegments);
+            }
+            snapshotter = new Thread(() -> {
+                try {
+                    writeSnapshot(first, covered);
+                    synchronized (fullSegments) {
+                        fullSegments.removeAll(covered);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Journal snapshot not written: " + e.getMessage());
+                }
+            }, "GameJournal-snapshot");
+            snapshotter.start();
+        }
+    }
+
+    private void openSegment(long first) throws IOException {
+        segment = FileChannel.open(segmentFile(first), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putLong(SEGMENT_MAGIC).putInt(VERSION)
+                .putLong(first).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segment.force(true);
+        forceDirectory();
+        segmentFirst = first;
+        segmentRecords = 0;
+    }
+
+    private Path segmentFile(long first) {
+        return directory.resolve(String.format("journal-%016x.log", first));
+    }
+
+    /**
+     * Writes every session with the number of its last record, replaces the snapshot with it and deletes the
+     * segments it covers.
+     * @param first the first record that is not in the segments covered; every earlier record of a live session
+     *              is in the snapshot
+     * @param covered the segments whose records all come before first
+     */
+    private void writeSnapshot(long first, List<Path> covered) throws IOException {
+        Path partial = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(first);
+            out.writeInt(nextId.get());
+            for (Map.Entry<Integer, GameSession> entry : sessions.entrySet()) {
+                GameSession session = entry.getValue();
+                synchronized (session) {
+                    if (sessions.get(entry.getKey()) != session) {
+                        continue;   // ended since
+                    }
+                    out.writeInt(entry.getKey());
+                    out.writeLong(session.getLastRecord());
+                    session.write(out);
+                }
+            }
+            out.writeInt(-1);
+            //a session missing from the snapshot ended before this record; its later records are not replayed
+            synchronized (lock) {
+                out.writeLong(Math.max(first, appended));
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(partial, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        for (Path file : covered) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Makes a file created, renamed or deleted in the directory survive a crash, where the system allows it.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //not every system can open a directory; the files themselves are forced
+        }
+    }
+
+    /**
+     * Reads the snapshot and replays the segments into the sessions.
+     * @return the segment files, to be deleted once the sessions are written to a new snapshot
+     */
+    private List<Path> recover() throws IOException {
+        long first = readSnapshot();
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseUnsignedLong(name.substring(8, name.length() - 4), 16), file);
+            }
+        }
+        MancalaEngine engine = new MancalaEngine();
+        long expected = -1;
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            boolean last = entry.getKey().equals(segments.lastKey());
+            long end = replaySegment(entry.getValue(), first, expected, last, engine);
+            expected = end;
+            appended = Math.max(appended, end);
+        }
+        appended = Math.max(appended, first);
+        return new ArrayList<>(segments.values());
+    }
+
+    /**
+     * Reads the snapshot, if there is one, into the sessions.
+     * @return the first record not covered by the snapshot, 0 without one
+     */
+    private long readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (Files.notExists(file)) {
+            return 0;
+        }
+        try (InputStream stream = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(stream, BUFFER_SIZE),
+                    new CRC32C());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readLong() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a journal snapshot");
+            }
+            long first = in.readLong();
+            nextId.set(in.readInt());
+            for (int id = in.readInt(); id != -1; id = in.readInt()) {
+                long lastRecord = in.readLong();
+                GameSession session = GameSession.read(in);
+                session.setLastRecord(lastRecord);
+                sessions.put(id, session);
+            }
+            snapshotEnd = in.readLong();
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException(file + " is damaged");
+            }
+            return first;
+        } catch (EOFException e) {
+            throw new IOException(file + " is cut short", e);
+        }
+    }
+
+    /**
+     * Replays the records of a segment that are not in the snapshot.
+     * @param file the segment
+     * @param first the first record not covered by the snapshot
+     * @param expected the first record of the segment, as the last segment ended, or -1 for the first segment
+     * @param last true for the last segment, which may end in a batch a crash left half written
+     * @return the number of the record after the last one of the segment
+     */
+    private long replaySegment(Path file, long first, long expected, boolean last, MancalaEngine engine)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.limit() < SEGMENT_HEADER_SIZE) {
+            if (last) {
+                return expected < 0 ? first : expected;     // created just before a crash
+            }
+            throw new IOException(file + " is cut short");
+        }
+        if (buffer.getLong() != SEGMENT_MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(file + " is not a journal segment");
+        }
+        long sequence = buffer.getLong();
+        //records missing before the segment only matter if the snapshot doesn't cover them
+        if (sequence < expected || sequence > Math.max(expected, first)) {
+            throw new IOException(directory + " is missing the records before " + sequence);
+        }
+        while (buffer.remaining() >= BATCH_HEADER_SIZE) {
+            int records = buffer.getInt();
+            int crc = buffer.getInt();
+            if (records < 0 || (long) records * RECORD_SIZE > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer batch = buffer.slice().limit(records * RECORD_SIZE);
+            checksum.reset();
+            checksum.update(batch.duplicate());
+            if ((int) checksum.getValue() != crc) {
+                buffer.position(buffer.position() - BATCH_HEADER_SIZE);
+                break;
+            }
+            for (int i = 0; i < records; i++, sequence++) {
+                if (sequence >= first) {
+                    replay(batch, sequence, engine);
+                } else {
+                    batch.position(batch.position() + RECORD_SIZE);
+                }
+            }
+            buffer.position(buffer.position() + records * RECORD_SIZE);
+        }
+        if (buffer.hasRemaining() && !last) {
+            throw new IOException(file + " is damaged at byte " + buffer.position());
+        }
+        return sequence;
+    }
+
+    /**
+     * Plays a record on its session, unless the snapshot already holds it.
+     */
+    private void replay(ByteBuffer batch, long sequence, MancalaEngine engine) throws IOException {
+        int id = batch.getInt();
+        int ply = batch.getShort() & 0xFFFF;
+        int typeAndValue = batch.get() & 0xFF;
+        int type = typeAndValue >>> 5;
+        int value = typeAndValue & 0x1F;
+        GameSession session = sessions.get(id);
+        if (session != null && sequence <= session.getLastRecord()) {
+            return;
+        }
+        boolean replayed;
+        if (type == GameProtocol.NEW_GAME) {
+            replayed = session == null && value >= 1 && value <= GameRecord.MAX_STONES_PER_PIT;
+            if (replayed) {
+                session = new GameSession(value);
+                sessions.put(id, session);
+                nextId.set(Math.max(nextId.get(), id + 1));
+            }
+        } else if (session == null) {
+            if (sequence < snapshotEnd) {
+                return;     // the session ended while the snapshot was written
+            }
+            replayed = false;
+        } else if (type == GameProtocol.PLAY) {
+            int result = value < MancalaEngine.NUMBER_OF_MOVES ? session.play(value, engine) : -1;
+            replayed = result == MancalaGame.PLAYED || result == MancalaGame.EXTRA_TURN;
+        } else if (type == GameProtocol.UNDO) {
+            replayed = session.undo(engine) >= 0;
+        } else if (type == GameProtocol.REDO) {
+            replayed = session.redo(engine) >= 0;
+        } else {
+            replayed = type == GameProtocol.END;
+            sessions.remove(id);
+        }
+        if (!replayed || session.getPly() != ply) {
+            throw new IOException("Journal record " + sequence + " doesn't replay on session " + id);
+        }
+        session.setLastRecord(sequence);
+    }
+}
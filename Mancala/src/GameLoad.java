@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts a GameServer under load to find its limits. A number of simulated clients, one thread and one connection
+ * each, play whole games of random legal moves, one move at a time, until the games to play are used up. The
+ * time from sending each move to receiving its reply goes into a LatencyHistogram per client.
+ *
+ * With a rate, the clients together send that many moves a second, each on a fixed schedule. A move that leaves
+ * late because the server was slow to answer the one before is timed from when it should have left, so a stall
+ * of the server shows in the latencies of every move it held up and not only the first one.
+ *
+ * Every reply is checked against a GameSession of the client's own and a reply that differs counts as an error.
+ * When a game ends, its moves are played again on a MancalaBoardModel, which must reach the same Mancalas and the
+ * same winner as the server.
+ *
+ * Run with: java GameLoad [clients] [games] [moves per second] [port] [server threads] [journal directory]
+ * A rate of 0 sends every move as soon as the last reply is in. Port 0 starts a server in this process, which
+ * also gives the CPU time and memory the server used per move, and with a journal directory the server keeps
+ * its sessions in a GameJournal there, so that the cost of writing every move to disk shows.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameLoad {
+
+    private static final int STONES = 4;
+    private static final long SEED = 1;
+
+    private final int clients;
+    private final double rate;
+
+    /**
+     * Constructs a load of clients.
+     * @param clients the number of clients playing at once
+     * @param rate the number of moves all clients send a second, or 0 to send as fast as the server answers
+     */
+    public GameLoad(int clients, double rate) {
+        if (clients < 1) {
+            throw new IllegalArgumentException("Clients must be 1 or more: " + clients);
+        }
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate must be 0 or more: " + rate);
+        }
+        this.clients = clients;
+        this.rate = rate;
+    }
+
+    /**
+     * Plays games on a server.
+     * @param address the address of the server
+     * @param games the number of games the clients play together
+     * @return what the clients measured, added up
+     * @throws IOException if a connection fails
+     */
+    public Result run(InetSocketAddress address, long games) throws IOException {
+        AtomicLong gamesLeft = new AtomicLong(games);
+        SplittableRandom seeds = new SplittableRandom(SEED);
+        long intervalNanos = rate == 0 ? 0 : (long) (clients * 1e9 / rate);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<Result>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            SplittableRandom random = seeds.split();
+            results.add(pool.submit(() -> play(address, gamesLeft, random, intervalNanos)));
+        }
+        Result total = new Result();
+        try {
+            for (Future<Result> result : results) {
+                total.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        total.nanos = System.nanoTime() - start;
+        return total;
+    }
+
+    /**
+     * Plays games on one connection until there are none left.
+     */
+    private static Result play(InetSocketAddress address, AtomicLong gamesLeft, SplittableRandom random,
+                               long intervalNanos) throws IOException {
+        Result result = new Result();
+        MancalaEngine engine = new MancalaEngine();
+        GameSession local = new GameSession(STONES);
+        GameRecord record = new GameRecord();
+        MancalaBoardModel model = new MancalaBoardModel(STONES);
+        GameClient.Reply reply = new GameClient.Reply();
+        long next = System.nanoTime();
+        try (GameClient client = new GameClient(address)) {
+            while (gamesLeft.getAndDecrement() > 0) {
+                client.sendNewGame(STONES);
+                client.receive(reply);
+                result.requests++;
+                if (reply.getResult() != GameProtocol.OK) {
+                    result.errors++;
+                    continue;
+                }
+                int id = reply.getSessionId();
+                local.newGame(STONES);
+                boolean failed = false;
+                while (!local.isGameOver() && !failed) {
+                    engine.setPackedBoard(local.getLowPits(), local.getHighPits(), local.getCurrentTurn());
+                    int legalMoves = engine.legalMoves();
+                    if (legalMoves == 0) {
+                        result.stuck++;
+                        break;
+                    }
+                    int pitNumber = randomMove(legalMoves, random);
+                    long sent;
+                    if (intervalNanos > 0) {
+                        for (long now = System.nanoTime(); now < next; now = System.nanoTime()) {
+                            LockSupport.parkNanos(next - now);
+                        }
+                        sent = next;
+                        next += intervalNanos;
+                    } else {
+                        sent = System.nanoTime();
+                    }
+                    client.sendPlay(id, pitNumber);
+                    client.receive(reply);
+                    result.latency.record(System.nanoTime() - sent);
+                    result.moves++;
+                    result.requests++;
+                    int expected = local.play(pitNumber, engine);
+                    failed = reply.getResult() != expected || !reply.matches(local);
+                }
+                client.sendRequest(GameProtocol.END, id);
+                client.receive(reply);
+                result.requests++;
+                if (failed || reply.getResult() != GameProtocol.OK) {
+                    result.errors++;
+                    continue;
+                }
+                result.games++;
+                local.getRecord(record);
+                if (replaysTo(reply, record, model)) {
+                    result.verified++;
+                } else {
+                    result.mismatches++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Picks one of the pits of a legalMoves mask at random.
+     */
+    private static int randomMove(int legalMoves, SplittableRandom random) {
+        for (int skip = random.nextInt(Integer.bitCount(legalMoves)); skip > 0; skip--) {
+            legalMoves &= legalMoves - 1;
+        }
+        return Integer.numberOfTrailingZeros(legalMoves);
+    }
+
+    /**
+     * Plays the moves of a game on a model, finishing the game as MancalaGame does, and checks that it ends with
+     * the Mancalas and the winner of the server's last reply.
+     */
+    private static boolean replaysTo(GameClient.Reply reply, GameRecord record, MancalaBoardModel model) {
+        model.initializeTheBoard(record.getStonesPerPit());
+        int winner = 0;
+        try {
+            for (int ply = 0; ply < record.getPlies(); ply++) {
+                model.move(record.getMove(ply));
+            }
+            int gameOverFlag = model.checkIfGameOver();
+            if (gameOverFlag != 0) {
+                winner = model.checkWinner(gameOverFlag);
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return winner == reply.getWinner()
+                && model.getAmountInPit(MancalaEngine.MANCALA_A) == reply.getAmountInPit(MancalaEngine.MANCALA_A)
+                && model.getAmountInPit(MancalaEngine.MANCALA_B) == reply.getAmountInPit(MancalaEngine.MANCALA_B);
+    }
+
+    /**
+     * What the clients of a run measured.
+     */
+    public static class Result {
+
+        private final LatencyHistogram latency = new LatencyHistogram();     // nanoseconds a move
+        private long moves;
+        private long requests;
+        private long errors;
+        private long games;
+        private long verified;
+        private long mismatches;
+        private long stuck;
+        private long nanos;
+
+        private void add(Result other) {
+            latency.add(other.latency);
+            moves += other.moves;
+            requests += other.requests;
+            errors += other.errors;
+            games += other.games;
+            verified += other.verified;
+            mismatches += other.mismatches;
+            stuck += other.stuck;
+        }
+
+        /**
+         * Gets the round trips of the moves.
+         * @return the latencies in nanoseconds
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * Gets the number of requests of every type sent, new games and ends included.
+         * @return the requests
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets the number of replies that were not what the client's own session expected.
+         * @return the errors
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of games that ended on the model as they did on the server.
+         * @return the games verified
+         */
+        public long getVerified() {
+            return verified;
+        }
+
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * Gets the number of games left unfinished because the model couldn't play any pit of the player to move.
+         * @return the games ended early
+         */
+        public long getStuck() {
+            return stuck;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Adds up the CPU time and the memory allocated by threads so far.
+     * @return the nanoseconds of CPU and the bytes allocated, -1 each if the JVM doesn't measure them
+     */
+    private static long[] cost(Thread[] threads) {
+        long cpu = 0;
+        long allocated = 0;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (Thread thread : threads) {
+            long time = bean.getThreadCpuTime(thread.getId());
+            cpu = cpu < 0 || time < 0 ? -1 : cpu + time;
+            long bytes = bean.getThreadAllocatedBytes(thread.getId());
+            allocated = allocated < 0 || bytes < 0 ? -1 : allocated + bytes;
+        }
+        return new long[] { cpu, allocated };
+    }
+
+    /**
+     * Runs a load and prints what it measured. A tenth of the games, at most 2000, are played first to warm up
+     * and not counted.
+     * @param args the number of clients (default 16), the number of games (default 20000), the moves a second
+     *             (default 0, as fast as possible), the port of the server on the loopback address (default 0, a
+     *             server in this process), the threads of that server (default all processors) and the directory
+     *             of its journal (default none)
+     * @throws IOException if a connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        long games = args.length > 1 ? Long.parseLong(args[1]) : 20_000;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        Path journal = args.length > 5 ? Paths.get(args[5]) : null;
+        GameLoad load = new GameLoad(clients, rate);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        GameServer server = port == 0 ? new GameServer(new InetSocketAddress(loopback, 0), threads,
+                GameServer.DEFAULT_MAX_SESSIONS, null, journal) : null;
+        try {
+            InetSocketAddress address = new InetSocketAddress(loopback, server == null ? port : server.getPort());
+            load.run(address, Math.min(games / 10, 2000));
+            long[] before = server == null ? null : cost(server.getThreads());
+            Result result = load.run(address, games);
+            long[] after = server == null ? null : cost(server.getThreads());
+
+            double seconds = result.getNanos() / 1e9;
+            LatencyHistogram latency = result.getLatency();
+            System.out.printf("%d clients, %s: %d games, %d moves in %.2f s, %.0f moves/s%n", clients,
+                    rate == 0 ? "as fast as possible" : String.format("%.0f moves/s asked", rate),
+                    result.getGames(), result.getMoves(), seconds, result.getMoves() / seconds);
+            System.out.printf("Move round trip (us): mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    latency.getMean() / 1e3, latency.getValueAtPercentile(50) / 1e3,
+                    latency.getValueAtPercentile(90) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+            System.out.printf("Errors: %d of %d requests (%.4f%%)%n", result.getErrors(), result.getRequests(),
+                    100.0 * result.getErrors() / Math.max(1, result.getRequests()));
+            System.out.printf("Replayed on a MancalaBoardModel: %d games end the same, %d don't; %d games stopped "
+                    + "with no pit the model can play%n", result.getVerified(), result.getMismatches(),
+                    result.getStuck());
+            if (server != null && before[0] >= 0 && after[0] >= 0) {
+                System.out.printf("Server: %.2f us of CPU a move", (after[0] - before[0]) / 1e3 / result.getMoves());
+                System.out.printf(before[1] >= 0 && after[1] >= 0 ? ", %.1f bytes allocated a move%n" : "%n",
+                        (double) (after[1] - before[1]) / result.getMoves());
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The messages between a GameClient and a GameServer. Every message is a type byte followed by a payload whose
+ * size is fixed by the type, so there are no lengths to send and a message is decoded with a few absolute gets.
+ * Numbers are big endian. A client may send any number of requests without waiting, and gets one reply per
+ * request, in order.
+ *
+ * Requests:
+ * NEW_GAME stones (1 byte) starts a session; PLAY session (4 bytes) pit (1 byte); UNDO, REDO, STATE and END
+ * session (4 bytes). END archives the game, if the server keeps an archive, and frees the session.
+ *
+ * Reply, REPLY_SIZE bytes: the type GAME, the session (4 bytes), the result (1 signed byte), the player to move,
+ * the winner, the undos left of A and of B (1 byte each), the ply (2 bytes) and the 14 pits (1 byte each).
+ * The result is what MancalaGame.play, undo or redo returned, or OK, or one of the errors below; after an error
+ * the rest of the reply is zero.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public final class GameProtocol {
+
+    //Request types
+    public static final byte NEW_GAME = 1;
+    public static final byte PLAY = 2;
+    public static final byte UNDO = 3;
+    public static final byte REDO = 4;
+    public static final byte STATE = 5;
+    public static final byte END = 6;
+
+    //Reply type
+    public static final byte GAME = (byte) 0x81;
+    public static final int REPLY_SIZE = 26;
+
+    //Results that are not those of MancalaGame
+    public static final int OK = 0;                 // NEW_GAME, STATE and END
+    public static final int NO_SESSION = -10;       // the session doesn't exist or has ended
+    public static final int BAD_REQUEST = -11;      // unknown type or value; the server then closes the connection
+    public static final int SERVER_FULL = -12;      // no session could be started
+
+    private static final int[] REQUEST_SIZES = { -1, 2, 6, 5, 5, 5, 5 };
+    private static final byte[] NO_STATE = new byte[REPLY_SIZE - 6];
+
+    private GameProtocol() {
+    }
+
+    /**
+     * Gets the size of a request from its type.
+     * @param type the first byte of the request
+     * @return the size, type included, or -1 if the type is unknown
+     */
+    public static int requestSize(int type) {
+        return type > 0 && type < REQUEST_SIZES.length ? REQUEST_SIZES[type] : -1;
+    }
+
+    /**
+     * Writes a reply carrying the state of a session.
+     * @param out the buffer, with at least REPLY_SIZE bytes remaining
+     * @param sessionId the session
+     * @param result the result of the request
+     * @param session the session, or null to send only the result
+     */
+    public static void putReply(ByteBuffer out, int sessionId, int result, GameSession session) {
+        out.put(GAME).putInt(sessionId).put((byte) result);
+        if (session == null) {
+            out.put(NO_STATE);
+            return;
+        }
+        out.put((byte) session.getCurrentTurn())
+                .put((byte) session.getWinner())
+                .put((byte) session.getUndosLeft(MancalaGame.A_TURN))
+                .put((byte) session.getUndosLeft(MancalaGame.B_TURN))
+                .putShort((short) session.getPly());
+        long low = session.getLowPits();
+        long high = session.getHighPits();
+        for (int pit = 0; pit < 7; pit++) {
+            out.put((byte) (low >>> (8 * pit)));
+        }
+        for (int pit = 0; pit < 7; pit++) {
+            out.put((byte) (high >>> (8 * pit)));
+        }
+    }
+}
@@ -0,0 +1,434 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One game as it is archived: the number of stones per pit, the moves, optionally the time each move took and the
+ * evaluation of each move, and the result. The moves alone determine the game, because every game starts from
+ * the same position for a number of stones and the rules are deterministic, so replay rebuilds any position of
+ * it and verify checks that the moves are legal and lead to the recorded result. A game the player to move can't
+ * go on with, because their only moves are piles that run past the end of the board, is decided by the Mancalas
+ * as MancalaGame.decideByMancalas decides it.
+ *
+ * A record is encoded as a 7 byte header followed by the moves and the optional columns:
+ * the stones per pit (1 byte), the columns present (1 byte: 1 clocks, 2 evaluations), the plies (2 bytes), the
+ * winner as MancalaEngine.checkWinner reports it or 0 if the game is not over (1 byte) and the two Mancalas
+ * (1 byte each); then the moves as 4 bit pit numbers, two a byte, the first in the low half; then, if present,
+ * the clocks as varints of the milliseconds plus one and the evaluations as varints of the zigzag encoded score
+ * plus one, 0 meaning that the move has none. A 40 move game without clocks or evaluations takes 27 bytes.
+ *
+ * Records are made to be reused: reset and decode overwrite the record in place, so a writer or a reader goes
+ * through any number of games with a single GameRecord and no garbage.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameRecord {
+
+    public static final int NO_CLOCK = -1;
+    public static final int NO_EVALUATION = Integer.MIN_VALUE;
+    public static final int MAX_STONES_PER_PIT = 21;   // all the stones still fit in a Mancala's byte
+    public static final int MAX_PLIES = 0xFFFF;
+
+    //Result of decode when the record goes past the end of the buffer
+    public static final int INCOMPLETE = -1;
+
+    static final int HEADER_SIZE = 7;
+    private static final int CLOCKS = 0x01;
+    private static final int EVALUATIONS = 0x02;
+    private static final int INITIAL_CAPACITY = 128;
+
+    private int stonesPerPit;
+    private int plies;
+    private byte[] moves = new byte[INITIAL_CAPACITY / 2];  // two a byte, as they are encoded
+    private int[] clocks = new int[INITIAL_CAPACITY];
+    private int[] evaluations = new int[INITIAL_CAPACITY];
+    private boolean hasClocks;
+    private boolean hasEvaluations;
+    private int winner;
+    private int mancalaA;
+    private int mancalaB;
+
+    /**
+     * Constructs an empty record of a 4 stone game.
+     */
+    public GameRecord() {
+        reset(4);
+    }
+
+    /**
+     * Empties the record for a new game.
+     * @param stonesPerPit the number of stones each pit initially contains, 1 - MAX_STONES_PER_PIT
+     */
+    public void reset(int stonesPerPit) {
+        if (stonesPerPit < 1 || stonesPerPit > MAX_STONES_PER_PIT) {
+            throw new IllegalArgumentException("Stones must be 1 - " + MAX_STONES_PER_PIT + ": " + stonesPerPit);
+        }
+        this.stonesPerPit = stonesPerPit;
+        plies = 0;
+        hasClocks = false;
+        hasEvaluations = false;
+        winner = 0;
+        mancalaA = 0;
+        mancalaB = 0;
+    }
+
+    /**
+     * Adds a move without a clock or an evaluation.
+     * @param pitNumber the pit played, 0 - 11
+     */
+    public void addMove(int pitNumber) {
+        addMove(pitNumber, NO_CLOCK, NO_EVALUATION);
+    }
+
+    /**
+     * Adds a move.
+     * @param pitNumber the pit played, 0 - 11
+     * @param millis the time the move took in milliseconds, or NO_CLOCK
+     * @param evaluation the score of the move from the mover's point of view, or NO_EVALUATION
+     */
+    public void addMove(int pitNumber, int millis, int evaluation) {
+        if (pitNumber < 0 || pitNumber >= MancalaEngine.NUMBER_OF_MOVES) {
+            throw new IllegalArgumentException("Pit number must be 0 - 11: " + pitNumber);
+        }
+        if (millis < NO_CLOCK) {
+            throw new IllegalArgumentException("Milliseconds must be 0 or more: " + millis);
+        }
+        if (plies == MAX_PLIES) {
+            throw new IllegalStateException("A record holds at most " + MAX_PLIES + " moves");
+        }
+        ensureCapacity(plies + 1);
+        moves[plies / 2] = (byte) (plies % 2 == 0 ? pitNumber : moves[plies / 2] | pitNumber << 4);
+        clocks[plies] = millis;
+        evaluations[plies] = evaluation;
+        hasClocks |= millis != NO_CLOCK;
+        hasEvaluations |= evaluation != NO_EVALUATION;
+        plies++;
+    }
+
+    /**
+     * Sets how the game ended.
+     * @param winner 1 if A won, 2 if B won, 3 for a tie or 0 if the game is not over
+     * @param mancalaA the stones in Mancala A, 0 - 255
+     * @param mancalaB the stones in Mancala B, 0 - 255
+     */
+    public void setResult(int winner, int mancalaA, int mancalaB) {
+        if (winner < 0 || winner > 3) {
+            throw new IllegalArgumentException("Winner must be 0 - 3: " + winner);
+        }
+        if (mancalaA < 0 || mancalaA > 0xFF || mancalaB < 0 || mancalaB > 0xFF) {
+            throw new IllegalArgumentException("Mancalas must be 0 - 255: " + mancalaA + ", " + mancalaB);
+        }
+        this.winner = winner;
+        this.mancalaA = mancalaA;
+        this.mancalaB = mancalaB;
+    }
+
+    /**
+     * Records the line of a timeline from the start of the game to its current ply, and the result there.
+     * @param timeline the timeline of a game started with MancalaGame.newGame
+     */
+    public void setGame(GameTimeline timeline) {
+        int[] board = timeline.getBoard(0, new int[MancalaEngine.NUMBER_OF_PITS]);
+        reset(board[0]);
+        for (int ply = 1; ply <= timeline.getPly(); ply++) {
+            addMove(timeline.getMoveTo(ply));
+        }
+        timeline.getBoard(board);
+        int mancalaA = board[MancalaEngine.MANCALA_A];
+        int mancalaB = board[MancalaEngine.MANCALA_B];
+        //the stones left are swept into the Mancalas when a game ends, so only then are all the pits empty
+        boolean over = true;
+        for (int pit = 0; pit < MancalaEngine.NUMBER_OF_PITS; pit++) {
+            over &= board[pit] == 0 || pit == MancalaEngine.MANCALA_A || pit == MancalaEngine.MANCALA_B;
+        }
+        setResult(over ? compare(mancalaA, mancalaB) : 0, mancalaA, mancalaB);
+    }
+
+    /**
+     * Records the line of a game from the start to its current ply, and the result of the game, which may have been
+     * decided by the Mancalas with MancalaGame.decideByMancalas.
+     * @param game a game
+     */
+    public void setGame(MancalaGame game) {
+        setGame(game.getTimeline());
+        setResult(game.getWinner(), mancalaA, mancalaB);
+    }
+
+    /**
+     * Plays the first moves of the record from the start, ending the game the way MancalaGame.play does.
+     * @param engine the engine that receives the position
+     * @param plies the number of moves to play, 0 - getPlies()
+     * @return false if a move is not legal, leaving the engine at the position before it
+     */
+    public boolean replay(MancalaEngine engine, int plies) {
+        if (plies < 0 || plies > this.plies) {
+            throw new IllegalArgumentException("Plies must be 0 - " + this.plies + ": " + plies);
+        }
+        engine.initializeTheBoard(stonesPerPit);
+        for (int ply = 0; ply < plies; ply++) {
+            int pitNumber = move(ply);
+            if (!engine.isLegalMove(pitNumber)) {
+                return false;
+            }
+            engine.move(pitNumber);
+            int gameOverFlag = engine.checkIfGameOver();
+            if (gameOverFlag != 0) {
+                engine.checkWinner(gameOverFlag);
+                return ply + 1 == plies;    // no move after the end
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replays the whole game and checks it against the recorded result.
+     * @param engine an engine to replay on
+     * @return true if every move is legal and the game ends with the recorded winner and Mancalas, or with the
+     *         winner by the Mancalas if it stops where the player to move has no legal move
+     */
+    public boolean verify(MancalaEngine engine) {
+        if (!replay(engine, plies)) {
+            return false;
+        }
+        int mancalaA = engine.getAmountInPit(MancalaEngine.MANCALA_A);
+        int mancalaB = engine.getAmountInPit(MancalaEngine.MANCALA_B);
+        int result = engine.checkIfGameOver() != 0 ? compare(mancalaA, mancalaB) : 0;
+        //a game left with only piles that can't be sown may be decided by the Mancalas, or left unfinished
+        if (result == 0 && winner != 0 && engine.legalMoves() == 0) {
+            result = compare(mancalaA, mancalaB);
+        }
+        return result == winner && mancalaA == this.mancalaA && mancalaB == this.mancalaB;
+    }
+
+    private static int compare(int mancalaA, int mancalaB) {
+        return mancalaA > mancalaB ? 1 : mancalaA < mancalaB ? 2 : 3;
+    }
+
+    public int getStonesPerPit() {
+        return stonesPerPit;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Gets a move.
+     * @param ply 0 - getPlies() - 1
+     * @return the pit played, 0 - 11
+     */
+    public int getMove(int ply) {
+        checkPly(ply);
+        return move(ply);
+    }
+
+    private int move(int ply) {
+        return moves[ply / 2] >>> 4 * (ply % 2) & 0xF;
+    }
+
+    /**
+     * Gets the time a move took.
+     * @param ply 0 - getPlies() - 1
+     * @return the milliseconds, or NO_CLOCK
+     */
+    public int getClock(int ply) {
+        checkPly(ply);
+        return hasClocks ? clocks[ply] : NO_CLOCK;
+    }
+
+    /**
+     * Gets the evaluation of a move.
+     * @param ply 0 - getPlies() - 1
+     * @return the score from the mover's point of view, or NO_EVALUATION
+     */
+    public int getEvaluation(int ply) {
+        checkPly(ply);
+        return hasEvaluations ? evaluations[ply] : NO_EVALUATION;
+    }
+
+    public boolean hasClocks() {
+        return hasClocks;
+    }
+
+    public boolean hasEvaluations() {
+        return hasEvaluations;
+    }
+
+    /**
+     * Gets the recorded result.
+     * @return 1 if A won, 2 if B won, 3 for a tie or 0 if the game is not over
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    public int getMancalaA() {
+        return mancalaA;
+    }
+
+    public int getMancalaB() {
+        return mancalaB;
+    }
+
+    private void checkPly(int ply) {
+        if (ply < 0 || ply >= plies) {
+            throw new IllegalArgumentException("Ply must be 0 - " + (plies - 1) + ": " + ply);
+        }
+    }
+
+    /**
+     * Gets the number of bytes encode writes.
+     * @return the size of the encoded record
+     */
+    public int getEncodedSize() {
+        int size = HEADER_SIZE + (plies + 1) / 2;
+        for (int ply = 0; hasClocks && ply < plies; ply++) {
+            size += varintSize(clocks[ply] + 1);
+        }
+        for (int ply = 0; hasEvaluations && ply < plies; ply++) {
+            size += varintSize(evaluationCode(evaluations[ply]));
+        }
+        return size;
+    }
+
+    /**
+     * Encodes the record.
+     * @param buffer the array that receives it, with at least getEncodedSize() bytes from offset
+     * @param offset where the record starts
+     * @return the offset after the record
+     */
+    public int encode(byte[] buffer, int offset) {
+        buffer[offset] = (byte) stonesPerPit;
+        buffer[offset + 1] = (byte) ((hasClocks ? CLOCKS : 0) | (hasEvaluations ? EVALUATIONS : 0));
+        buffer[offset + 2] = (byte) (plies >>> 8);
+        buffer[offset + 3] = (byte) plies;
+        buffer[offset + 4] = (byte) winner;
+        buffer[offset + 5] = (byte) mancalaA;
+        buffer[offset + 6] = (byte) mancalaB;
+        int at = offset + HEADER_SIZE;
+        System.arraycopy(moves, 0, buffer, at, (plies + 1) / 2);
+        at += (plies + 1) / 2;
+        for (int ply = 0; hasClocks && ply < plies; ply++) {
+            at = writeVarint(buffer, at, clocks[ply] + 1);
+        }
+        for (int ply = 0; hasEvaluations && ply < plies; ply++) {
+            at = writeVarint(buffer, at, evaluationCode(evaluations[ply]));
+        }
+        return at;
+    }
+
+    /**
+     * Decodes a record into this one, reading the buffer with absolute gets. If the result is INCOMPLETE or an
+     * exception is thrown, the content of this record is undefined until the next reset or decode.
+     * @param buffer the encoded records, read up to its limit
+     * @param offset where the record starts
+     * @return the offset after the record, or INCOMPLETE if it goes past the limit of the buffer
+     * @throws IllegalArgumentException if the bytes are not a game record
+     */
+    public int decode(ByteBuffer buffer, int offset) {
+        int limit = buffer.limit();
+        if (limit - offset < HEADER_SIZE) {
+            return INCOMPLETE;
+        }
+        int stones = buffer.get(offset) & 0xFF;
+        int columns = buffer.get(offset + 1) & 0xFF;
+        int count = buffer.getShort(offset + 2) & 0xFFFF;
+        int result = buffer.get(offset + 4) & 0xFF;
+        if (stones < 1 || stones > MAX_STONES_PER_PIT || (columns & ~(CLOCKS | EVALUATIONS)) != 0 || result > 3) {
+            throw new IllegalArgumentException("Not a game record header: " + stones + " stones, columns "
+                    + columns + ", winner " + result);
+        }
+        int at = offset + HEADER_SIZE;
+        if (limit - at < (count + 1) / 2) {
+            return INCOMPLETE;
+        }
+        stonesPerPit = stones;
+        plies = count;
+        hasClocks = (columns & CLOCKS) != 0;
+        hasEvaluations = (columns & EVALUATIONS) != 0;
+        winner = result;
+        mancalaA = buffer.get(offset + 5) & 0xFF;
+        mancalaB = buffer.get(offset + 6) & 0xFF;
+        ensureCapacity(count);
+        int packed = (count + 1) / 2;
+        buffer.get(at, moves, 0, packed);
+        at += packed;
+        int tooLarge = 0;
+        for (int i = 0; i < packed; i++) {
+            tooLarge |= (moves[i] & 0xF) + 4 | (moves[i] >>> 4 & 0xF) + 4;    // 12 - 15 set bit 4
+        }
+        if ((tooLarge & 0x10) != 0) {
+            throw new IllegalArgumentException("Pit numbers must be 0 - 11");
+        }
+        if (hasClocks) {
+            at = decodeColumn(buffer, at, clocks, false);
+        }
+        if (hasEvaluations && at != INCOMPLETE) {
+            at = decodeColumn(buffer, at, evaluations, true);
+        }
+        return at;
+    }
+
+    private int decodeColumn(ByteBuffer buffer, int at, int[] values, boolean evaluation) {
+        int limit = buffer.limit();
+        for (int ply = 0; ply < plies; ply++) {
+            int code = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (at == limit) {
+                    return INCOMPLETE;
+                }
+                if (shift > 28) {
+                    throw new IllegalArgumentException("Varint longer than 5 bytes");
+                }
+                int b = buffer.get(at++);
+                code |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (evaluation) {
+                values[ply] = code == 0 ? NO_EVALUATION : (code - 1) >>> 1 ^ -((code - 1) & 1);
+            } else if ((values[ply] = code - 1) < NO_CLOCK) {
+                throw new IllegalArgumentException("Clock too large: " + Integer.toUnsignedString(code - 1));
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Zigzag encodes a score so that small scores of either sign take one byte, plus one to keep 0 for none.
+     */
+    private static int evaluationCode(int evaluation) {
+        return evaluation == NO_EVALUATION ? 0 : (evaluation << 1 ^ evaluation >> 31) + 1;
+    }
+
+    private static int writeVarint(byte[] buffer, int at, int code) {
+        while ((code & ~0x7F) != 0) {
+            buffer[at++] = (byte) (code | 0x80);
+            code >>>= 7;
+        }
+        buffer[at++] = (byte) code;
+        return at;
+    }
+
+    private static int varintSize(int code) {
+        return Math.max(1, (38 - Integer.numberOfLeadingZeros(code)) / 7);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > clocks.length) {
+            int length = Math.max(capacity, 2 * clocks.length);
+            moves = Arrays.copyOf(moves, (length + 1) / 2);
+            clocks = Arrays.copyOf(clocks, length);
+            evaluations = Arrays.copyOf(evaluations, length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String result = winner == 0 ? "not over" : winner == 1 ? "A won" : winner == 2 ? "B won" : "tie";
+        return stonesPerPit + " stones, " + plies + " moves, " + result + " " + mancalaA + " - " + mancalaB;
+    }
+}
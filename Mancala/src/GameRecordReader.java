@@ -0,0 +1,144 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the games of an archive written by GameRecordWriter, one after another, through the file mapped into
+ * memory. A mapping is limited to 2 GB, so the file is mapped a window at a time, and a game that runs past the
+ * end of a window is read again from the start of the next one. Games are decoded into a GameRecord given by the
+ * caller, so going through an archive of any size allocates nothing but the windows and runs as fast as the
+ * disk, or the page cache, gives the pages.
+ *
+ * Verify an archive with: java GameRecordReader file
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameRecordReader implements Closeable {
+
+    private static final long WINDOW_SIZE = 1L << 28;  // 256 MB, far more than the largest record
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;   // position of the window in the file
+    private int offset;         // position of the next game in the window
+    private long records;
+
+    /**
+     * Opens an archive.
+     * @param file the archive file
+     * @throws IOException if the file can't be read or is not a game archive
+     */
+    public GameRecordReader(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            map(0);
+            if (!GameRecordWriter.isHeader(window)) {
+                throw new IOException(file + " is not a Mancala game archive");
+            }
+            offset = GameRecordWriter.HEADER_SIZE;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next game.
+     * @param record the record that receives the game
+     * @return false if there are no more games
+     * @throws IOException if the file can't be read or the game is damaged
+     */
+    public boolean next(GameRecord record) throws IOException {
+        if (getPosition() == size) {
+            return false;
+        }
+        int end;
+        try {
+            end = record.decode(window, offset);
+            if (end == GameRecord.INCOMPLETE && windowStart + window.limit() < size) {
+                map(getPosition());
+                end = record.decode(window, offset);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + " is damaged at byte " + getPosition() + ": " + e.getMessage());
+        }
+        if (end == GameRecord.INCOMPLETE) {
+            throw new IOException(file + " ends in the middle of a game at byte " + getPosition());
+        }
+        offset = end;
+        records++;
+        return true;
+    }
+
+    /**
+     * Gets the position of the next game in the file.
+     * @return the number of bytes read, the header included
+     */
+    public long getPosition() {
+        return windowStart + offset;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of games read so far.
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    private void map(long start) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+        windowStart = start;
+        offset = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Replays every game of an archive and prints how many were read, how many don't replay to their recorded
+     * result and how fast the archive was read.
+     * @param args the archive file
+     * @throws IOException if the file can't be read or is damaged
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: java GameRecordReader file");
+            return;
+        }
+        GameRecord record = new GameRecord();
+        MancalaEngine engine = new MancalaEngine();
+        long plies = 0;
+        long failed = 0;
+        long start = System.nanoTime();
+        try (GameRecordReader reader = new GameRecordReader(Paths.get(args[0]))) {
+            while (reader.next(record)) {
+                plies += record.getPlies();
+                if (!record.verify(engine)) {
+                    failed++;
+                    System.out.println("Game " + reader.getRecords() + " does not replay: " + record);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %d games, %d moves, %d failed in %.2f s, %.0f MB/s%n", args[0],
+                    reader.getRecords(), plies, failed, seconds, reader.getSize() / 1e6 / seconds);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes games to an archive as a stream: a 16 byte header, then one encoded GameRecord after another with
+ * nothing in between, so that an archive can be appended to and archives can be joined by copying their records.
+ * Records are encoded straight into a buffer that is written out when full, so writing a game allocates nothing.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameRecordWriter implements Closeable, Flushable {
+
+    static final long MAGIC = 0x4D4E434C47414D45L; // "MNCLGAME"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int buffered;
+    private long records;
+
+    /**
+     * Constructs a writer that starts a new archive on a stream.
+     * @param out the stream, closed by close
+     * @throws IOException if the header can't be written
+     */
+    public GameRecordWriter(OutputStream out) throws IOException {
+        this(out, true);
+    }
+
+    private GameRecordWriter(OutputStream out, boolean header) {
+        this.out = out;
+        if (header) {
+            ByteBuffer.wrap(buffer).putLong(MAGIC).putInt(VERSION).putInt(0); // reserved
+            buffered = HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Creates an archive file, replacing any file with the same name.
+     * @param file the file
+     * @return a writer to the file
+     * @throws IOException if the file can't be created
+     */
+    public static GameRecordWriter create(Path file) throws IOException {
+        return new GameRecordWriter(Files.newOutputStream(file), true);
+    }
+
+    /**
+     * Opens an archive file to add games at its end, creating it if it doesn't exist.
+     * @param file the file
+     * @return a writer to the end of the file
+     * @throws IOException if the file can't be opened or is not a game archive
+     */
+    public static GameRecordWriter append(Path file) throws IOException {
+        boolean empty = Files.notExists(file) || Files.size(file) == 0;
+        if (!empty) {
+            try (InputStream in = Files.newInputStream(file)) {
+                readHeader(in, file);
+            }
+        }
+        return new GameRecordWriter(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), empty);
+    }
+
+    /**
+     * Writes a game.
+     * @param record the game
+     * @throws IOException if the buffer can't be written out
+     */
+    public void write(GameRecord record) throws IOException {
+        int size = record.getEncodedSize();
+        if (buffered + size > buffer.length) {
+            drain();
+            if (size > buffer.length) {
+                buffer = new byte[size];
+            }
+        }
+        buffered = record.encode(buffer, buffered);
+        records++;
+    }
+
+    /**
+     * Copies every game of another archive to this one, in the same order.
+     * @param archive the archive file
+     * @throws IOException if the archive can't be read or is not a game archive, or this one can't be written
+     */
+    public void copyRecords(Path archive) throws IOException {
+        drain();
+        try (InputStream in = Files.newInputStream(archive)) {
+            readHeader(in, archive);
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Gets the number of games written with write.
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, buffered);
+        buffered = 0;
+    }
+
+    private static void readHeader(InputStream in, Path file) throws IOException {
+        byte[] header = in.readNBytes(HEADER_SIZE);
+        if (!isHeader(ByteBuffer.wrap(header))) {
+            throw new IOException(file + " is not a Mancala game archive");
+        }
+    }
+
+    /**
+     * Checks the header of an archive.
+     * @param buffer the start of the file
+     * @return true if the buffer starts with the header this class writes
+     */
+    static boolean isHeader(ByteBuffer buffer) {
+        return buffer.limit() >= HEADER_SIZE && buffer.getLong(0) == MAGIC && buffer.getInt(8) == VERSION;
+    }
+}
@@ -0,0 +1,539 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many Mancala games at once over TCP, speaking GameProtocol. Each game is a GameSession, about a hundred
+ * bytes, so a server holds hundreds of thousands of them; a client starts as many sessions as it likes on one
+ * connection. Session ids are unique in the server and any connection may use them. Without a journal, the
+ * sessions a connection started end with it.
+ *
+ * The connections are spread over a few event loops, one thread each, that wait on a Selector for the
+ * connections with requests to read or replies to write. A loop reads what has arrived, plays every complete
+ * request on its own MancalaEngine and writes the replies back, so a connection costs two small buffers and no
+ * thread. A session is locked while a request plays on it, which costs nothing unless two connections use it at
+ * once. A connection is not read again until its replies are written, so a client that doesn't read its replies
+ * can't make the server buffer more. With an archive, every game that ends or is dropped after its first move is
+ * written to it.
+ *
+ * With a journal, every change is recorded in a GameJournal and the sessions outlive their connections and the
+ * server: on start, the server recovers the sessions of its last run and clients carry on with the same ids.
+ * The replies to a connection's requests wait until the journal has their changes on disk, so a client never
+ * sees a move that a crash could lose. While they wait the loop serves other connections, and the changes of
+ * all of them go to disk together.
+ *
+ * Run with: java GameServer [port] [threads] [archive] [journal directory]
+ * where an archive of none keeps no archive. The server listens on the loopback address only. Its EngineMetrics
+ * are in JMX; start it with -Dmancala.metrics=true to count from the start.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7341;
+    public static final int DEFAULT_MAX_SESSIONS = 1 << 20;
+
+    private static final int INPUT_SIZE = 2048;
+    //room for the replies to a full input buffer of the smallest requests
+    private static final int OUTPUT_SIZE = INPUT_SIZE / GameProtocol.requestSize(GameProtocol.NEW_GAME)
+            * GameProtocol.REPLY_SIZE;
+
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final Thread[] threads;
+    private final int maxSessions;
+    private final ConcurrentHashMap<Integer, GameSession> table = new ConcurrentHashMap<>();
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final GameRecordWriter archive;                 // null if the games are not kept
+    private final GameJournal journal;                      // null if the sessions don't outlive the server
+    private final GameRecord record = new GameRecord();     // guarded by archive
+    private int nextLoop;                                   // used by the thread of loop 0, which accepts
+    private volatile boolean running = true;
+
+    /**
+     * Starts a server.
+     * @param address the address to listen on, port 0 for any free port
+     * @param threads the number of event loops
+     * @param maxSessions the number of sessions the server holds at most
+     * @param archive the archive the games are added to, or null not to keep them
+     * @param journal the directory of the journal that keeps the sessions, or null not to keep them
+     * @throws IOException if the address can't be bound, or the archive or the journal can't be opened
+     */
+    public GameServer(InetSocketAddress address, int threads, int maxSessions, Path archive, Path journal)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be 1 or more: " + threads);
+        }
+        this.maxSessions = maxSessions;
+        this.archive = archive == null ? null : GameRecordWriter.append(archive);
+        server = ServerSocketChannel.open();
+        loops = new EventLoop[threads];
+        this.threads = new Thread[threads];
+        GameJournal opened = null;
+        try {
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new EventLoop();
+            }
+            if (journal != null) {
+                opened = new GameJournal(journal, table, nextId, this::committed);
+                sessions.set(table.size());
+            }
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            if (opened != null) {
+                opened.close();
+            }
+            closeQuietly();
+            throw e;
+        }
+        this.journal = opened;
+        for (int i = 0; i < threads; i++) {
+            this.threads[i] = new Thread(loops[i], "GameServer-" + i);
+            this.threads[i].start();
+        }
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of sessions on all connections.
+     * @return the sessions started and not yet ended
+     */
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Gets the threads of the event loops, which do all the work of the server once it is started.
+     * @return the threads, one for each loop
+     */
+    public Thread[] getThreads() {
+        return threads.clone();
+    }
+
+    /**
+     * Stops the loops, closes every connection, the journal and the archive.
+     * @throws IOException if the journal or the archive can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        server.close();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            if (archive != null) {
+                archive.close();
+            }
+        }
+    }
+
+    /**
+     * Wakes the loops, some of whose replies may wait for the batch the journal has just written.
+     */
+    private void committed() {
+        for (EventLoop loop : loops) {
+            if (loop.waiting) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        for (EventLoop loop : loops) {
+            try {
+                if (loop != null) {
+                    loop.selector.close();
+                }
+            } catch (IOException e) {
+                //nothing more to do
+            }
+        }
+        try {
+            server.close();
+            if (archive != null) {
+                archive.close();
+            }
+        } catch (IOException e) {
+            //nothing more to do
+        }
+    }
+
+    private void archive(GameSession session) {
+        if (archive == null || session.getPly() == 0) {
+            return;
+        }
+        synchronized (archive) {
+            session.getRecord(record);
+            try {
+                archive.write(record);
+            } catch (IOException e) {
+                System.err.println("Game not archived: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A thread serving the connections registered with its selector.
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final MancalaEngine engine = new MancalaEngine();
+        private final List<SelectionKey> uncommitted = new ArrayList<>();   // replies waiting for the journal
+        private volatile boolean waiting;                                   // uncommitted is not empty
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                        channel.register(selector, SelectionKey.OP_READ, new Connection(channel, this));
+                    }
+                    //either this sees the last commit, or the journal sees waiting and wakes the selector
+                    waiting = !uncommitted.isEmpty();
+                    writeCommitted();
+                    selector.select();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isAcceptable()) {
+                            accept();
+                        } else if (key.isValid()) {
+                            Connection connection = (Connection) key.attachment();
+                            try {
+                                connection.serve(key);
+                            } catch (IOException e) {
+                                connection.close(key);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Game server loop stopped: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close(key);
+                    }
+                }
+                for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        //nothing more to do
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    //nothing more to do
+                }
+            }
+        }
+
+        /**
+         * Writes the replies whose changes the journal now has on disk, or drops their connections if it failed.
+         */
+        private void writeCommitted() {
+            if (uncommitted.isEmpty()) {
+                return;
+            }
+            long durable = journal.getDurable();
+            boolean failed = journal.getFailure() != null;
+            Iterator<SelectionKey> keys = uncommitted.iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                Connection connection = (Connection) key.attachment();
+                if (!key.isValid() || failed) {
+                    keys.remove();
+                    connection.close(key);
+                } else if (connection.commit <= durable) {
+                    keys.remove();
+                    try {
+                        connection.write(key);
+                    } catch (IOException e) {
+                        connection.close(key);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Accepts the waiting connections and hands them to the loops in turn.
+         */
+        private void accept() throws IOException {
+            for (SocketChannel channel; (channel = server.accept()) != null; ) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                EventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                loop.accepted.add(channel);
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * A client's connection, used only by the thread of its loop.
+     */
+    private class Connection {
+
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private final ByteBuffer in = ByteBuffer.allocate(INPUT_SIZE);
+        private final ByteBuffer out = ByteBuffer.allocate(OUTPUT_SIZE);
+        private int[] started = new int[16];    // ids of the sessions started here, kept only without a journal
+        private int startedCount;
+        private long commit;        // records the journal must have on disk before the replies are written
+        private boolean closing;    // close once the replies are written
+
+        Connection(SocketChannel channel, EventLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+
+        /**
+         * Reads and plays the requests that have arrived, if the replies to the last ones are written, then
+         * writes as many replies as the socket takes once the journal has their changes.
+         */
+        void serve(SelectionKey key) throws IOException {
+            if (key.isReadable()) {
+                if (channel.read(in) < 0) {
+                    close(key);
+                    return;
+                }
+                in.flip();
+                playRequests();
+                in.compact();
+            }
+            if (journal != null && commit > journal.getDurable()) {
+                key.interestOps(0);
+                loop.uncommitted.add(key);
+                return;
+            }
+            write(key);
+        }
+
+        void write(SelectionKey key) throws IOException {
+            out.flip();
+            channel.write(out);
+            boolean written = !out.hasRemaining();
+            out.compact();
+            if (written && closing) {
+                close(key);
+            } else {
+                key.interestOps(written ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void playRequests() {
+            while (in.hasRemaining() && !closing) {
+                int at = in.position();
+                int type = in.get(at);
+                int size = GameProtocol.requestSize(type);
+                if (size < 0) {
+                    badRequest(0);
+                    return;
+                }
+                if (in.remaining() < size) {
+                    return;
+                }
+                in.position(at + size);
+                if (type == GameProtocol.NEW_GAME) {
+                    newGame(in.get(at + 1) & 0xFF);
+                    continue;
+                }
+                int id = in.getInt(at + 1);
+                GameSession session = table.get(id);
+                if (session == null) {
+                    GameProtocol.putReply(out, id, GameProtocol.NO_SESSION, null);
+                    continue;
+                }
+                synchronized (session) {
+                    if (table.get(id) != session) {
+                        GameProtocol.putReply(out, id, GameProtocol.NO_SESSION, null);   // ended meanwhile
+                        continue;
+                    }
+                    int result;
+                    if (type == GameProtocol.PLAY) {
+                        int pitNumber = in.get(at + 5);
+                        if (pitNumber < 0 || pitNumber >= MancalaEngine.NUMBER_OF_MOVES) {
+                            badRequest(id);
+                            return;
+                        }
+                        result = session.play(pitNumber, loop.engine);
+                        if (result == MancalaGame.PLAYED || result == MancalaGame.EXTRA_TURN) {
+                            journal(id, session, type, pitNumber);
+                        }
+                    } else if (type == GameProtocol.UNDO || type == GameProtocol.REDO) {
+                        result = type == GameProtocol.UNDO ? session.undo(loop.engine) : session.redo(loop.engine);
+                        if (result >= 0) {
+                            journal(id, session, type, 0);
+                        }
+                    } else if (type == GameProtocol.END) {
+                        endSession(id, session);
+                        result = GameProtocol.OK;
+                    } else {
+                        result = GameProtocol.OK;
+                    }
+                    GameProtocol.putReply(out, id, result, session);
+                }
+            }
+        }
+
+        private void journal(int id, GameSession session, int type, int value) {
+            if (journal != null) {
+                commit = journal.append(id, session, type, value);
+            }
+        }
+
+        private void newGame(int stonesPerPit) {
+            if (stonesPerPit < 1 || stonesPerPit > GameRecord.MAX_STONES_PER_PIT) {
+                badRequest(0);
+                return;
+            }
+            if (sessions.incrementAndGet() > maxSessions) {
+                sessions.decrementAndGet();
+                GameProtocol.putReply(out, 0, GameProtocol.SERVER_FULL, null);
+                return;
+            }
+            int id = nextId.getAndIncrement();
+            GameSession session = new GameSession(stonesPerPit);
+            synchronized (session) {
+                //the record comes first, so that a journal snapshot never finds the session without it
+                journal(id, session, GameProtocol.NEW_GAME, stonesPerPit);
+                table.put(id, session);
+            }
+            if (journal == null) {
+                addStarted(id);
+            }
+            GameProtocol.putReply(out, id, GameProtocol.OK, session);
+        }
+
+        /**
+         * Remembers a session to end with the connection, first forgetting those already ended if there is no
+         * room left.
+         */
+        private void addStarted(int id) {
+            if (startedCount == started.length) {
+                int live = 0;
+                for (int i = 0; i < startedCount; i++) {
+                    if (table.containsKey(started[i])) {
+                        started[live++] = started[i];
+                    }
+                }
+                startedCount = live;
+                if (live > started.length / 2) {
+                    started = Arrays.copyOf(started, 2 * started.length);
+                }
+            }
+            started[startedCount++] = id;
+        }
+
+        /**
+         * Ends a session; the caller holds its lock.
+         */
+        private void endSession(int id, GameSession session) {
+            table.remove(id);
+            journal(id, session, GameProtocol.END, 0);
+            archive(session);
+            sessions.decrementAndGet();
+        }
+
+        private void badRequest(int id) {
+            GameProtocol.putReply(out, id, GameProtocol.BAD_REQUEST, null);
+            closing = true;
+        }
+
+        /**
+         * Closes the connection and, without a journal, ends the sessions it started.
+         */
+        void close(SelectionKey key) {
+            key.cancel();
+            for (int i = 0; i < startedCount; i++) {
+                GameSession session = table.get(started[i]);
+                if (session != null) {
+                    synchronized (session) {
+                        if (table.get(started[i]) == session) {
+                            endSession(started[i], session);
+                        }
+                    }
+                }
+            }
+            startedCount = 0;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //nothing more to do
+            }
+        }
+    }
+
+    /**
+     * Runs a server on the loopback address until the process is stopped.
+     * @param args the port (default DEFAULT_PORT), the number of threads (default all processors), the archive
+     *             the games are added to (default none) and the directory of the journal (default none)
+     * @throws IOException if the server can't be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path archive = args.length > 2 && !args[2].equals("none") ? Paths.get(args[2]) : null;
+        Path journal = args.length > 3 ? Paths.get(args[3]) : null;
+        EngineMetrics.register();
+        GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads,
+                DEFAULT_MAX_SESSIONS, archive, journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Server not closed: " + e.getMessage());
+            }
+        }));
+        System.out.println("Serving Mancala on port " + server.getPort() + " with " + threads + " threads"
+                + (journal == null ? "" : ", " + server.getSessions() + " sessions recovered"));
+    }
+}
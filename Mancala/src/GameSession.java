@@ -0,0 +1,331 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A game with the rules of MancalaGame, whose turn it is and how many moves each player may still undo, kept in
+ * as little memory as possible so that a GameServer can hold hundreds of thousands of them. The board is packed
+ * the way MancalaEngine packs it, two longs, and the moves are kept two a byte the way GameRecord encodes them;
+ * there is no model, listener or timeline. The stones are moved by a MancalaEngine that the caller lends to each
+ * call, so one engine serves all the sessions of a thread.
+ *
+ * Only the moves are kept, not the positions, so an undo replays the game from the start up to the ply before.
+ * That takes a microsecond or two for a whole game and leaves each session at about a hundred bytes. A move that
+ * is not the one last undone drops the moves that could be redone, as GameTimeline would start a variation.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameSession {
+
+    private static final int INITIAL_CAPACITY = 16;    // bytes of moves, 32 plies
+
+    private long lowPits;
+    private long highPits;
+    private byte stonesPerPit;
+    private byte currentTurn;
+    private byte winner;
+    private byte undoMoveA;
+    private byte undoMoveB;
+    private int ply;
+    private int lineLength;         // moves that can be redone end here
+    private byte[] moves = new byte[INITIAL_CAPACITY];
+    private long lastRecord = -1;   // sequence of the last GameJournal record of this session
+
+    /**
+     * Constructs a session and starts a game.
+     * @param stonesPerPit the number of stones each pit initially contains, 1 - GameRecord.MAX_STONES_PER_PIT
+     */
+    public GameSession(int stonesPerPit) {
+        newGame(stonesPerPit);
+    }
+
+    /**
+     * Starts a new game: fills the pits, gives both players their undos back and lets A move first.
+     * @param stonesPerPit the number of stones each pit initially contains, 1 - GameRecord.MAX_STONES_PER_PIT
+     */
+    public void newGame(int stonesPerPit) {
+        if (stonesPerPit < 1 || stonesPerPit > GameRecord.MAX_STONES_PER_PIT) {
+            throw new IllegalArgumentException("Stones must be 1 - " + GameRecord.MAX_STONES_PER_PIT + ": "
+                    + stonesPerPit);
+        }
+        long side = 0;
+        for (int pit = 0; pit < 6; pit++) {
+            side |= (long) stonesPerPit << (8 * pit);
+        }
+        lowPits = side;
+        highPits = side;
+        this.stonesPerPit = (byte) stonesPerPit;
+        currentTurn = MancalaGame.A_TURN;
+        winner = 0;
+        undoMoveA = MancalaGame.MAX_NUM_OF_UNDOS;
+        undoMoveB = MancalaGame.MAX_NUM_OF_UNDOS;
+        ply = 0;
+        lineLength = 0;
+    }
+
+    /**
+     * Plays a pit for the player whose turn it is, then finishes the game if one side is empty.
+     * @param pitNumber the pit number, 0 - 5 for A1 - A6 and 6 - 11 for B1 - B6
+     * @param engine an engine to move the stones with
+     * @return MancalaGame.PLAYED, EXTRA_TURN, WRONG_TURN, EMPTY_PIT or CANNOT_PLAY as MancalaGame.play returns
+     *         them
+     */
+    public int play(int pitNumber, MancalaEngine engine) {
+        if (pitNumber < 0 || pitNumber >= MancalaEngine.NUMBER_OF_MOVES) {
+            throw new IllegalArgumentException("Pit number must be 0 - 11: " + pitNumber);
+        }
+        if ((pitNumber < 6 ? MancalaGame.A_TURN : MancalaGame.B_TURN) != currentTurn) {
+            return MancalaGame.WRONG_TURN;
+        }
+        load(engine);
+        if (engine.getAmountInPit(pitNumber < 6 ? pitNumber : pitNumber + 1) == 0) {
+            return MancalaGame.EMPTY_PIT;
+        }
+        if (!engine.isLegalMove(pitNumber)) {
+            return MancalaGame.CANNOT_PLAY;
+        }
+        if (ply == GameRecord.MAX_PLIES) {
+            throw new IllegalStateException("A game holds at most " + GameRecord.MAX_PLIES + " moves");
+        }
+        int player = currentTurn;
+        move(engine, pitNumber);
+        boolean mancalaHasReached = engine.isLastStoneOnBoard();
+        //the opponent gets their undos back
+        if (player == MancalaGame.A_TURN) {
+            undoMoveB = MancalaGame.MAX_NUM_OF_UNDOS;
+        } else {
+            undoMoveA = MancalaGame.MAX_NUM_OF_UNDOS;
+        }
+        if (ply >= lineLength || getMove(ply) != pitNumber) {
+            setMove(ply, pitNumber);
+            lineLength = ply + 1;
+        }
+        ply++;
+        save(engine);
+        EngineMetrics.moveApplied();
+        return mancalaHasReached ? MancalaGame.EXTRA_TURN : MancalaGame.PLAYED;
+    }
+
+    /**
+     * Takes back the last move, if the player who made it has undos left, and gives the turn back to them.
+     * @param engine an engine to replay the game with
+     * @return the number of undos the player has left, or MancalaGame.NOTHING_TO_UNDO or NO_UNDOS_LEFT
+     */
+    public int undo(MancalaEngine engine) {
+        if (ply == 0) {
+            return MancalaGame.NOTHING_TO_UNDO;
+        }
+        int player = getMove(ply - 1) < 6 ? MancalaGame.A_TURN : MancalaGame.B_TURN;
+        if (getUndosLeft(player) <= 0) {
+            return MancalaGame.NO_UNDOS_LEFT;
+        }
+        addUndos(player, -1);
+        ply--;
+        engine.initializeTheBoard(stonesPerPit);
+        for (int p = 0; p < ply; p++) {
+            move(engine, getMove(p));
+        }
+        save(engine);
+        return getUndosLeft(player);
+    }
+
+    /**
+     * Plays again the move last undone, giving its player the undo back.
+     * @param engine an engine to move the stones with
+     * @return the number of undos the player has left, or MancalaGame.NOTHING_TO_REDO
+     */
+    public int redo(MancalaEngine engine) {
+        if (ply == lineLength) {
+            return MancalaGame.NOTHING_TO_REDO;
+        }
+        int player = currentTurn;
+        addUndos(player, 1);
+        load(engine);
+        move(engine, getMove(ply));
+        ply++;
+        save(engine);
+        return getUndosLeft(player);
+    }
+
+    private void addUndos(int player, int undos) {
+        if (player == MancalaGame.A_TURN) {
+            undoMoveA = (byte) Math.min(MancalaGame.MAX_NUM_OF_UNDOS, undoMoveA + undos);
+        } else {
+            undoMoveB = (byte) Math.min(MancalaGame.MAX_NUM_OF_UNDOS, undoMoveB + undos);
+        }
+    }
+
+    /**
+     * Moves the stones of a pit on the engine and sweeps the board if that ends the game.
+     */
+    private void move(MancalaEngine engine, int pitNumber) {
+        engine.move(pitNumber);
+        int gameOverFlag = engine.checkIfGameOver();
+        if (gameOverFlag != 0) {
+            engine.checkWinner(gameOverFlag);
+        }
+    }
+
+    private void load(MancalaEngine engine) {
+        engine.setPackedBoard(lowPits, highPits, currentTurn);
+    }
+
+    private void save(MancalaEngine engine) {
+        lowPits = engine.getLowPits();
+        highPits = engine.getHighPits();
+        currentTurn = (byte) engine.getCurrentTurn();
+        //the stones left are already in the Mancalas at the end of a game
+        if (engine.checkIfGameOver() == 0) {
+            winner = 0;
+        } else {
+            int mancalaA = engine.getAmountInPit(MancalaEngine.MANCALA_A);
+            int mancalaB = engine.getAmountInPit(MancalaEngine.MANCALA_B);
+            winner = (byte) (mancalaA > mancalaB ? 1 : mancalaA < mancalaB ? 2 : 3);
+        }
+    }
+
+    private int getMove(int ply) {
+        return moves[ply / 2] >>> 4 * (ply % 2) & 0xF;
+    }
+
+    private void setMove(int ply, int pitNumber) {
+        if (ply / 2 == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        }
+        int shift = 4 * (ply % 2);
+        moves[ply / 2] = (byte) (moves[ply / 2] & ~(0xF << shift) | pitNumber << shift);
+    }
+
+    /**
+     * Gets the number of stones in a pit.
+     * @param pitNumber the position in the board array, 0 - 13
+     * @return the number of stones
+     */
+    public int getAmountInPit(int pitNumber) {
+        return pitNumber < 7 ? (int) (lowPits >>> (8 * pitNumber)) & 0xFF
+                : (int) (highPits >>> (8 * (pitNumber - 7))) & 0xFF;
+    }
+
+    /**
+     * Gets the board packed the way MancalaEngine.getLowPits packs it.
+     * @return pits 0 - 6, one byte each
+     */
+    public long getLowPits() {
+        return lowPits;
+    }
+
+    /**
+     * Gets the board packed the way MancalaEngine.getHighPits packs it.
+     * @return pits 7 - 13, one byte each
+     */
+    public long getHighPits() {
+        return highPits;
+    }
+
+    public int getStonesPerPit() {
+        return stonesPerPit;
+    }
+
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    /**
+     * Gets the winner once the game is over.
+     * @return 0 if the game is not over, 1 if the winner is A, 2 if the winner is B or 3 for a tie
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isGameOver() {
+        return winner != 0;
+    }
+
+    /**
+     * Gets the number of moves a player may still undo before the opponent moves.
+     * @param player MancalaGame.A_TURN or B_TURN
+     * @return the number of undos left
+     */
+    public int getUndosLeft(int player) {
+        return player == MancalaGame.A_TURN ? undoMoveA : undoMoveB;
+    }
+
+    /**
+     * Gets the number of moves played to reach the board.
+     * @return the ply, 0 at the start of the game
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    long getLastRecord() {
+        return lastRecord;
+    }
+
+    void setLastRecord(long sequence) {
+        lastRecord = sequence;
+    }
+
+    /**
+     * Writes the whole state of the session, moves that can be redone included, for GameJournal snapshots.
+     * @param out the output
+     * @throws IOException if the output fails
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(stonesPerPit);
+        out.writeLong(lowPits);
+        out.writeLong(highPits);
+        out.writeByte(currentTurn);
+        out.writeByte(winner);
+        out.writeByte(undoMoveA);
+        out.writeByte(undoMoveB);
+        out.writeShort(ply);
+        out.writeShort(lineLength);
+        out.write(moves, 0, (lineLength + 1) / 2);
+    }
+
+    /**
+     * Reads a session written by write.
+     * @param in the input
+     * @return the session
+     * @throws IOException if the input fails or doesn't hold a session
+     */
+    static GameSession read(DataInput in) throws IOException {
+        int stonesPerPit = in.readByte();
+        if (stonesPerPit < 1 || stonesPerPit > GameRecord.MAX_STONES_PER_PIT) {
+            throw new IOException("Not a game session");
+        }
+        GameSession session = new GameSession(stonesPerPit);
+        session.lowPits = in.readLong();
+        session.highPits = in.readLong();
+        session.currentTurn = in.readByte();
+        session.winner = in.readByte();
+        session.undoMoveA = in.readByte();
+        session.undoMoveB = in.readByte();
+        session.ply = in.readUnsignedShort();
+        session.lineLength = in.readUnsignedShort();
+        if (session.ply > session.lineLength) {
+            throw new IOException("Not a game session");
+        }
+        session.moves = new byte[Math.max(INITIAL_CAPACITY, (session.lineLength + 2) / 2)];
+        in.readFully(session.moves, 0, (session.lineLength + 1) / 2);
+        return session;
+    }
+
+    /**
+     * Records the game from the start up to the current ply, and the result there.
+     * @param record the record that receives the game
+     */
+    public void getRecord(GameRecord record) {
+        record.reset(stonesPerPit);
+        for (int p = 0; p < ply; p++) {
+            record.addMove(getMove(p));
+        }
+        record.setResult(winner, getAmountInPit(MancalaEngine.MANCALA_A), getAmountInPit(MancalaEngine.MANCALA_B));
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.Arrays;
+
+/**
+ * Every position of a game, with the variations played after going back, so that a player can undo, redo or go
+ * to any ply in constant time. MancalaGame decides who may undo how much; this class only records positions.
+ *
+ * The positions form a tree of nodes kept in parallel primitive arrays. Each node holds its board packed the way
+ * MancalaEngine packs it, one byte per pit in two longs, with the pit played to reach it in the spare top byte of
+ * the first long and the player to move in that of the second, plus its first child, its next sibling and the
+ * child last visited, so that finding a child walks only the moves played from that node, six at most. That is
+ * 28 bytes a position, however long the session, and no objects. The line is the path
+ * from the start to the end of the variation being followed, one node per ply, so undo, redo and going to a ply
+ * just move along it. Playing a move other than the next one of the line starts a variation: the line is cut
+ * after the current ply and the new node added to it. Playing a move that was played from here before goes back
+ * into that variation instead of recording the position again.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class GameTimeline {
+
+    public static final int NO_MOVE = -1;
+    private static final int NO_NODE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int PITS_PER_LONG = 7;
+    private static final long PITS = 0x00FFFFFFFFFFFFFFL;    // the 7 pit bytes of a packed long
+    private static final int INFO_SHIFT = 56;                // the spare byte
+    private static final long MOVE_BITS = 0x0FL;             // in the spare byte of low: the pit played, 15 if none
+
+    //Nodes, by index; node 0 is the start of the game
+    private long[] low = new long[INITIAL_CAPACITY];
+    private long[] high = new long[INITIAL_CAPACITY];
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+    private int[] lastChild = new int[INITIAL_CAPACITY];
+    private int size;
+
+    //The line being followed, line[ply] being the node at that ply
+    private int[] line = new int[INITIAL_CAPACITY];
+    private int lineLength;
+    private int ply;
+
+    /**
+     * Constructs a timeline that starts from a position.
+     * @param board the number of stones in each of the 14 pits
+     * @param turn the player to move, MancalaGame.A_TURN or B_TURN
+     */
+    public GameTimeline(int[] board, int turn) {
+        reset(board, turn);
+    }
+
+    /**
+     * Forgets every position and starts again from a position.
+     * @param board the number of stones in each of the 14 pits
+     * @param turn the player to move, MancalaGame.A_TURN or B_TURN
+     */
+    public void reset(int[] board, int turn) {
+        size = 0;
+        int start = addNode(NO_NODE, NO_MOVE, board, turn);
+        line[0] = start;
+        lineLength = 1;
+        ply = 0;
+    }
+
+    /**
+     * Records a move played from the current ply and goes to the position after it.
+     * @param pitNumber the pit played, 0 - 11
+     * @param board the board after the move
+     * @param turn the player to move after the move
+     */
+    public void play(int pitNumber, int[] board, int turn) {
+        int from = line[ply];
+        int child = NO_NODE;
+        if (ply + 1 < lineLength && getMove(line[ply + 1]) == pitNumber) {
+            child = line[ply + 1];
+        } else if (lastChild[from] != NO_NODE) {
+            child = findChild(from, pitNumber);
+        }
+
+        if (child == NO_NODE) {
+            child = addNode(from, pitNumber, board, turn);
+        }
+        if (ply + 1 >= lineLength || line[ply + 1] != child) {
+            lineLength = ply + 1;
+            append(child);
+            //follow the variation down to where it was left
+            for (int next = lastChild[child]; next != NO_NODE; next = lastChild[next]) {
+                append(next);
+            }
+        }
+        lastChild[from] = child;
+        ply++;
+    }
+
+    private int findChild(int node, int pitNumber) {
+        if (lastChild[node] != NO_NODE && getMove(lastChild[node]) == pitNumber) {
+            return lastChild[node];
+        }
+        for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+            if (getMove(child) == pitNumber) {
+                return child;
+            }
+        }
+        return NO_NODE;
+    }
+
+    public boolean canUndo() {
+        return ply > 0;
+    }
+
+    public boolean canRedo() {
+        return ply + 1 < lineLength;
+    }
+
+    /**
+     * Goes back one ply.
+     * @throws IllegalStateException if the current ply is the start of the game
+     */
+    public void undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        ply--;
+    }
+
+    /**
+     * Goes forward one ply along the line.
+     * @throws IllegalStateException if the current ply is the end of the line
+     */
+    public void redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        ply++;
+    }
+
+    /**
+     * Goes to a ply of the line.
+     * @param ply 0 - getLineLength() - 1
+     */
+    public void goToPly(int ply) {
+        if (ply < 0 || ply >= lineLength) {
+            throw new IllegalArgumentException("Ply must be 0 - " + (lineLength - 1) + ": " + ply);
+        }
+        this.ply = ply;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets the number of positions in the line, the start included.
+     * @return the last ply that can be reached with redo, plus one
+     */
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    /**
+     * Gets the number of positions recorded in all variations.
+     * @return the number of positions, the start included
+     */
+    public int getPositions() {
+        return size;
+    }
+
+    /**
+     * Gets the board at the current ply.
+     * @param board array of at least 14 elements that receives the number of stones in each pit
+     * @return the array passed in
+     */
+    public int[] getBoard(int[] board) {
+        return getBoard(ply, board);
+    }
+
+    /**
+     * Gets the board at a ply of the line.
+     * @param ply 0 - getLineLength() - 1
+     * @param board array of at least 14 elements that receives the number of stones in each pit
+     * @return the array passed in
+     */
+    public int[] getBoard(int ply, int[] board) {
+        int node = line[ply];
+        for (int i = 0; i < PITS_PER_LONG; i++) {
+            board[i] = (int) (low[node] >>> (8 * i)) & 0xFF;
+            board[i + PITS_PER_LONG] = (int) (high[node] >>> (8 * i)) & 0xFF;
+        }
+        return board;
+    }
+
+    /**
+     * Loads the position at the current ply into an engine, for analysis.
+     * @param engine the engine that receives the board and the player to move
+     */
+    public void getPosition(MancalaEngine engine) {
+        int node = line[ply];
+        engine.setPackedBoard(low[node] & PITS, high[node] & PITS, getTurn(ply));
+    }
+
+    public int getTurn() {
+        return getTurn(ply);
+    }
+
+    /**
+     * Gets the player to move at a ply of the line.
+     * @param ply 0 - getLineLength() - 1
+     * @return MancalaGame.A_TURN or B_TURN
+     */
+    public int getTurn(int ply) {
+        return (int) (high[line[ply]] >>> INFO_SHIFT);
+    }
+
+    /**
+     * Gets the move that led to a ply of the line.
+     * @param ply 1 - getLineLength() - 1
+     * @return the pit played, 0 - 11, or NO_MOVE for ply 0
+     */
+    public int getMoveTo(int ply) {
+        return getMove(line[ply]);
+    }
+
+    /**
+     * Gets the moves that were played from the current ply, in every variation.
+     * @return the pits, the one the line follows first
+     */
+    public int[] getVariations() {
+        int node = line[ply];
+        if (lastChild[node] == NO_NODE) {
+            return new int[0];
+        }
+        int[] moves = { getMove(lastChild[node]) };
+        for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+            if (child != lastChild[node]) {
+                moves = Arrays.copyOf(moves, moves.length + 1);
+                moves[moves.length - 1] = getMove(child);
+            }
+        }
+        return moves;
+    }
+
+    private int getMove(int node) {
+        int move = (int) (low[node] >>> INFO_SHIFT & MOVE_BITS);
+        return move == MOVE_BITS ? NO_MOVE : move;
+    }
+
+    private int addNode(int from, int pitNumber, int[] board, int turn) {
+        if (size == low.length) {
+            int capacity = 2 * size;
+            low = Arrays.copyOf(low, capacity);
+            high = Arrays.copyOf(high, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            lastChild = Arrays.copyOf(lastChild, capacity);
+        }
+        long lowPits = 0, highPits = 0;
+        for (int i = 0; i < PITS_PER_LONG; i++) {
+            lowPits |= (long) (board[i] & 0xFF) << (8 * i);
+            highPits |= (long) (board[i + PITS_PER_LONG] & 0xFF) << (8 * i);
+        }
+        long move = pitNumber == NO_MOVE ? MOVE_BITS : pitNumber;
+        low[size] = lowPits | move << INFO_SHIFT;
+        high[size] = highPits | (long) turn << INFO_SHIFT;
+        firstChild[size] = NO_NODE;
+        lastChild[size] = NO_NODE;
+        nextSibling[size] = NO_NODE;
+        //a new variation goes after the older ones, a walk of six children at most
+        if (from != NO_NODE && firstChild[from] == NO_NODE) {
+            firstChild[from] = size;
+        } else if (from != NO_NODE) {
+            int sibling = firstChild[from];
+            while (nextSibling[sibling] != NO_NODE) {
+                sibling = nextSibling[sibling];
+            }
+            nextSibling[sibling] = size;
+        }
+        return size++;
+    }
+
+    private void append(int node) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, 2 * lineLength);
+        }
+        line[lineLength++] = node;
+    }
+}
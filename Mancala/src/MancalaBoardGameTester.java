@@ -12,6 +12,7 @@
  */
 public class MancalaBoardGameTester {
     public static void main(String[] args) {
+        EngineMetrics.register();
         MancalaBoardModel mancalaBoard = new MancalaBoardModel();
         MancalaBoardView view = new MancalaBoardView(mancalaBoard);
         mancalaBoard.attach(view);
@@ -1,12 +1,19 @@
-import java.util.ArrayList;
-import javax.swing.event.ChangeEvent;
-import javax.swing.event.ChangeListener;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class serves as the model of the MVC. This model contains the data for the stones
- * in a particular pit at the moment, which is held in 2 arrays. One array contains the current state of the board while the other contains the previous
- * state of the board to allow a user a certain amount of undo moves per turn.  An ArrayList is used to hold the ChangeListeners that perform an
+ * in a particular pit at the moment, which is held in an immutable BoardSnapshot. The snapshot contains the current state of the board and the previous
+ * state of the board to allow a user a certain amount of undo moves per turn.  A CopyOnWriteArrayList is used to hold the MancalaListeners that perform an
  * action once the model notifies them of changes. This class also contains accessors and mutator methods for the data and states of the game.
+ *
+ * The model may be shared by threads without locks. Every change builds a new snapshot from the one it read and
+ * publishes it with a compare-and-set, trying again if another thread changed the model first, so a reader sees
+ * either the board before a move or the board after it, never a move half done. getSnapshot gives a reader a
+ * board it can keep reading with no copy. Each call is atomic on its own; a sequence of calls, like a move and
+ * then checkWinner, is not, and MancalaGame still makes its calls from one thread. Listeners are told of a
+ * change by the thread that made it, so when several threads change the model a listener may hear of the
+ * changes in another order than they were made; each event still says exactly what its own change did.
  * @team Sharks
  *  @author Aria Rostami, Aryan Vaid, Hieu Hoang
  * @version 1.0
@@ -15,10 +22,8 @@ import javax.swing.event.ChangeListener;
 public class MancalaBoardModel {
 
 
-    private int[] previousBoard;
-    private int[] currentBoard;
-    private boolean lastStoneOnBoard;
-    private ArrayList<ChangeListener> arrayOfListeners; //will only contain View Listener
+    private final AtomicReference<BoardSnapshot> state = new AtomicReference<>();
+    private final CopyOnWriteArrayList<MancalaListener> arrayOfListeners = new CopyOnWriteArrayList<>();
     private int numberOfUndos;
     private static final int NUMBER_OF_PITS = 14;
 
@@ -31,19 +36,18 @@ public class MancalaBoardModel {
      * Constructs an empty MancalaBoardModel.
      */
     public MancalaBoardModel() {
-        currentBoard = new int[NUMBER_OF_PITS];
-        previousBoard = currentBoard.clone(); // or null?
-        lastStoneOnBoard = false;
-        arrayOfListeners = new ArrayList<>();
+        int[] currentBoard = new int[NUMBER_OF_PITS];
+        state.set(BoardSnapshot.of(currentBoard, currentBoard, false));
         numberOfUndos = 0;
     }
 
     /**
      * Sets the number of stones in each pit in the mancala board, excluding the mancalas.
-     * @param stonesPerPit the number of stones in each pit
+     * @param stonesPerPit the number of stones in each pit, 0 - 21
      */
     public void initializeTheBoard(int stonesPerPit) {
-
+        checkStones(stonesPerPit);
+        int[] currentBoard = new int[NUMBER_OF_PITS];
         for (int i = 0; i < currentBoard.length; i++) {
             if (i == MANCALA_A || i == MANCALA_B) {
                 currentBoard[i] = 0;
@@ -52,15 +56,24 @@ public class MancalaBoardModel {
             }
         }
 
-        previousBoard = currentBoard.clone();
+        BoardSnapshot before = state.get();
+        state.set(BoardSnapshot.of(currentBoard, currentBoard, before.isLastStoneOnBoard()));
+    }
+
+    private static void checkStones(int stonesPerPit) {
+        if (stonesPerPit < 0 || 12 * stonesPerPit > BoardSnapshot.MAX_STONES) {
+            throw new IllegalArgumentException("Stones must be 0 - " + BoardSnapshot.MAX_STONES / 12 + ": "
+                    + stonesPerPit);
+        }
     }
 
 
     /**
      * Constructs a Mancala Board with specified number of stones in each pit, and 0 stones in Mancalas
-     * @param stonesPerPit the number of stones each pit initially contains
+     * @param stonesPerPit the number of stones each pit initially contains, 0 - 21
      */
     public MancalaBoardModel(int stonesPerPit) {
+        checkStones(stonesPerPit);
 
         /*
          * index 0 - 6: player A, index 7 - 13: B
@@ -70,12 +83,10 @@ public class MancalaBoardModel {
          * B1 - B6 - Mancala B 
          * */
 
-        currentBoard = new int[] { stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, 0,
+        int[] currentBoard = new int[] { stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, 0,
                 stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, stonesPerPit, 0 };
 
-        previousBoard = currentBoard.clone();
-        lastStoneOnBoard = false;
-        arrayOfListeners = new ArrayList<>();
+        state.set(BoardSnapshot.of(currentBoard, currentBoard, false));
         numberOfUndos = 0;
     }
 
@@ -84,7 +95,7 @@ public class MancalaBoardModel {
      * @return the current board
      */
     public int[] getCurrentBoard() {
-        return currentBoard.clone();
+        return state.get().getBoard();
     }
 
     /**
@@ -92,7 +103,15 @@ public class MancalaBoardModel {
      * @return the previous board
      */
     public int[] getPreviousBoard() {
-        return previousBoard.clone();
+        return state.get().getPreviousBoard();
+    }
+
+    /**
+     * Gets the state of the model, which stays as it is however the model changes afterwards.
+     * @return the current snapshot
+     */
+    public BoardSnapshot getSnapshot() {
+        return state.get();
     }
     /**
      * Gets the number of stones in specified pit number.
@@ -100,7 +119,7 @@ public class MancalaBoardModel {
      * @return the number of stones in the specified pit number
      */
     public int getAmountInPit(int pitNumber) {
-        return currentBoard[pitNumber];
+        return state.get().getAmountInPit(pitNumber);
     }
 
     /**
@@ -109,7 +128,7 @@ public class MancalaBoardModel {
      */
     public boolean isLastStoneOnBoard() //we will use this in Control to prompt player to go again
     {
-        return lastStoneOnBoard;
+        return state.get().isLastStoneOnBoard();
     }
 
 
@@ -124,17 +143,19 @@ public class MancalaBoardModel {
      */
     public int checkWinner(int emptyPitFlag){
 
+        BoardSnapshot board;
         if (emptyPitFlag == 1){ //only all A pits are empty
-            moveStonesToMancala(7, MANCALA_B); //move leftover stones to Mancala B
+            board = sweep(7, MANCALA_B); //move leftover stones to Mancala B
         }
         else if (emptyPitFlag == 2){ //only all B pits are empty
-            moveStonesToMancala(0, MANCALA_A); //move leftover stones to Mancala A
+            board = sweep(0, MANCALA_A); //move leftover stones to Mancala A
         }
+        else board = state.get();
 
         //Compare number of stones in two mancalas
-        if (currentBoard[MANCALA_A] > currentBoard[MANCALA_B])
+        if (board.getAmountInPit(MANCALA_A) > board.getAmountInPit(MANCALA_B))
             return 1;
-        else if (currentBoard[MANCALA_A] < currentBoard[MANCALA_B])
+        else if (board.getAmountInPit(MANCALA_A) < board.getAmountInPit(MANCALA_B))
             return 2;
         else return 3;
     }
@@ -147,34 +168,9 @@ public class MancalaBoardModel {
      *          2 if game is over and only B pits are empty
      */
     public int checkIfGameOver() {
-
-        boolean mancala_A_Empty = false, mancala_B_Empty = false;
-
-        //Check if all A's pits are empty
-        for (int pitA = 0; pitA < MANCALA_A; pitA++){
-            if (currentBoard[pitA] != 0){
-                mancala_A_Empty = false;
-                break;
-            } else mancala_A_Empty = true;
-        }
-
-        //Check if all B's pits are empty
-        for (int pitB = 7; pitB < MANCALA_B; pitB++){
-            if (currentBoard[pitB] != 0){
-                mancala_B_Empty = false;
-                break;
-
-            } else mancala_B_Empty = true;
-        }
-        return mancala_A_Empty? 1: (mancala_B_Empty? 2 : 0);
-//        if (mancala_A_Empty) return 1;
-//        else if (mancala_B_Empty) return 2;
-
-//        return 0;
+        return state.get().checkIfGameOver();
     }
 
-
-
     /**
      * Sums up the remaining stones on the board and adds that to the mancala specified by the mancalaPos, 
      * then notifies the listeners of the change in the model's state.
@@ -182,13 +178,24 @@ public class MancalaBoardModel {
      * @param mancalaPos the position of the mancala that will receive the rest of the stones.
      */
     public void moveStonesToMancala(int pitPos, int mancalaPos){
-        for (int i = pitPos; i < mancalaPos; i++){
-            currentBoard[mancalaPos] += currentBoard[i];
-            currentBoard[i] = 0;
-        }
-        for (ChangeListener l : arrayOfListeners) {
-            l.stateChanged(new ChangeEvent(this));
-        }
+        sweep(pitPos, mancalaPos);
+    }
+
+    private BoardSnapshot sweep(int pitPos, int mancalaPos) {
+        BoardSnapshot before;
+        BoardSnapshot after;
+        do {
+            before = state.get();
+            int[] currentBoard = before.getBoard();
+            for (int i = pitPos; i < mancalaPos; i++){
+                currentBoard[mancalaPos] += currentBoard[i];
+                currentBoard[i] = 0;
+            }
+            after = BoardSnapshot.of(currentBoard, before.getPreviousLowPits(), before.getPreviousHighPits(),
+                    before.isLastStoneOnBoard());
+        } while (!state.compareAndSet(before, after));
+        notifyListeners(BoardChangeEvent.END_OF_GAME, -1, before, after);
+        return after;
     }
 
     /**
@@ -198,10 +205,54 @@ public class MancalaBoardModel {
      * Second exception is when a player's last stone dropped is in an empty pit on their side of the board.
      * This results in the player getting to add the stones in the last pit and the stones in the pit across from that on
      * the opponent's side into their own Mancala.
-     * @param pitNumber the pit number chosen by the user
+     * @param pitNumber the pit number chosen by the user, 0 - 11
      */
     public void move(int pitNumber) { //pit that is pressed by user
+        checkPitNumber(pitNumber);
+        while (true) {
+            BoardSnapshot before = state.get();
+            BoardSnapshot after = play(before, pitNumber);
+            if (after == null) {
+                return;
+            }
+            if (state.compareAndSet(before, after)) {
+                EngineMetrics.moveApplied();
+                //to alert listeners of change
+                notifyListeners(BoardChangeEvent.MOVE, pitNumber, before, after);
+                return;
+            }
+        }
+    }
 
+    /**
+     * Plays a pit only if the model is still in a given state, as when a move was chosen by looking at a snapshot
+     * and another thread may have changed the board since.
+     * @param expected the snapshot the move was chosen on
+     * @param pitNumber the pit number, 0 - 5 for A1 - A6 and 6 - 11 for B1 - B6
+     * @return true if the move was made, false if the model is no longer in the expected state or the pit is empty
+     */
+    public boolean moveIfCurrent(BoardSnapshot expected, int pitNumber) {
+        checkPitNumber(pitNumber);
+        BoardSnapshot after = play(expected, pitNumber);
+        if (after == null || !state.compareAndSet(expected, after)) {
+            return false;
+        }
+        EngineMetrics.moveApplied();
+        notifyListeners(BoardChangeEvent.MOVE, pitNumber, expected, after);
+        return true;
+    }
+
+    private static void checkPitNumber(int pitNumber) {
+        if (pitNumber < 0 || pitNumber >= MancalaEngine.NUMBER_OF_MOVES) {
+            throw new IllegalArgumentException("Pit number must be 0 - 11: " + pitNumber);
+        }
+    }
+
+    /**
+     * Makes the snapshot of a move, leaving the model as it is.
+     * @return the snapshot after the move, or null if the pit is empty
+     */
+    private static BoardSnapshot play(BoardSnapshot before, int pitNumber) {
         boolean turnA = true;
         int ownPitNumber = pitNumber;
         if(pitNumber > 5) {
@@ -209,9 +260,9 @@ public class MancalaBoardModel {
             pitNumber = pitNumber +1;
             ownPitNumber = pitNumber - 7;
         }
-        if(currentBoard[pitNumber] != 0) {
-            previousBoard = currentBoard.clone(); //save board prior to move to allow undo option
-            lastStoneOnBoard = false;
+        if(before.getAmountInPit(pitNumber) != 0) {
+            int[] currentBoard = before.getBoard(); //the board prior to move stays in before to allow undo option
+            boolean lastStoneOnBoard = false;
             //save the number of stones in the pit number in variable stoneCount
             int stoneCount = currentBoard[pitNumber];
             int oPitNumber = pitNumber;
@@ -240,14 +291,14 @@ public class MancalaBoardModel {
 		
 			/*A's last stone dropped lands in an empty pit on A's side, so A gets to add the stones in that last pit and the stones 
 			on the opponent's side that is across from that last pit, into A's Mancala.*/
-            if(turnA && endingPit <= 5 && previousBoard[endingPit] == 0 && !opponMancReached) {
+            if(turnA && endingPit <= 5 && before.getAmountInPit(endingPit) == 0 && !opponMancReached) {
                 currentBoard[endingPit] = 0;
                 int opponStones = currentBoard[endingPit + (2*(6-endingPit))];
                 currentBoard[MANCALA_A] = currentBoard[MANCALA_A] + opponStones + 1;
                 currentBoard[endingPit + (2*(6-endingPit))] = 0;
             }
             /*This time, B's last stone dropped lands in an empty pit on B's side, the same rule applies here.*/
-            if(!turnA && endingPit > 6 && endingPit < 13 && previousBoard[endingPit] == 0 && !opponMancReached) {
+            if(!turnA && endingPit > 6 && endingPit < 13 && before.getAmountInPit(endingPit) == 0 && !opponMancReached) {
                 currentBoard[endingPit] = 0;
                 int opponStones = currentBoard[endingPit - (2*(endingPit - 6))];
                 currentBoard[MANCALA_B] = currentBoard[MANCALA_B] + opponStones + 1;
@@ -256,14 +307,14 @@ public class MancalaBoardModel {
 
             //When A passes through opponents side and reaches A's side with the last stone, will require at least 8 stones in the starting pit.
             if(turnA && opponMancReached) {
-                currentBoard[13] = previousBoard[13];
+                currentBoard[13] = before.getAmountInPit(13);
                 int nextPitToGetStone = ownPitNumber + stoneCount + 1;
                 if(nextPitToGetStone > 13) {
                     nextPitToGetStone = nextPitToGetStone - 14;
                 }
                 currentBoard[nextPitToGetStone] = currentBoard[nextPitToGetStone] + 1;
                 //When A passes through opponent's side and also lands in an empty pit
-                if(previousBoard[nextPitToGetStone] == 0) {
+                if(before.getAmountInPit(nextPitToGetStone) == 0) {
                     currentBoard[nextPitToGetStone] = 0;
                     int opponStones = currentBoard[nextPitToGetStone + (2*(6-nextPitToGetStone))];
                     currentBoard[MANCALA_A] = currentBoard[MANCALA_A] + opponStones + 1;
@@ -272,45 +323,105 @@ public class MancalaBoardModel {
             }
             //When B passes through opponents side and reaches B's side with the last stone
             if(!turnA && opponMancReached) {
-                currentBoard[6] = previousBoard[6];
+                currentBoard[6] = before.getAmountInPit(6);
                 int nextPitToGetStone = ownPitNumber + stoneCount + 1;
                 if(nextPitToGetStone > 13) {
                     nextPitToGetStone = nextPitToGetStone - 14;
                 }
                 currentBoard[nextPitToGetStone + 7] = currentBoard[nextPitToGetStone + 7] + 1;
                 //B passes through the opponent's side and also lands in an empty pit
-                if(previousBoard[nextPitToGetStone + 7] == 0) {
+                if(before.getAmountInPit(nextPitToGetStone + 7) == 0) {
                     currentBoard[nextPitToGetStone + 7] = 0;
                     int opponStones = currentBoard[nextPitToGetStone + 7 + (2*(6 - (nextPitToGetStone + 7)))];
                     currentBoard[MANCALA_B] = currentBoard[MANCALA_B] + opponStones + 1;
                     currentBoard[nextPitToGetStone + 7 + (2*(6 - (nextPitToGetStone + 7)))] = 0;
                 }
             }
-
-            //to alert listeners of change
-            for (ChangeListener l : arrayOfListeners) {
-                l.stateChanged(new ChangeEvent(this));
-            }
+            return BoardSnapshot.of(currentBoard, before.getLowPits(), before.getHighPits(), lastStoneOnBoard);
         }
+        return null;
+    }
+
+    /**
+     * Replaces the board, as when going back or forward in the timeline of a game, and notifies the listeners.
+     * The previous board becomes the same, so there is no move to undo with undoMove.
+     * @param board the number of stones in each of the 14 pits
+     * @param cause why the board changes, BoardChangeEvent.UNDO, REDO or JUMP
+     * @throws IllegalArgumentException if the board doesn't have 14 pits or holds more than 255 stones
+     */
+    public void setBoard(int[] board, int cause) {
+        BoardSnapshot.checkBoard(board);
+        BoardSnapshot after = BoardSnapshot.of(board, board, false);
+        BoardSnapshot before = state.getAndSet(after);
+        notifyListeners(cause, -1, before, after);
     }
 
     /**
      * Makes the current board equivalent to the previous board.
      */
     public void undoMove() {
-        currentBoard = previousBoard.clone();
+        BoardSnapshot before;
+        BoardSnapshot after;
+        do {
+            before = state.get();
+            after = new BoardSnapshot(before.getPreviousLowPits(), before.getPreviousHighPits(),
+                    before.getPreviousLowPits(), before.getPreviousHighPits(), before.isLastStoneOnBoard());
+        } while (!state.compareAndSet(before, after));
         //to alert listeners of change
-        for (ChangeListener l : arrayOfListeners) {
-            l.stateChanged(new ChangeEvent(this));
+        notifyListeners(BoardChangeEvent.UNDO, -1, before, after);
+    }
+
+    /**
+     * Tells the listeners which pits differ from the board before the change. One event is shared by all
+     * listeners, and none is made if there are no listeners. The time the listeners take goes to EngineMetrics
+     * and, if EngineMetrics.recordsEvents, to a NotificationEvent.
+     * @param cause what changed the board, as BoardChangeEvent.getCause
+     * @param pitNumber the pit played, or -1
+     * @param before the snapshot before the change
+     * @param after the snapshot the change published
+     */
+    private void notifyListeners(int cause, int pitNumber, BoardSnapshot before, BoardSnapshot after) {
+        if (arrayOfListeners.isEmpty()) {
+            return;
+        }
+        BoardChangeEvent event = BoardChangeEvent.between(this, cause, pitNumber, before, after);
+        NotificationEvent notification = EngineMetrics.recordsEvents() ? new NotificationEvent() : null;
+        boolean timed = EngineMetrics.timesNotifications();
+        long start = timed ? System.nanoTime() : 0;
+        if (notification != null) {
+            notification.begin();
+        }
+        int listeners = 0;
+        for (MancalaListener l : arrayOfListeners) {
+            l.boardChanged(event);
+            listeners++;
+        }
+        if (timed) {
+            EngineMetrics.notified(System.nanoTime() - start);
+        }
+        if (notification != null && notification.shouldCommit()) {
+            notification.cause = cause;
+            notification.pitNumber = pitNumber;
+            notification.listeners = listeners;
+            notification.commit();
         }
     }
 
     /*
-     * Adds a listener to ArrayList of listeners in the model.
+     * Adds a listener to the list of listeners in the model.
      */
-    public void attach(ChangeListener l) {
+    public void attach(MancalaListener l) {
 
         arrayOfListeners.add(l);
     }
 
+    /**
+     * Removes a listener, as when a spectator stops watching. A change being notified at the same time may still
+     * reach it.
+     * @param l the listener
+     */
+    public void detach(MancalaListener l) {
+        arrayOfListeners.remove(l);
+    }
+
 }
\ No newline at end of file
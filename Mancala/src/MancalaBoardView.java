@@ -2,45 +2,79 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.*;
-import javax.swing.event.ChangeEvent;
-import javax.swing.event.ChangeListener;
 
 /**
  * The View and Controller of the Game.
  *  @author Hieu Hoang
  */
 
-public class MancalaBoardView extends JFrame implements ChangeListener {
-
-    private static final int LAST_PIT_OF_A = 5;
-    private static final int LAST_PIT_OF_B = 11;
-    private static final int FIRST_PIT_OF_B = 6;
-
-    private static final int A_TURN = 0;
-    private static final int B_TURN = 1;
-
-    private static final int MAX_NUM_OF_UNDOS = 3;
+public class MancalaBoardView extends JFrame implements MancalaListener {
+
+    private static final int NO_COMPUTER = -1;
+    // milliseconds the computer thinks about a move, set with -Dmancala.computer.millis=MILLISECONDS
+    private static final long COMPUTER_TIME_BUDGET = Long.getLong("mancala.computer.millis", 100);
+    private static final int PROGRESS_MILLIS = 100;     // time between two messages while the computer thinks
+    // threads searching the computer's move, set with -Dmancala.search.threads=N
+    private static final int COMPUTER_THREADS = Integer.getInteger("mancala.search.threads",
+            Runtime.getRuntime().availableProcessors());
+    // endgame database of the computer player, set with -Dmancala.endgame=FILE
+    private static final String ENDGAME_FILE = System.getProperty("mancala.endgame", EndgameDatabase.DEFAULT_FILE);
+    // opening book of the computer player, set with -Dmancala.opening=FILE
+    private static final String OPENING_FILE = System.getProperty("mancala.opening", OpeningBook.DEFAULT_FILE);
+    // time between two stones of an animated sowing, set with -Dmancala.animation.millis=MILLISECONDS
+    private static final int ANIMATION_MILLIS = Integer.getInteger("mancala.animation.millis",
+            SowingAnimator.DEFAULT_MILLIS_PER_STONE);
+    // archive every finished game is added to, set with -Dmancala.archive=FILE
+    private static final String ARCHIVE_FILE = System.getProperty("mancala.archive");
+    // times clicks and reports stalls of the event dispatch thread, set with -Dmancala.latency=true
+    private static final boolean MONITOR_LATENCY = Boolean.getBoolean("mancala.latency");
+    // time an event may keep the event dispatch thread busy, set with -Dmancala.stall.millis=MILLISECONDS
+    private static final long STALL_MILLIS = Long.getLong("mancala.stall.millis",
+            ResponsivenessMonitor.DEFAULT_STALL_MILLIS);
 
     private MancalaBoardModel theModel;
+    private MancalaGame game;                   // turns and undos of the game on theModel
     private BoardOrientation boardOrientation;	// general strategy
     private ArrayList<JButton> pits = new ArrayList<>();// JButtons Representing Pits
 
-    private boolean mancalaHasReached = false;
-    private int undoMoveA;
-    private int undoMoveB;
-    private int currentTurn; //0 - A; 1 - B
+    private int computerTurn = NO_COMPUTER; //side played by the computer, if any
+
+    private ParallelSearch alphaBetaPlayer;     // created when the computer first plays with it
+    private MonteCarloSearch monteCarloPlayer;  // created when first chosen
+    private ComputerPlayer computerPlayer;      // null for the alpha-beta player until it is created
+    private final ExecutorService computerThread = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Mancala computer player");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean computerThinking;   // a move is being searched on computerThread
+    private int computerMoveId;         // the move being searched; results of other moves are dropped
+    private Timer progressTimer;        // shows the progress of the search
+    private JTextField textFieldMessage;
+    private EndgameDatabase endgame;    // shared by the computer player and the analyser
+    private boolean showAnalysis;       // the scores of the analyser are shown on the pits
+    private PositionAnalyser analyser;  // created with the board when the analysis is shown
+    private MancalaEngine analysedPosition;     // the position being analysed, null if none
+    private boolean analysisPending;    // updateAnalysis is queued
+    private JLabel analysisLabel;
+    private final ResponsivenessMonitor monitor = MONITOR_LATENCY ? ResponsivenessMonitor.install(STALL_MILLIS)
+            : null;         // null unless the latency is monitored
 
     /**
      * Constructs a MancalaBoardView with no model
      */
     public MancalaBoardView() {
         this.theModel = null;
-        undoMoveA = MAX_NUM_OF_UNDOS;
-        undoMoveB = MAX_NUM_OF_UNDOS;
-        currentTurn = A_TURN;
+        this.game = null;
+        endgame = openEndgameDatabase();
         DisplayMainMenu();
     }
     
@@ -50,12 +84,75 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
      */
     public MancalaBoardView(MancalaBoardModel theModel) {
         this.theModel = theModel;
-        undoMoveA = MAX_NUM_OF_UNDOS;
-        undoMoveB = MAX_NUM_OF_UNDOS;
-        currentTurn = A_TURN;
+        this.game = new MancalaGame(theModel);
+        endgame = openEndgameDatabase();
         DisplayMainMenu();
     }
 
+    /**
+     * Opens the endgame database of the computer player, if there is one.
+     * @return the database, or null if the file doesn't exist or can't be read
+     */
+    private static EndgameDatabase openEndgameDatabase() {
+        Path file = Paths.get(ENDGAME_FILE);
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        try {
+            return EndgameDatabase.open(file);
+        } catch (IOException e) {
+            System.err.println("Endgame database not used: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens the opening book of the computer player, if there is one.
+     * @return the book, or null if the file doesn't exist or can't be read
+     */
+    private static OpeningBook openOpeningBook() {
+        Path file = Paths.get(OPENING_FILE);
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(file);
+        } catch (IOException e) {
+            System.err.println("Opening book not used: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the alpha-beta player, created the first time with the endgame database and the opening book, so that
+     * its transposition table and helper threads are only made if the computer plays.
+     * @return the player
+     */
+    private ParallelSearch getAlphaBetaPlayer() {
+        if (alphaBetaPlayer == null) {
+            alphaBetaPlayer = new ParallelSearch(COMPUTER_THREADS);
+            alphaBetaPlayer.setEndgameDatabase(endgame);
+            alphaBetaPlayer.setOpeningBook(openOpeningBook());
+        }
+        return alphaBetaPlayer;
+    }
+
+    /**
+     * Adds the game to the archive, if there is one.
+     */
+    private void archiveGame() {
+        if (ARCHIVE_FILE == null) {
+            return;
+        }
+        GameRecord record = new GameRecord();
+        record.setGame(game);
+        try (GameRecordWriter writer = GameRecordWriter.append(Paths.get(ARCHIVE_FILE))) {
+            writer.write(record);
+        } catch (IOException e) {
+            System.err.println("Game not archived: " + e.getMessage());
+        }
+    }
+
     public void DisplayMainMenu() {
         /**
          * JFrame show the menu list of button to choose the desired style of the Mancala Board.
@@ -72,32 +169,80 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
         JButton vertical_3_stones = new JButton("3 stones - Vertical Display");
         JButton vertical_4_stones = new JButton("4 stones - Vertical Display");
 
+        /*
+         * JCheckBox to paint the board as one component instead of buttons
+         */
+        JCheckBox painted = new JCheckBox("Painted board");
+        JCheckBox animated = new JCheckBox("Animated sowing");
+        animated.addActionListener(e -> {
+            if (animated.isSelected()) {
+                painted.setSelected(true);  //only the painted board is animated
+            }
+        });
+        painted.addActionListener(e -> {
+            if (!painted.isSelected()) {
+                animated.setSelected(false);
+            }
+        });
+
+        /*
+         * JComboBox to let the computer play one of the sides
+         */
+        JComboBox<String> opponent = new JComboBox<>(new String[] {
+                "Two players", "Computer plays A", "Computer plays B" });
+        opponent.addActionListener(e -> computerTurn = opponent.getSelectedIndex() - 1);
+
+        /*
+         * JComboBox to choose how the computer plays
+         */
+        long[] playoutRates = { MonteCarloSearch.EASY, MonteCarloSearch.MEDIUM, MonteCarloSearch.HARD };
+        JComboBox<String> computerLevel = new JComboBox<>(new String[] {
+                "Alpha-beta", "Monte Carlo - easy", "Monte Carlo - medium", "Monte Carlo - hard" });
+        computerLevel.addActionListener(e -> {
+            int level = computerLevel.getSelectedIndex();
+            if (level == 0) {
+                computerPlayer = alphaBetaPlayer;   // created by playComputerTurns if it isn't yet
+                return;
+            }
+            if (monteCarloPlayer == null) {
+                monteCarloPlayer = new MonteCarloSearch(COMPUTER_THREADS);
+            }
+            monteCarloPlayer.setPlayoutsPerSecond(playoutRates[level - 1]);
+            computerPlayer = monteCarloPlayer;
+        });
+
+        /*
+         * JCheckBox to show the engine's score of every pit while playing
+         */
+        JCheckBox analysis = new JCheckBox("Analysis");
+        analysis.addActionListener(e -> showAnalysis = analysis.isSelected());
+
         horizontal_3_stones.addActionListener(e -> {
 
-            theModel.initializeTheBoard(3);
-            boardOrientation = new HorizontalStyleBoard();
+            game.newGame(3);
+            boardOrientation = createBoardOrientation(false, painted.isSelected(), animated.isSelected());
             frame.dispose();
             displayBoard();
         });
 
 
         horizontal_4_stones.addActionListener(e -> {
-            theModel.initializeTheBoard(4);
-            boardOrientation = new HorizontalStyleBoard();
+            game.newGame(4);
+            boardOrientation = createBoardOrientation(false, painted.isSelected(), animated.isSelected());
             frame.dispose();
             displayBoard();
         });
 
         vertical_3_stones.addActionListener(e -> {
-            theModel.initializeTheBoard(3);
-            boardOrientation = new VerticalStyleBoard();
+            game.newGame(3);
+            boardOrientation = createBoardOrientation(true, painted.isSelected(), animated.isSelected());
             frame.dispose();
             displayBoard();
         });
 
         vertical_4_stones.addActionListener(e -> {
-            theModel.initializeTheBoard(4);
-            boardOrientation = new VerticalStyleBoard();
+            game.newGame(4);
+            boardOrientation = createBoardOrientation(true, painted.isSelected(), animated.isSelected());
             frame.dispose();
             displayBoard();
         });
@@ -106,13 +251,35 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
         frame.add(horizontal_4_stones);
         frame.add(vertical_3_stones);
         frame.add(vertical_4_stones);
+        frame.add(painted);
+        frame.add(animated);
+        frame.add(opponent);
+        frame.add(computerLevel);
+        frame.add(analysis);
 
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.pack();
         frame.setVisible(true);
     }
 
-    
+
+    /**
+     * Creates the style of board chosen in the menu.
+     * @param vertical true for a vertical board, false for a horizontal one
+     * @param painted true to paint the board as one component instead of buttons
+     * @param animated true to animate the sowing, on a painted board
+     * @return the board style
+     */
+    private static BoardOrientation createBoardOrientation(boolean vertical, boolean painted, boolean animated) {
+        if (!painted) {
+            return vertical ? new VerticalStyleBoard() : new HorizontalStyleBoard();
+        }
+        PaintedStyleBoard board = new PaintedStyleBoard(vertical);
+        if (animated) {
+            board.setMillisPerStone(ANIMATION_MILLIS);
+        }
+        return board;
+    }
 
     /**
      * Display the Mancala board.
@@ -154,7 +321,7 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
         pits.add(B_pit_6_Button);
 
         //northPanel
-        JTextField textFieldMessage = new JTextField(40);
+        textFieldMessage = new JTextField(40);
         textFieldMessage.setText("Game on!");
 
         for(int i = 0; i < pits.size(); i ++) {
@@ -167,58 +334,18 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
             // Add a listener to pits and update model if button is pressed
             pits.get(i).addMouseListener(new PitMouseListener(i) {
                 public void mousePressed(MouseEvent e) {
-                    int mouseID = this.getMouseListenerID();
-                    //prevents player A from going on player B's turn
-                    if(currentTurn == B_TURN && mouseID <= LAST_PIT_OF_A) {
-                        textFieldMessage.setText("It's B's turn.");
-                    }
-                    //prevents player B from going on player A's turn
-                    else if(currentTurn == A_TURN && mouseID <= LAST_PIT_OF_B && mouseID >= FIRST_PIT_OF_B) {
-                        textFieldMessage.setText("It's A's turn.");
-                    }
-                    else if (mouseID >= 6 && theModel.getAmountInPit(mouseID + 1) == 0) {
-                        textFieldMessage.setText("Oops, no stones in this pit!");
-                    }
-                    else if (mouseID < 6 && theModel.getAmountInPit(mouseID) == 0) {
-                        textFieldMessage.setText("Oops, no stones in this pit!");
+                    if (monitor != null) {
+                        monitor.inputStarted(e);
                     }
-                    else if(currentTurn == A_TURN && mouseID <= LAST_PIT_OF_A) {
-                        theModel.move(mouseID);
-                        if(theModel.isLastStoneOnBoard()) {
-                            currentTurn = A_TURN;
-                            textFieldMessage.setText("Try again!");
-                            mancalaHasReached = true;
-                        } else {
-                            currentTurn = B_TURN;
-                            mancalaHasReached = false;
-                        }
-                        undoMoveB = MAX_NUM_OF_UNDOS;
+                    //the computer's pits are not clickable
+                    if (game.getCurrentTurn() == computerTurn) {
+                        textFieldMessage.setText("It's the computer's turn.");
+                    } else {
+                        playPit(this.getMouseListenerID());
+                        playComputerTurns();
                     }
-                    else if(currentTurn == B_TURN && mouseID <= LAST_PIT_OF_B && mouseID >= FIRST_PIT_OF_B) {
-                        theModel.move(mouseID);
-                        if(theModel.isLastStoneOnBoard()) {
-                            currentTurn = B_TURN;
-                            textFieldMessage.setText("go again!");
-                            mancalaHasReached = true;
-                        } else {
-                            currentTurn = A_TURN;
-                            mancalaHasReached = false;
-                        }
-                        undoMoveA = MAX_NUM_OF_UNDOS;
-                    }
-
-
-                    //Check if the game is over
-                    int gameOverFlag = theModel.checkIfGameOver();
-
-                    if (gameOverFlag > 0) {
-                        int winner = theModel.checkWinner(gameOverFlag);
-                        if (winner == 1)
-                            textFieldMessage.setText("Congratulation, Player A won!");
-                        else if (winner == 2)
-                            textFieldMessage.setText("Congratulation, Player B won!");
-                        else if (winner == 3)
-                            textFieldMessage.setText("It's a tie, go again!");
+                    if (monitor != null) {
+                        monitor.inputHandled();
                     }
                 }
             });
@@ -235,13 +362,31 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
         // North
         JPanel northPanel = new JPanel();
         northPanel.add(textFieldMessage);
+        if (showAnalysis) {
+            analyser = new PositionAnalyser(analysis -> SwingUtilities.invokeLater(() -> {
+                //an analysis of a position left since is dropped
+                if (analysedPosition != null && analysis.isOf(analysedPosition)) {
+                    showAnalysis(analysis);
+                }
+            }), PositionAnalyser.DEFAULT_CACHE_SIZE);
+            analyser.setEndgameDatabase(endgame);
+            for (JButton pit : pits) {
+                //the score is written over the stones
+                pit.setHorizontalTextPosition(SwingConstants.CENTER);
+                pit.setVerticalTextPosition(SwingConstants.CENTER);
+                pit.setForeground(Color.WHITE);
+            }
+            analysisLabel = new JLabel();
+            northPanel.add(analysisLabel);
+            scheduleAnalysis();
+        }
         add(northPanel, BorderLayout.NORTH);
 
         // South
         JPanel southPanel = new JPanel();
 
         JTextField undoCountText = new JTextField(20);
-        undoCountText.setText("Number of undos: 3");
+        undoCountText.setText("Number of undos: " + MancalaGame.MAX_NUM_OF_UNDOS);
 
         JButton undoButton = new JButton("undo");
         undoButton.addActionListener(new ActionListener(){
@@ -249,67 +394,249 @@ public class MancalaBoardView extends JFrame implements ChangeListener {
             @Override
             public void actionPerformed(ActionEvent e) {
 
-                if(Arrays.equals(theModel.getCurrentBoard(), theModel.getPreviousBoard())) {
+                cancelComputerMove();
+                //against the computer, its reply is taken back with the player's move
+                int undosLeft = computerTurn == NO_COMPUTER ? game.undo() : game.undoTurn(1 - computerTurn);
+                if (undosLeft == MancalaGame.NOTHING_TO_UNDO) {
                     undoCountText.setText("Oops! No move to undo");
                 }
-
-                else if (currentTurn == B_TURN && undoMoveA <= 0) {
-                    undoCountText.setText("Oops! Undo max has been reached.");
-                }
-                else if (currentTurn == A_TURN && undoMoveB <= 0) {
+                else if (undosLeft == MancalaGame.NO_UNDOS_LEFT) {
                     undoCountText.setText("Oops! Undo max has been reached.");
                 }
-                else if (mancalaHasReached && currentTurn == B_TURN) {
-                    undoMoveB--;
-                    undoCountText.setText("Number of undos: " + undoMoveB);
-                    theModel.undoMove();
-                    if(Arrays.equals(theModel.getCurrentBoard(), theModel.getPreviousBoard())) {
-                        currentTurn = B_TURN;//still B's turn since B got a free turn for reaching own Mancala
-                    }
-                    mancalaHasReached = false;
-                }
-                else if (mancalaHasReached && currentTurn == A_TURN) {
-                    undoMoveA--;
-                    undoCountText.setText("Number of undos: " + undoMoveA);
-                    theModel.undoMove();
-                    if(Arrays.equals(theModel.getCurrentBoard(), theModel.getPreviousBoard())) {
-                        currentTurn = A_TURN;//still A's turn since A got a free turn for reaching own Mancala
-                    }
-                    mancalaHasReached = false;
-                }
-                else if (currentTurn == A_TURN) { //was B's turn and A did not reach Mancala, then B undo so turn goes back to B
-                    undoMoveB--;
-                    undoCountText.setText("Number of undos: " + undoMoveB);
-                    theModel.undoMove();
-                    currentTurn = B_TURN;
-                }
-                else if (currentTurn == B_TURN) { //was A's turn and A did not reach Mancala, then A undo so turn goes back to A
-                    undoMoveA--;
-                    undoCountText.setText("Number of undos: " + undoMoveA);
-                    theModel.undoMove();
-                    currentTurn = A_TURN;
+                else {
+                    undoCountText.setText("Number of undos: " + undosLeft);
                 }
+                playComputerTurns();
             }
         });
 
+        JButton redoButton = new JButton("redo");
+        redoButton.addActionListener(e -> {
+            cancelComputerMove();
+            int undosLeft = computerTurn == NO_COMPUTER ? game.redo() : game.redoTurn(1 - computerTurn);
+            if (undosLeft == MancalaGame.NOTHING_TO_REDO) {
+                undoCountText.setText("Oops! No move to redo");
+            }
+            else {
+                undoCountText.setText("Number of undos: " + undosLeft);
+            }
+            playComputerTurns();
+        });
+
         southPanel.add(undoCountText);
         southPanel.add(undoButton);
+        southPanel.add(redoButton);
         add(southPanel, BorderLayout.SOUTH);
 
         //setResizable(false);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         pack();
         setVisible(true);
+        playComputerTurns();
     }
 
     /**
-     * Called when the data in the model is changed.
-     * @param e the event representing the change
+     * Plays the pit chosen by the player whose turn it is, then checks if the game is over.
+     * @param mouseID the identifier of the pit, as given by PitMouseListener
      */
-    public void stateChanged(ChangeEvent e) {
-        int[] mancalaData= theModel.getCurrentBoard();
-        boardOrientation.addStonesToPits(pits, mancalaData);
-        repaint();
+    private void playPit(int mouseID) {
+        int result = game.play(mouseID);
+        if (result == MancalaGame.WRONG_TURN) {
+            textFieldMessage.setText(game.getCurrentTurn() == MancalaGame.A_TURN ? "It's A's turn." : "It's B's turn.");
+        }
+        else if (result == MancalaGame.EMPTY_PIT) {
+            textFieldMessage.setText("Oops, no stones in this pit!");
+        }
+        else if (result == MancalaGame.CANNOT_PLAY) {
+            textFieldMessage.setText("Oops, these stones would go past the end of the board!");
+        }
+        else if (result == MancalaGame.EXTRA_TURN) {
+            textFieldMessage.setText(game.getCurrentTurn() == MancalaGame.A_TURN ? "Try again!" : "go again!");
+        }
+
+        int winner = game.getWinner();
+        if (winner != 0 && (result == MancalaGame.PLAYED || result == MancalaGame.EXTRA_TURN)) {
+            archiveGame();
+        }
+        if (winner == 1)
+            textFieldMessage.setText("Congratulation, Player A won!");
+        else if (winner == 2)
+            textFieldMessage.setText("Congratulation, Player B won!");
+        else if (winner == 3)
+            textFieldMessage.setText("It's a tie, go again!");
+    }
+
+    /**
+     * Lets the computer think about its move if it is the computer's turn and the game is not over. The search
+     * runs on computerThread, so the window keeps responding, and its progress is shown every PROGRESS_MILLIS.
+     * The move is played on the event dispatch thread by playComputerMove.
+     */
+    private void playComputerTurns() {
+        if (computerThinking || game.getCurrentTurn() != computerTurn || game.isGameOver()) {
+            return;
+        }
+        //the search gets its own copy of the board, the model is only used on the event dispatch thread
+        MancalaEngine position = new MancalaEngine();
+        position.setBoard(theModel.getCurrentBoard(), game.getCurrentTurn());
+        if (computerPlayer == null) {
+            computerPlayer = getAlphaBetaPlayer();
+        }
+        ComputerPlayer player = computerPlayer;
+        int moveId = ++computerMoveId;
+        computerThinking = true;
+        progressTimer = new Timer(PROGRESS_MILLIS,
+                e -> textFieldMessage.setText("Computer is thinking: " + player.describeProgress()));
+        progressTimer.start();
+        computerThread.execute(() -> {
+            int pit = -1;
+            try {
+                pit = player.findBestMove(position, COMPUTER_TIME_BUDGET);
+            } finally {
+                int move = pit;
+                SwingUtilities.invokeLater(() -> playComputerMove(moveId, player, move));
+            }
+        });
+    }
+
+    /**
+     * Plays the move found by the computer, unless the search was cancelled, and lets the computer think again
+     * if it moves again.
+     * @param moveId the move searched, as computerMoveId when the search began
+     * @param player the player who searched
+     * @param pit the pit found, or -1 if none
+     */
+    private void playComputerMove(int moveId, ComputerPlayer player, int pit) {
+        if (moveId != computerMoveId) {
+            return;
+        }
+        computerThinking = false;
+        progressTimer.stop();
+        if (pit < 0) {
+            //the computer's only moves are piles the board can't sow, the Mancalas decide
+            int winner = game.decideByMancalas();
+            archiveGame();
+            textFieldMessage.setText(winner == 3 ? "The computer can't move, it's a tie!"
+                    : "The computer can't move, Player " + (winner == 1 ? "A" : "B") + " won!");
+            scheduleAnalysis();
+            return;
+        }
+        playPit(pit);
+        if (!game.isGameOver()) {
+            textFieldMessage.setText("Computer played " + pitName(pit)
+                    + " (" + player.describeLastMove() + ")"
+                    + (game.getCurrentTurn() == computerTurn ? ", and goes again." : "."));
+        }
+        playComputerTurns();
+    }
+
+    /**
+     * Stops the search for the computer's move, if there is one, and drops its result.
+     */
+    private void cancelComputerMove() {
+        if (!computerThinking) {
+            return;
+        }
+        computerMoveId++;
+        computerThinking = false;
+        progressTimer.stop();
+        computerPlayer.stop();
+    }
+
+    /**
+     * Called when the data in the model is changed. Only the pits that changed get new stones, and the board
+     * repaints just those pits, or animates the change.
+     * @param event the pits that changed
+     */
+    @Override
+    public void boardChanged(BoardChangeEvent event) {
+        if (monitor != null) {
+            monitor.modelChanged();
+        }
+        boardOrientation.showChange(pits, event);
+        scheduleAnalysis();
+        if (monitor != null) {
+            monitor.viewChanged();
+        }
+    }
+
+    /**
+     * Queues an update of the analysis, once for all the changes of a move. It runs after the game has taken
+     * the turn from the move, which it does once the model has told of the change.
+     */
+    private void scheduleAnalysis() {
+        if (analyser == null || analysisPending) {
+            return;
+        }
+        analysisPending = true;
+        SwingUtilities.invokeLater(this::updateAnalysis);
+    }
+
+    /**
+     * Has the analyser analyse the position on the board, showing at once what it knows of it. The analysis
+     * stops while the computer moves, so that it doesn't slow the computer's search, and once the game is over.
+     */
+    private void updateAnalysis() {
+        analysisPending = false;
+        if (game.isGameOver() || game.getCurrentTurn() == computerTurn) {
+            analysedPosition = null;
+            analyser.analyse(null);
+            showAnalysis(null);
+            return;
+        }
+        MancalaEngine position = new MancalaEngine();
+        position.setBoard(theModel.getCurrentBoard(), game.getCurrentTurn());
+        if (analysedPosition != null && analysedPosition.getLowPits() == position.getLowPits()
+                && analysedPosition.getHighPits() == position.getHighPits()
+                && analysedPosition.getCurrentTurn() == position.getCurrentTurn()) {
+            return;     // still deepening
+        }
+        analysedPosition = position;
+        showAnalysis(analyser.analyse(position));
+    }
+
+    /**
+     * Writes the score of each legal pit on its button, and the scores and the expected line in analysisLabel.
+     * The scores are the stones the player to move ends up ahead by, or "wins" and "loses" when the search sees
+     * the end of the game.
+     * @param analysis the analysis, or null to clear it
+     */
+    private void showAnalysis(PositionAnalyser.Analysis analysis) {
+        StringBuilder text = new StringBuilder();
+        for (int pit = 0; pit < pits.size(); pit++) {
+            String score = analysis != null && analysis.hasScore(pit) ? formatScore(analysis.getScore(pit)) : "";
+            pits.get(pit).setText(score);
+            if (!score.isEmpty()) {
+                text.append(text.length() == 0 ? "" : ", ").append(pitName(pit)).append(' ').append(score);
+            }
+        }
+        if (analysis == null) {
+            analysisLabel.setText(analysedPosition == null ? "No analysis" : "Analysing...");
+            return;
+        }
+        text.insert(0, "Depth " + analysis.getDepth() + ": ").append(". Line");
+        for (int pit : analysis.getPrincipalVariation()) {
+            text.append(' ').append(pitName(pit));
+        }
+        analysisLabel.setText(text.toString());
+    }
+
+    private static String formatScore(int score) {
+        if (score >= MancalaSearch.WIN_SCORE - MancalaSearch.MAX_DEPTH) {
+            return "wins";
+        }
+        if (score <= -MancalaSearch.WIN_SCORE + MancalaSearch.MAX_DEPTH) {
+            return "loses";
+        }
+        return score > 0 ? "+" + score : Integer.toString(score);
+    }
+
+    /**
+     * Names a pit as the board labels it.
+     * @param pit the pit number, 0 - 5 for A1 - A6 and 6 - 11 for B1 - B6
+     * @return the name
+     */
+    private static String pitName(int pit) {
+        return pit < 6 ? "A" + (pit + 1) : "B" + (pit - 5);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Plays Mancala in a terminal, without AWT or Swing. The board is printed after each change; players type a pit
+ * (A1 - A6, B1 - B6), undo, redo, goto PLY, board or quit. The computer can play one side with the alpha-beta search.
+ * Only the game classes are loaded, so the program starts in milliseconds and runs on machines without a display.
+ * Given an archive file, the game is added to it when it ends or the player quits.
+ *
+ * Run with: java -Djava.awt.headless=true MancalaCli [stones] [computer side: A, B or none] [archive]
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class MancalaCli implements MancalaListener {
+
+    private static final long COMPUTER_TIME_BUDGET = 100; // milliseconds per computer move
+    private static final int NO_COMPUTER = -1;
+
+    private final MancalaGame game;
+    private final PrintStream out;
+    private final int computerTurn;
+    private MancalaSearch computerPlayer;      // created if the computer plays
+    private final MancalaEngine computerPosition = new MancalaEngine();
+
+    /**
+     * Constructs a MancalaCli and starts a game.
+     * @param stonesPerPit the number of stones each pit initially contains
+     * @param computerTurn the side the computer plays, MancalaGame.A_TURN or B_TURN, or -1 for none
+     * @param out where the board and messages are printed
+     */
+    public MancalaCli(int stonesPerPit, int computerTurn, PrintStream out) {
+        this.out = out;
+        this.computerTurn = computerTurn;
+        MancalaBoardModel model = new MancalaBoardModel();
+        game = new MancalaGame(model);
+        game.newGame(stonesPerPit);
+        model.attach(this);
+        if (computerTurn != NO_COMPUTER) {
+            computerPlayer = new MancalaSearch();
+        }
+    }
+
+    /**
+     * Reads commands until the game is over, the input ends or the player quits.
+     * @param in the commands, one per line
+     * @throws IOException if the input can't be read
+     */
+    public void play(BufferedReader in) throws IOException {
+        printBoard(game.getModel());
+        playComputerTurns();
+        while (!game.isGameOver()) {
+            out.print((game.getCurrentTurn() == MancalaGame.A_TURN ? "A" : "B") + "> ");
+            out.flush();
+            String line = in.readLine();
+            if (line == null) {
+                return;
+            }
+            String command = line.trim().toUpperCase();
+            if (command.equals("QUIT")) {
+                return;
+            } else if (command.equals("BOARD")) {
+                printBoard(game.getModel());
+            } else if (command.equals("REDO")) {
+                int undosLeft = game.redo();
+                out.println(undosLeft == MancalaGame.NOTHING_TO_REDO ? "Oops! No move to redo"
+                        : "Number of undos: " + undosLeft);
+            } else if (command.startsWith("GOTO ")) {
+                goToPly(command.substring(5).trim());
+            } else if (command.equals("UNDO")) {
+                int undosLeft = game.undo();
+                if (undosLeft == MancalaGame.NOTHING_TO_UNDO) {
+                    out.println("Oops! No move to undo");
+                } else if (undosLeft == MancalaGame.NO_UNDOS_LEFT) {
+                    out.println("Oops! Undo max has been reached.");
+                } else {
+                    out.println("Number of undos: " + undosLeft);
+                }
+            } else {
+                int pit = parsePit(command);
+                if (pit < 0) {
+                    out.println("Type a pit (A1 - A6, B1 - B6), undo, redo, goto PLY, board or quit.");
+                } else if (game.getCurrentTurn() == computerTurn) {
+                    out.println("It's the computer's turn.");
+                } else {
+                    report(game.play(pit));
+                }
+            }
+            playComputerTurns();
+        }
+    }
+
+    /**
+     * Adds the game, up to the current ply, to an archive.
+     * @param archive the archive file, created if it doesn't exist
+     * @throws IOException if the archive can't be written
+     */
+    public void archive(Path archive) throws IOException {
+        GameRecord record = new GameRecord();
+        record.setGame(game);
+        try (GameRecordWriter writer = GameRecordWriter.append(archive)) {
+            writer.write(record);
+        }
+        out.println("Archived " + record + " to " + archive);
+    }
+
+    private void goToPly(String plyText) {
+        int last = game.getTimeline().getLineLength() - 1;
+        int ply;
+        try {
+            ply = Integer.parseInt(plyText);
+        } catch (NumberFormatException e) {
+            ply = -1;
+        }
+        if (ply < 0 || ply > last) {
+            out.println("Type a ply from 0 to " + last + ".");
+        } else if (game.goToPly(ply) == MancalaGame.NO_UNDOS_LEFT) {
+            out.println("Oops! Undo max has been reached.");
+        } else {
+            out.println("Ply " + ply + " of " + last);
+        }
+    }
+
+    private void playComputerTurns() {
+        while (game.getCurrentTurn() == computerTurn && !game.isGameOver()) {
+            computerPosition.setBoard(game.getModel().getCurrentBoard(), computerTurn);
+            int pit = computerPlayer.findBestMove(computerPosition, COMPUTER_TIME_BUDGET);
+            if (pit < 0) {
+                //the computer's only moves are piles the board can't sow, the Mancalas decide
+                game.decideByMancalas();
+                out.println("The computer can't move.");
+                printWinner();
+                return;
+            }
+            out.println("Computer plays " + pitName(pit) + " (depth " + computerPlayer.getDepthReached() + ")");
+            report(game.play(pit));
+        }
+    }
+
+    private void report(int result) {
+        if (result == MancalaGame.WRONG_TURN) {
+            out.println(game.getCurrentTurn() == MancalaGame.A_TURN ? "It's A's turn." : "It's B's turn.");
+        } else if (result == MancalaGame.EMPTY_PIT) {
+            out.println("Oops, no stones in this pit!");
+        } else if (result == MancalaGame.CANNOT_PLAY) {
+            out.println("Oops, these stones would go past the end of the board!");
+        } else if (result == MancalaGame.EXTRA_TURN && !game.isGameOver()) {
+            out.println("Go again!");
+        }
+        printWinner();
+    }
+
+    private void printWinner() {
+        int winner = game.getWinner();
+        if (winner == 1) {
+            out.println("Player A won!");
+        } else if (winner == 2) {
+            out.println("Player B won!");
+        } else if (winner == 3) {
+            out.println("It's a tie!");
+        }
+    }
+
+    @Override
+    public void boardChanged(BoardChangeEvent event) {
+        if (event.getChangedPits() > 0) {
+            printBoard(event.getModel());
+        }
+    }
+
+    /**
+     * Prints the board with B's pits on top, from B6 to B1, and A's pits below, from A1 to A6.
+     */
+    private void printBoard(MancalaBoardModel model) {
+        StringBuilder board = new StringBuilder("     ");
+        for (int pit = 12; pit >= 7; pit--) {
+            board.append(String.format("%3d", model.getAmountInPit(pit)));
+        }
+        board.append(String.format("%n  %3d %18s %3d%n     ", model.getAmountInPit(13), "",
+                model.getAmountInPit(6)));
+        for (int pit = 0; pit <= 5; pit++) {
+            board.append(String.format("%3d", model.getAmountInPit(pit)));
+        }
+        out.println(board);
+    }
+
+    /**
+     * Reads a pit name.
+     * @param name A1 - A6 or B1 - B6
+     * @return the pit number, or -1 if the name is not a pit
+     */
+    static int parsePit(String name) {
+        if (name.length() != 2 || name.charAt(1) < '1' || name.charAt(1) > '6') {
+            return -1;
+        }
+        int pit = name.charAt(1) - '1';
+        if (name.charAt(0) == 'A') return pit;
+        if (name.charAt(0) == 'B') return pit + 6;
+        return -1;
+    }
+
+    static String pitName(int pitNumber) {
+        return pitNumber < 6 ? "A" + (pitNumber + 1) : "B" + (pitNumber - 5);
+    }
+
+    /**
+     * Plays a game on the terminal.
+     * @param args the number of stones (default 4), the side the computer plays, A, B or none (default none), and
+     *             the archive the game is added to (default none)
+     * @throws IOException if the input can't be read or the archive can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        //JMX takes longer to start than the game, so it only starts when the metrics are asked for
+        if (EngineMetrics.get().isEnabled()) {
+            EngineMetrics.register();
+        }
+        int stones = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int computerTurn = NO_COMPUTER;
+        if (args.length > 1) {
+            computerTurn = args[1].equalsIgnoreCase("A") ? MancalaGame.A_TURN
+                    : args[1].equalsIgnoreCase("B") ? MancalaGame.B_TURN : NO_COMPUTER;
+        }
+        MancalaCli cli = new MancalaCli(stones, computerTurn, System.out);
+        cli.play(new BufferedReader(new InputStreamReader(System.in)));
+        if (args.length > 2) {
+            cli.archive(Paths.get(args[2]));
+        }
+    }
+}
@@ -0,0 +1,484 @@
+import java.util.SplittableRandom;
+
+/**
+ * Headless, allocation-free version of the rules in MancalaBoardModel, meant to be used as the inner loop of
+ * searches and simulations. The 14 pits are packed one byte per pit into two longs: pits 0 - 6 (A's pits and
+ * Mancala A) live in lowPits and pits 7 - 13 (B's pits and Mancala B) live in highPits, with pit i in the
+ * byte at bit 8 * (i % 7). The engine also keeps track of whose turn it is, which the model leaves to the view.
+ *
+ * Moves use the same pit numbers as MancalaBoardModel.move and PitMouseListener: 0 - 5 for A1 - A6 and
+ * 6 - 11 for B1 - B6. Every move produces exactly the board that MancalaBoardModel.move produces, including the
+ * way stones are sown past the opponent's Mancala and the captures that follow. The few moves that make the
+ * model fail with an ArrayIndexOutOfBoundsException (a huge pile that laps the board) are left out of
+ * legalMoves.
+ *
+ * Each position also has a Zobrist hash of the 14 pit counts and the player to move, updated incrementally
+ * from the pits a move changed, which search tables use as their key.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class MancalaEngine {
+
+    public static final int NUMBER_OF_PITS = 14;
+    public static final int NUMBER_OF_MOVES = 12;
+
+    //Position of Mancala A and B in the board
+    public static final int MANCALA_A = 6;
+    public static final int MANCALA_B = 13;
+
+    public static final int A_TURN = 0;
+    public static final int B_TURN = 1;
+
+    //Bit masks of legal moves belonging to each player
+    public static final int A_MOVES = 0x03F;
+    public static final int B_MOVES = 0xFC0;
+
+    private static final int PITS_PER_SIDE = 7;
+    private static final long SIX_PITS = 0x0000FFFFFFFFFFFFL;   // bytes of the six pits on one side
+    private static final long ONE_PER_PIT = 0x0001010101010101L; // one stone in each of 7 bytes
+    private static final long BYTE_SUM = 0x0101010101010101L;    // multiplier that sums bytes into the top byte
+
+    /*
+     * Stones to add when sowing the remainder of a move: SOW_LOW[start * 14 + count] holds one stone for each of
+     * count pits beginning at start and wrapping past pit 13, restricted to pits 0 - 6 (SOW_HIGH for pits 7 - 13).
+     */
+    private static final long[] SOW_LOW = new long[NUMBER_OF_PITS * NUMBER_OF_PITS];
+    private static final long[] SOW_HIGH = new long[NUMBER_OF_PITS * NUMBER_OF_PITS];
+
+    /*
+     * Zobrist keys: ZOBRIST[pit * 256 + stones] for each pit and stone count, and one for B to move. The seed is
+     * fixed so that hashes stay the same from one run to the next, which stored tables rely on.
+     */
+    private static final long[] ZOBRIST = new long[NUMBER_OF_PITS * 256];
+    private static final long B_TO_MOVE;
+
+    static {
+        SplittableRandom keys = new SplittableRandom(0x4D616E63616C61L);
+        for (int i = 0; i < ZOBRIST.length; i++) {
+            ZOBRIST[i] = keys.nextLong();
+        }
+        B_TO_MOVE = keys.nextLong();
+
+        for (int start = 0; start < NUMBER_OF_PITS; start++) {
+            for (int count = 0; count < NUMBER_OF_PITS; count++) {
+                long low = 0, high = 0;
+                for (int i = 0; i < count; i++) {
+                    int pit = (start + i) % NUMBER_OF_PITS;
+                    if (pit < PITS_PER_SIDE) low += 1L << (8 * pit);
+                    else high += 1L << (8 * (pit - PITS_PER_SIDE));
+                }
+                SOW_LOW[start * NUMBER_OF_PITS + count] = low;
+                SOW_HIGH[start * NUMBER_OF_PITS + count] = high;
+            }
+        }
+    }
+
+    private long lowPits;
+    private long highPits;
+    private int currentTurn;
+    private boolean lastStoneOnBoard;
+    private long hash;
+
+    /**
+     * Constructs an empty MancalaEngine with A to move.
+     */
+    public MancalaEngine() {
+        currentTurn = A_TURN;
+        hash = computeHash();
+    }
+
+    /**
+     * Constructs a MancalaEngine with specified number of stones in each pit, 0 stones in Mancalas and A to move.
+     * @param stonesPerPit the number of stones each pit initially contains
+     */
+    public MancalaEngine(int stonesPerPit) {
+        initializeTheBoard(stonesPerPit);
+    }
+
+    /**
+     * Sets the number of stones in each pit, empties the Mancalas and gives the first turn to A.
+     * @param stonesPerPit the number of stones in each pit
+     */
+    public void initializeTheBoard(int stonesPerPit) {
+        long side = (ONE_PER_PIT & SIX_PITS) * stonesPerPit;
+        lowPits = side;
+        highPits = side;
+        currentTurn = A_TURN;
+        lastStoneOnBoard = false;
+        hash = computeHash();
+    }
+
+    /**
+     * Loads a board in the layout of MancalaBoardModel.getCurrentBoard.
+     * @param board the number of stones in each of the 14 pits
+     * @param turn A_TURN or B_TURN
+     */
+    public void setBoard(int[] board, int turn) {
+        long low = 0, high = 0;
+        for (int i = 0; i < PITS_PER_SIDE; i++) {
+            low |= (long) (board[i] & 0xFF) << (8 * i);
+            high |= (long) (board[i + PITS_PER_SIDE] & 0xFF) << (8 * i);
+        }
+        setPackedBoard(low, high, turn);
+    }
+
+    /**
+     * Loads a board in packed form.
+     * @param low pits 0 - 6, one byte each
+     * @param high pits 7 - 13, one byte each
+     * @param turn A_TURN or B_TURN
+     */
+    public void setPackedBoard(long low, long high, int turn) {
+        lowPits = low;
+        highPits = high;
+        currentTurn = turn;
+        lastStoneOnBoard = false;
+        hash = computeHash();
+    }
+
+    /**
+     * Makes this engine hold the same position as another one.
+     * @param other the engine to copy
+     */
+    public void copyFrom(MancalaEngine other) {
+        lowPits = other.lowPits;
+        highPits = other.highPits;
+        currentTurn = other.currentTurn;
+        lastStoneOnBoard = other.lastStoneOnBoard;
+        hash = other.hash;
+    }
+
+    /**
+     * Copies the board into an array in the layout of MancalaBoardModel.getCurrentBoard.
+     * @param board array of at least 14 elements that receives the number of stones in each pit
+     * @return the array passed in
+     */
+    public int[] getCurrentBoard(int[] board) {
+        for (int i = 0; i < NUMBER_OF_PITS; i++) {
+            board[i] = getAmountInPit(i);
+        }
+        return board;
+    }
+
+    /**
+     * Gets pits 0 - 6 in packed form.
+     * @return one byte per pit, pit 0 in the lowest byte
+     */
+    public long getLowPits() {
+        return lowPits;
+    }
+
+    /**
+     * Gets pits 7 - 13 in packed form.
+     * @return one byte per pit, pit 7 in the lowest byte
+     */
+    public long getHighPits() {
+        return highPits;
+    }
+
+    /**
+     * Gets the number of stones in specified position of the board.
+     * @param pitNumber the position on the board, 0 - 13
+     * @return the number of stones in the pit
+     */
+    public int getAmountInPit(int pitNumber) {
+        return pitNumber < PITS_PER_SIDE
+                ? (int) (lowPits >>> (8 * pitNumber)) & 0xFF
+                : (int) (highPits >>> (8 * (pitNumber - PITS_PER_SIDE))) & 0xFF;
+    }
+
+    /**
+     * Gets the number of stones left in the 12 pits, not counting the Mancalas.
+     * @return the stones still in play
+     */
+    public int getStonesOnBoard() {
+        return (int) ((((lowPits & SIX_PITS) + (highPits & SIX_PITS)) * BYTE_SUM) >>> 56);
+    }
+
+    /**
+     * Gets the Zobrist hash of the position: the pit counts and the player to move.
+     * @return the 64 bit hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the player whose turn it is.
+     * @return A_TURN or B_TURN
+     */
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    /**
+     * Checks if the last move dropped its last stone in the mover's Mancala.
+     * @return true if the player who just moved gets another turn
+     */
+    public boolean isLastStoneOnBoard() {
+        return lastStoneOnBoard;
+    }
+
+    /**
+     * Gets the legal moves of the player whose turn it is.
+     * @return bit mask with bit n set if pit number n can be played
+     */
+    public int legalMoves() {
+        return legalMoves(currentTurn);
+    }
+
+    /**
+     * Gets the legal moves of a player: the non empty pits on that player's side, minus the rare moves that
+     * MancalaBoardModel.move cannot complete.
+     * @param turn A_TURN or B_TURN
+     * @return bit mask with bit n set if pit number n can be played
+     */
+    public int legalMoves(int turn) {
+        long side = turn == A_TURN ? lowPits : highPits;
+        int moves = 0;
+        for (int own = 0; own < 6; own++) {
+            int stoneCount = (int) (side >>> (8 * own)) & 0xFF;
+            if (stoneCount != 0 && (own + stoneCount < 13
+                    || !runsOffBoard(passThroughTarget(turn, own, stoneCount), getAmountInPit(MANCALA_B)))) {
+                moves |= 1 << own;
+            }
+        }
+        return turn == A_TURN ? moves : moves << 6;
+    }
+
+    /**
+     * Checks if the player whose turn it is may play a pit, like testing its bit in legalMoves but without
+     * looking at the other pits.
+     * @param pitNumber the pit number, 0 - 5 for A and 6 - 11 for B
+     * @return true if the pit is the mover's and legalMoves would allow it
+     */
+    public boolean isLegalMove(int pitNumber) {
+        int turn = pitNumber < 6 ? A_TURN : B_TURN;
+        int own = pitNumber - 6 * turn;
+        int stoneCount = getAmountInPit(pitNumber + turn);
+        return turn == currentTurn && stoneCount != 0 && (own + stoneCount < 13
+                || !runsOffBoard(passThroughTarget(turn, own, stoneCount), getAmountInPit(MANCALA_B)));
+    }
+
+    /**
+     * Checks if playing a pit drops the last stone in the mover's own Mancala, giving another turn.
+     * @param pitNumber the pit number, 0 - 5 for A and 6 - 11 for B
+     * @return true if the move would set isLastStoneOnBoard
+     */
+    public boolean givesExtraTurn(int pitNumber) {
+        int ownPitNumber = pitNumber < 6 ? pitNumber : pitNumber - 6;
+        return ownPitNumber + getAmountInPit(pitNumber < 6 ? pitNumber : pitNumber + 1) == 6;
+    }
+
+    /**
+     * Checks if playing a pit drops the last stone in an empty pit on the mover's side without going around
+     * the board, which captures that stone and the stones across from it.
+     * @param pitNumber the pit number, 0 - 5 for A and 6 - 11 for B
+     * @return true if the move captures
+     */
+    public boolean isCapture(int pitNumber) {
+        int index = pitNumber < 6 ? pitNumber : pitNumber + 1;
+        int ownPitNumber = pitNumber < 6 ? pitNumber : pitNumber - 6;
+        int stoneCount = getAmountInPit(index);
+        return stoneCount != 0 && ownPitNumber + stoneCount <= 5 && getAmountInPit(index + stoneCount) == 0;
+    }
+
+    /**
+     * Redistributes the stones of the chosen pit exactly like MancalaBoardModel.move, then passes the turn to the
+     * other player unless the last stone landed in the mover's Mancala. Choosing an empty pit does nothing.
+     * @param pitNumber the pit number, 0 - 5 for A and 6 - 11 for B
+     */
+    public void move(int pitNumber) {
+
+        boolean turnA = pitNumber < 6;
+        int index = turnA ? pitNumber : pitNumber + 1;
+        int ownPitNumber = turnA ? index : index - PITS_PER_SIDE;
+        int stoneCount = getAmountInPit(index);
+        if (stoneCount == 0) {
+            return;
+        }
+
+        int endingPit = index + stoneCount;
+        boolean opponMancReached = ownPitNumber + stoneCount >= 13;
+        int target = opponMancReached ? passThroughTarget(turnA ? A_TURN : B_TURN, ownPitNumber, stoneCount) : -1;
+        if (opponMancReached && runsOffBoard(target, getAmountInPit(MANCALA_B))) {
+            throw new IllegalArgumentException("Pit " + pitNumber + " cannot be played on this board");
+        }
+
+        long previousLow = lowPits;
+        long previousHigh = highPits;
+        lastStoneOnBoard = ownPitNumber + stoneCount == 6;
+
+        //sow whole laps first, then the remainder, starting next to the chosen pit
+        int laps = stoneCount / NUMBER_OF_PITS;
+        int sowTable = ((index + 1) % NUMBER_OF_PITS) * NUMBER_OF_PITS + stoneCount % NUMBER_OF_PITS;
+        lowPits += ONE_PER_PIT * laps + SOW_LOW[sowTable];
+        highPits += ONE_PER_PIT * laps + SOW_HIGH[sowTable];
+        set(index, 0);
+
+        //last stone dropped in an empty pit on the mover's own side
+        if (!opponMancReached && (turnA ? endingPit <= 5 : endingPit > 6 && endingPit < 13)
+                && previous(previousLow, previousHigh, endingPit) == 0) {
+            capture(endingPit, turnA ? MANCALA_A : MANCALA_B);
+        }
+
+        //last stone went past the opponent's Mancala: take back what was dropped there and sow one more stone
+        if (opponMancReached) {
+            int opponMancala = turnA ? MANCALA_B : MANCALA_A;
+            set(opponMancala, previous(previousLow, previousHigh, opponMancala));
+            set(target, getAmountInPit(target) + 1);
+            if (previous(previousLow, previousHigh, target) == 0) {
+                capture(target, turnA ? MANCALA_A : MANCALA_B);
+            }
+        }
+
+        int previousTurn = currentTurn;
+        if (!lastStoneOnBoard) {
+            currentTurn = turnA ? B_TURN : A_TURN;
+        } else {
+            currentTurn = turnA ? A_TURN : B_TURN;
+        }
+        hash ^= hashChange(previousLow, lowPits, 0) ^ hashChange(previousHigh, highPits, PITS_PER_SIDE)
+                ^ (previousTurn != currentTurn ? B_TO_MOVE : 0);
+    }
+
+    /**
+     * Checks if the game is over when pits belonging to either player are all empty.
+     * @return  0 if game is not over
+     *          1 if game is over and only A pits are empty
+     *          2 if game is over and only B pits are empty
+     */
+    public int checkIfGameOver() {
+        if ((lowPits & SIX_PITS) == 0) return 1;
+        if ((highPits & SIX_PITS) == 0) return 2;
+        return 0;
+    }
+
+    /**
+     * Gives the remaining stones to the player whose pits are not empty, then compares the two Mancalas.
+     * @param emptyPitFlag the value returned by checkIfGameOver
+     * @return 1 if winner is A or
+     *         2 if the winner is B or
+     *         3 if there is a tie
+     */
+    public int checkWinner(int emptyPitFlag) {
+        if (emptyPitFlag == 1) {
+            long previousHigh = highPits;
+            highPits = sweep(highPits);
+            hash ^= hashChange(previousHigh, highPits, PITS_PER_SIDE);
+        } else if (emptyPitFlag == 2) {
+            long previousLow = lowPits;
+            lowPits = sweep(lowPits);
+            hash ^= hashChange(previousLow, lowPits, 0);
+        }
+
+        int mancalaA = getAmountInPit(MANCALA_A);
+        int mancalaB = getAmountInPit(MANCALA_B);
+        if (mancalaA > mancalaB)
+            return 1;
+        else if (mancalaA < mancalaB)
+            return 2;
+        else return 3;
+    }
+
+    /**
+     * Gets the stones in Mancala A minus the stones in Mancala B.
+     * @return the current score difference from A's point of view
+     */
+    public int getMancalaDifference() {
+        return getAmountInPit(MANCALA_A) - getAmountInPit(MANCALA_B);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("MancalaEngine [");
+        for (int i = 0; i < NUMBER_OF_PITS; i++) {
+            text.append(i == 0 ? "" : i == PITS_PER_SIDE ? " | " : " ").append(getAmountInPit(i));
+        }
+        return text.append(currentTurn == A_TURN ? "] A to move" : "] B to move").toString();
+    }
+
+    /**
+     * Finds the pit that receives the extra stone when a move goes past the opponent's Mancala.
+     * @param turn the player moving
+     * @param ownPitNumber position of the chosen pit on the player's side, 0 - 5
+     * @param stoneCount stones in the chosen pit
+     * @return the position on the board, which may be past the end of the board for huge piles
+     */
+    private static int passThroughTarget(int turn, int ownPitNumber, int stoneCount) {
+        int nextPitToGetStone = ownPitNumber + stoneCount + 1;
+        if (nextPitToGetStone > 13) {
+            nextPitToGetStone = nextPitToGetStone - 14;
+        }
+        return turn == A_TURN ? nextPitToGetStone : nextPitToGetStone + PITS_PER_SIDE;
+    }
+
+    /**
+     * Checks if MancalaBoardModel.move would index outside the board when dropping the extra stone in target:
+     * either target is past pit 13, or it is an empty Mancala B whose capture looks at pit -1.
+     */
+    private static boolean runsOffBoard(int target, int mancalaBStones) {
+        return target > MANCALA_B || target == MANCALA_B && mancalaBStones == 0;
+    }
+
+    /**
+     * Empties the pit and the pit across from it into a Mancala, adding one stone for the pit itself.
+     */
+    private void capture(int pit, int mancala) {
+        set(pit, 0);
+        int across = 12 - pit;
+        set(mancala, getAmountInPit(mancala) + getAmountInPit(across) + 1);
+        set(across, 0);
+    }
+
+    private void set(int pitNumber, int stones) {
+        if (pitNumber < PITS_PER_SIDE) {
+            int shift = 8 * pitNumber;
+            lowPits = lowPits & ~(0xFFL << shift) | (long) stones << shift;
+        } else {
+            int shift = 8 * (pitNumber - PITS_PER_SIDE);
+            highPits = highPits & ~(0xFFL << shift) | (long) stones << shift;
+        }
+    }
+
+    private static int previous(long previousLow, long previousHigh, int pitNumber) {
+        return pitNumber < PITS_PER_SIDE
+                ? (int) (previousLow >>> (8 * pitNumber)) & 0xFF
+                : (int) (previousHigh >>> (8 * (pitNumber - PITS_PER_SIDE))) & 0xFF;
+    }
+
+    private long computeHash() {
+        long fullHash = currentTurn == B_TURN ? B_TO_MOVE : 0;
+        for (int i = 0; i < NUMBER_OF_PITS; i++) {
+            fullHash ^= ZOBRIST[i * 256 + getAmountInPit(i)];
+        }
+        return fullHash;
+    }
+
+    /**
+     * Computes the change to the hash between two packed sides, looking only at the bytes that differ.
+     * @param firstPit the pit held in the lowest byte, 0 or 7
+     */
+    private static long hashChange(long before, long after, int firstPit) {
+        long change = 0;
+        for (long changed = before ^ after; changed != 0; ) {
+            int shift = Long.numberOfTrailingZeros(changed) & ~7;
+            int key = (firstPit + (shift >>> 3)) * 256;
+            change ^= ZOBRIST[key + ((int) (before >>> shift) & 0xFF)]
+                    ^ ZOBRIST[key + ((int) (after >>> shift) & 0xFF)];
+            changed &= ~(0xFFL << shift);
+        }
+        return change;
+    }
+
+    /**
+     * Moves the six pits of one side into that side's Mancala.
+     */
+    private static long sweep(long side) {
+        long stones = ((side & SIX_PITS) * BYTE_SUM) >>> 56;
+        return (side & ~SIX_PITS) + (stones << 48);
+    }
+}
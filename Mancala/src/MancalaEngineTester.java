@@ -0,0 +1,131 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that MancalaEngine plays exactly like MancalaBoardModel. Random games, some with piles big enough to go
+ * past the opponent's Mancala, are played on both: after every move the boards must be the same, the engine's
+ * turn must follow the model's isLastStoneOnBoard, and the engine's incremental hash must be the hash of the
+ * board loaded anew. Every move the engine leaves out of legalMoves must also be one the model can't complete,
+ * and one the engine refuses.
+ *
+ * Run with: java MancalaEngineTester [games] [seed]
+ * Prints the moves checked, or the first difference and exits with status 1.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class MancalaEngineTester {
+
+    public static final int DEFAULT_GAMES = 20000;
+
+    private static final int MAX_STONES_PER_PIT = 21;   // as many as MancalaBoardModel allows
+
+    private long moves;
+    private long rejected;
+
+    /**
+     * Plays one random game on the engine and on the model.
+     * @param random chooses the stones per pit and the moves
+     * @return null if they agreed all along, or what differed
+     */
+    private String playGame(SplittableRandom random) {
+        int stonesPerPit = 1 + random.nextInt(MAX_STONES_PER_PIT);
+        MancalaBoardModel model = new MancalaBoardModel(stonesPerPit);
+        MancalaEngine engine = new MancalaEngine(stonesPerPit);
+        MancalaEngine loaded = new MancalaEngine();
+        while (engine.checkIfGameOver() == 0) {
+            int turn = engine.getCurrentTurn();
+            int legal = engine.legalMoves();
+            int own = turn == MancalaEngine.A_TURN ? MancalaEngine.A_MOVES : MancalaEngine.B_MOVES;
+            for (int pit = 0; pit < MancalaEngine.NUMBER_OF_MOVES; pit++) {
+                if ((own & 1 << pit) == 0 || (legal & 1 << pit) != 0
+                        || model.getAmountInPit(pit < 6 ? pit : pit + 1) == 0) {
+                    continue;
+                }
+                String refused = checkRejected(model, engine, pit);
+                if (refused != null) {
+                    return refused;
+                }
+            }
+            if (legal == 0) {
+                break;  // only moves the model can't complete are left
+            }
+            int pit;
+            do {
+                pit = random.nextInt(MancalaEngine.NUMBER_OF_MOVES);
+            } while ((legal & 1 << pit) == 0);
+
+            model.move(pit);
+            engine.move(pit);
+            moves++;
+            int[] board = model.getCurrentBoard();
+            int[] engineBoard = engine.getCurrentBoard(new int[MancalaEngine.NUMBER_OF_PITS]);
+            if (!Arrays.equals(board, engineBoard)) {
+                return "pit " + pit + " makes " + Arrays.toString(engineBoard) + ", the model "
+                        + Arrays.toString(board);
+            }
+            int expectedTurn = model.isLastStoneOnBoard() ? turn : 1 - turn;
+            if (engine.getCurrentTurn() != expectedTurn) {
+                return "pit " + pit + " gives the turn to " + engine.getCurrentTurn() + ", the model to "
+                        + expectedTurn;
+            }
+            loaded.setBoard(board, expectedTurn);
+            if (engine.getHash() != loaded.getHash()) {
+                return "pit " + pit + " leaves hash " + Long.toHexString(engine.getHash()) + ", the board loaded "
+                        + Long.toHexString(loaded.getHash());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks that a pit the engine leaves out of legalMoves fails on the model and is refused by the engine, both
+     * leaving the position as it was.
+     * @return null if so, or what differed
+     */
+    private String checkRejected(MancalaBoardModel model, MancalaEngine engine, int pit) {
+        rejected++;
+        int[] board = model.getCurrentBoard();
+        long hash = engine.getHash();
+        try {
+            model.move(pit);
+            return "pit " + pit + " of " + Arrays.toString(board) + " is left out of legalMoves but the model "
+                    + "plays it";
+        } catch (ArrayIndexOutOfBoundsException e) {
+            //the model can't complete it either
+        }
+        try {
+            engine.move(pit);
+            return "pit " + pit + " of " + Arrays.toString(board) + " is left out of legalMoves but the engine "
+                    + "plays it";
+        } catch (IllegalArgumentException e) {
+            //refused
+        }
+        if (!Arrays.equals(board, model.getCurrentBoard()) || engine.getHash() != hash) {
+            return "pit " + pit + " of " + Arrays.toString(board) + " changed the position although it was refused";
+        }
+        return null;
+    }
+
+    /**
+     * Plays the random games and prints the result.
+     * @param args the number of games (default 20000) and the seed (default 1)
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        MancalaEngineTester tester = new MancalaEngineTester();
+        for (int game = 1; game <= games; game++) {
+            String difference = tester.playGame(random);
+            if (difference != null) {
+                System.err.println("Game " + game + " of seed " + seed + ": " + difference);
+                System.exit(1);
+            }
+        }
+        System.out.println(games + " games, " + tester.moves + " moves and " + tester.rejected
+                + " moves left out of legalMoves agree with MancalaBoardModel");
+    }
+}
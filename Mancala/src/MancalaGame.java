@@ -0,0 +1,324 @@
+/**
+ * The rules around the board: whose turn it is, which pits a player may choose and how many moves each player may
+ * still undo. MancalaBoardModel holds the stones and how they move; this class decides when a move or an undo is
+ * allowed and whose turn follows. It doesn't use AWT or Swing, so games can be played without a display, as
+ * MancalaBoardView and MancalaCli both do.
+ *
+ * Every position is kept in a GameTimeline, so moves can be undone back to the start of the game and redone, and a
+ * different move played after an undo starts a variation. Whether an undo is allowed is policy kept here: each undo
+ * takes one from the quota of the player who made the move, who may undo up to MAX_NUM_OF_UNDOS moves in a row;
+ * the quota is refilled once the opponent has moved, and a redo gives the undo back. Against the computer,
+ * undoTurn and redoTurn take back and replay the player's move together with the computer's reply.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class MancalaGame {
+
+    public static final int A_TURN = 0;
+    public static final int B_TURN = 1;
+
+    public static final int MAX_NUM_OF_UNDOS = 3;
+
+    private static final int LAST_PIT_OF_A = 5;
+    private static final int LAST_PIT_OF_B = 11;
+    private static final int FIRST_PIT_OF_B = 6;
+
+    //Results of play
+    public static final int PLAYED = 0;
+    public static final int EXTRA_TURN = 1;
+    public static final int WRONG_TURN = 2;    // the pit belongs to the other player
+    public static final int EMPTY_PIT = 3;
+    public static final int CANNOT_PLAY = 4;   // the stones would run past the end of the board
+
+    //Results of undo, redo and goToPly that are not a number of undos left
+    public static final int NOTHING_TO_UNDO = -1;
+    public static final int NO_UNDOS_LEFT = -2;
+    public static final int NOTHING_TO_REDO = -3;
+
+    private final MancalaBoardModel theModel;
+    private final GameTimeline timeline;
+    private final int[] board = new int[14];   // scratch for boards read from the timeline
+    private final MancalaEngine position = new MancalaEngine();    // scratch to check moves with
+    private int undoMoveA;
+    private int undoMoveB;
+    private int currentTurn; //0 - A; 1 - B
+    private int winner;      //0 while the game is on
+
+    /**
+     * Constructs a MancalaGame on a board, with A to move.
+     * @param theModel the board
+     */
+    public MancalaGame(MancalaBoardModel theModel) {
+        this.theModel = theModel;
+        undoMoveA = MAX_NUM_OF_UNDOS;
+        undoMoveB = MAX_NUM_OF_UNDOS;
+        currentTurn = A_TURN;
+        timeline = new GameTimeline(theModel.getCurrentBoard(), A_TURN);
+    }
+
+    /**
+     * Starts a new game: fills the pits, gives both players their undos back and lets A move first.
+     * @param stonesPerPit the number of stones each pit initially contains
+     */
+    public void newGame(int stonesPerPit) {
+        theModel.initializeTheBoard(stonesPerPit);
+        undoMoveA = MAX_NUM_OF_UNDOS;
+        undoMoveB = MAX_NUM_OF_UNDOS;
+        currentTurn = A_TURN;
+        winner = 0;
+        timeline.reset(theModel.getCurrentBoard(), A_TURN);
+    }
+
+    /**
+     * Plays a pit for the player whose turn it is, then finishes the game if one side is empty.
+     * @param pitNumber the pit number, 0 - 5 for A1 - A6 and 6 - 11 for B1 - B6
+     * @return PLAYED, EXTRA_TURN if the player moves again, WRONG_TURN if the pit is the opponent's,
+     *         EMPTY_PIT if the pit has no stones or CANNOT_PLAY if it has more than MancalaBoardModel.move can
+     *         sow, as MancalaEngine.isLegalMove tells
+     */
+    public int play(int pitNumber) {
+        int result;
+        //prevents player A from going on player B's turn
+        if(currentTurn == B_TURN && pitNumber <= LAST_PIT_OF_A) {
+            result = WRONG_TURN;
+        }
+        //prevents player B from going on player A's turn
+        else if(currentTurn == A_TURN && pitNumber <= LAST_PIT_OF_B && pitNumber >= FIRST_PIT_OF_B) {
+            result = WRONG_TURN;
+        }
+        else if (pitNumber >= 6 && theModel.getAmountInPit(pitNumber + 1) == 0) {
+            result = EMPTY_PIT;
+        }
+        else if (pitNumber < 6 && theModel.getAmountInPit(pitNumber) == 0) {
+            result = EMPTY_PIT;
+        }
+        else if (!isLegalMove(pitNumber)) {
+            result = CANNOT_PLAY;
+        }
+        else {
+            int player = currentTurn;
+            theModel.move(pitNumber);
+            boolean mancalaHasReached = theModel.isLastStoneOnBoard();
+            if (!mancalaHasReached) {
+                currentTurn = player == A_TURN ? B_TURN : A_TURN;
+            }
+            //the opponent gets their undos back
+            if (player == A_TURN) {
+                undoMoveB = MAX_NUM_OF_UNDOS;
+            } else {
+                undoMoveA = MAX_NUM_OF_UNDOS;
+            }
+            result = mancalaHasReached ? EXTRA_TURN : PLAYED;
+        }
+
+        //Check if the game is over
+        int gameOverFlag = theModel.checkIfGameOver();
+        if (gameOverFlag > 0) {
+            winner = theModel.checkWinner(gameOverFlag);
+        }
+        if (result == PLAYED || result == EXTRA_TURN) {
+            timeline.play(pitNumber, theModel.getCurrentBoard(), currentTurn);
+        }
+        return result;
+    }
+
+    private boolean isLegalMove(int pitNumber) {
+        position.setBoard(theModel.getCurrentBoard(), currentTurn);
+        return position.isLegalMove(pitNumber);
+    }
+
+    /**
+     * Takes back the last move, if the player who made it has undos left, and gives the turn back to them.
+     * @return the number of undos the player has left, or NOTHING_TO_UNDO or NO_UNDOS_LEFT
+     */
+    public int undo() {
+        if (!timeline.canUndo()) {
+            return NOTHING_TO_UNDO;
+        }
+        int player = timeline.getTurn(timeline.getPly() - 1);
+        if (getUndosLeft(player) <= 0) {
+            return NO_UNDOS_LEFT;
+        }
+        addUndos(player, -1);
+        timeline.undo();
+        showTimeline(BoardChangeEvent.UNDO);
+        return getUndosLeft(player);
+    }
+
+    /**
+     * Plays again the move last undone, giving its player the undo back.
+     * @return the number of undos the player has left, or NOTHING_TO_REDO
+     */
+    public int redo() {
+        if (!timeline.canRedo()) {
+            return NOTHING_TO_REDO;
+        }
+        int player = timeline.getTurn();
+        addUndos(player, 1);
+        timeline.redo();
+        showTimeline(BoardChangeEvent.REDO);
+        return getUndosLeft(player);
+    }
+
+    /**
+     * Takes back the last move of a player and the opponent's moves that followed, giving the turn back to the
+     * player, as when playing the computer, whose reply would otherwise be taken back alone and played again.
+     * Only the player's quota is charged, one undo for the move.
+     * @param player A_TURN or B_TURN
+     * @return the number of undos the player has left, or NOTHING_TO_UNDO or NO_UNDOS_LEFT
+     */
+    public int undoTurn(int player) {
+        int ply = timeline.getPly() - 1;
+        while (ply >= 0 && timeline.getTurn(ply) != player) {
+            ply--;
+        }
+        if (ply < 0) {
+            return NOTHING_TO_UNDO;
+        }
+        if (getUndosLeft(player) <= 0) {
+            return NO_UNDOS_LEFT;
+        }
+        addUndos(player, -1);
+        timeline.goToPly(ply);
+        showTimeline(BoardChangeEvent.UNDO);
+        return getUndosLeft(player);
+    }
+
+    /**
+     * Plays again the next move of a player undone and the opponent's moves that followed it, up to the player's
+     * turn or the end of the line, giving the player the undo back. The opposite of undoTurn.
+     * @param player A_TURN or B_TURN
+     * @return the number of undos the player has left, or NOTHING_TO_REDO
+     */
+    public int redoTurn(int player) {
+        int ply = timeline.getPly();
+        while (ply < timeline.getLineLength() - 1 && timeline.getTurn(ply) != player) {
+            ply++;
+        }
+        if (ply == timeline.getLineLength() - 1) {
+            return NOTHING_TO_REDO;
+        }
+        ply++;
+        while (ply < timeline.getLineLength() - 1 && timeline.getTurn(ply) != player) {
+            ply++;
+        }
+        addUndos(player, 1);
+        timeline.goToPly(ply);
+        showTimeline(BoardChangeEvent.REDO);
+        return getUndosLeft(player);
+    }
+
+    /**
+     * Goes to a ply of the game, as that many undos or redos would, but showing only the board at the end.
+     * Going back is allowed only if each player has an undo left for each of their moves on the way. Going
+     * forward gives each player back one undo for each of their moves on the way, as redo does, up to
+     * MAX_NUM_OF_UNDOS; unlike play, a move gone over doesn't refill the opponent's quota, so the quotas can end
+     * lower than if the moves had been played again.
+     * @param ply the ply, 0 for the start of the game up to getTimeline().getLineLength() - 1
+     * @return the number of undos left of the player to move, or NO_UNDOS_LEFT
+     */
+    public int goToPly(int ply) {
+        int from = timeline.getPly();
+        if (ply < 0 || ply >= timeline.getLineLength()) {
+            throw new IllegalArgumentException("Ply must be 0 - " + (timeline.getLineLength() - 1) + ": " + ply);
+        }
+        //count the moves of each player between the two plies
+        int movesOfA = 0;
+        for (int p = Math.min(ply, from); p < Math.max(ply, from); p++) {
+            movesOfA += timeline.getTurn(p) == A_TURN ? 1 : 0;
+        }
+        int movesOfB = Math.abs(ply - from) - movesOfA;
+        if (ply < from) {
+            if (undoMoveA < movesOfA || undoMoveB < movesOfB) {
+                return NO_UNDOS_LEFT;
+            }
+            addUndos(A_TURN, -movesOfA);
+            addUndos(B_TURN, -movesOfB);
+        } else {
+            addUndos(A_TURN, movesOfA);
+            addUndos(B_TURN, movesOfB);
+        }
+        timeline.goToPly(ply);
+        showTimeline(BoardChangeEvent.JUMP);
+        return getUndosLeft(currentTurn);
+    }
+
+    private void addUndos(int player, int undos) {
+        if (player == A_TURN) {
+            undoMoveA = Math.min(MAX_NUM_OF_UNDOS, undoMoveA + undos);
+        } else {
+            undoMoveB = Math.min(MAX_NUM_OF_UNDOS, undoMoveB + undos);
+        }
+    }
+
+    /**
+     * Puts the board of the current ply of the timeline on the model and takes the turn and the winner from it.
+     */
+    private void showTimeline(int cause) {
+        timeline.getBoard(board);
+        theModel.setBoard(board, cause);
+        currentTurn = timeline.getTurn();
+        //the stones left are already in the Mancalas at the end of a game
+        if (theModel.checkIfGameOver() == 0) {
+            winner = 0;
+        } else {
+            winner = board[6] > board[13] ? 1 : board[6] < board[13] ? 2 : 3;
+        }
+    }
+
+    /**
+     * Gets the winner once the game is over.
+     * @return 0 if the game is not over or
+     *         1 if winner is A or
+     *         2 if the winner is B or
+     *         3 if there is a tie
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isGameOver() {
+        return theModel.checkIfGameOver() != 0 || winner != 0;
+    }
+
+    /**
+     * Ends a game the player to move can't go on with, because their only moves are piles that go around the board
+     * further than MancalaBoardModel.move can sow, which MancalaEngine.legalMoves leaves out. The Mancalas decide,
+     * as in SelfPlay; the stones still in the pits stay there.
+     * @return the winner, as getWinner
+     */
+    public int decideByMancalas() {
+        int mancalaA = theModel.getAmountInPit(6);
+        int mancalaB = theModel.getAmountInPit(13);
+        winner = mancalaA > mancalaB ? 1 : mancalaA < mancalaB ? 2 : 3;
+        return winner;
+    }
+
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    /**
+     * Gets the number of moves a player may still undo before the opponent moves.
+     * @param player A_TURN or B_TURN
+     * @return the number of undos left
+     */
+    public int getUndosLeft(int player) {
+        return player == A_TURN ? undoMoveA : undoMoveB;
+    }
+
+    public MancalaBoardModel getModel() {
+        return theModel;
+    }
+
+    /**
+     * Gets every position of the game and its variations.
+     * @return the timeline, to be changed only through this game
+     */
+    public GameTimeline getTimeline() {
+        return timeline;
+    }
+}
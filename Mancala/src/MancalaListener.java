@@ -0,0 +1,12 @@
+/**
+ * Interface for the objects told about changes of a MancalaBoardModel.
+ * It replaces Swing's ChangeListener so that the model can be used without loading AWT or Swing.
+ * @author Hieu Hoang, Aria, Aryan
+ */
+public interface MancalaListener {
+    /**
+     * Called when the data in the model is changed.
+     * @param event the pits that changed and why, with the model as getModel
+     */
+    void boardChanged(BoardChangeEvent event);
+}
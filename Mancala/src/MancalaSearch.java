@@ -0,0 +1,612 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computer player that picks a move with a negamax alpha-beta search over MancalaEngine positions.
+ * The search deepens one ply at a time until the time budget runs out and plays the best move of the deepest
+ * completed iteration. Scores are counted in stones from the point of view of the player to move; a move that
+ * gives an extra turn is searched with the same player to move, so its score is not negated.
+ * Moves are tried in the order: best move of the previous iteration (at the root), extra turns, captures,
+ * then the rest, pits closest to the Mancala first. Results are kept in a TranspositionTable, whose best move is
+ * tried first below the root and whose scores cut the search short when they are deep enough.
+ * Several searches can share one table and one stop signal to search a position together, see ParallelSearch.
+ * With an EndgameDatabase, positions with few enough stones left are scored exactly instead of searched, and
+ * with an OpeningBook, positions of the book are answered from it without searching.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class MancalaSearch {
+
+    public static final int MAX_DEPTH = 64;
+    public static final int WIN_SCORE = 1000;
+    private static final int INFINITY = 10000;
+    private static final int MAX_PLY = MAX_DEPTH + 1;
+
+    private final TranspositionTable table;
+    private final TranspositionTable.Counters tableCounters = new TranspositionTable.Counters();
+    private final AtomicBoolean stopSignal;     // raised to end the search early, possibly by another thread
+    private EndgameDatabase endgame;
+    private OpeningBook openingBook;
+    private final MancalaEngine[] positions;    // positions[ply] is the position searched at that ply
+    private final int[][] moveLists;            // moves of each ply in the order they are searched
+
+    private long deadline;
+    private boolean stopped;
+    private long nodes;
+    private long cutoffs;           // nodes whose search ended early on a beta cutoff
+    private long firstMoveCutoffs;  // cutoffs made by the first move tried, a measure of the move ordering
+    private int rootBestMove;
+
+    private int bestMove;
+    private int bestScore;
+    private int depthReached;
+    private boolean fromBook;
+    private long elapsedNanos;
+
+    //Progress of the running search, for other threads
+    private volatile long nodesSoFar;       // updated every 1024 nodes
+    private volatile long iterationSoFar;   // depth << 32 | score of the last completed iteration
+
+    /**
+     * Constructs a MancalaSearch with a transposition table of the default size.
+     */
+    public MancalaSearch() {
+        this(new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Constructs a MancalaSearch with its own position stack, reusable for any number of searches.
+     * @param table the transposition table to use, kept from one search to the next
+     */
+    public MancalaSearch(TranspositionTable table) {
+        this(table, new AtomicBoolean());
+    }
+
+    /**
+     * Constructs a MancalaSearch that stops when the stop signal is raised.
+     * @param table the transposition table to use, possibly shared with other threads
+     * @param stopSignal the stop signal, possibly shared with other searches
+     */
+    MancalaSearch(TranspositionTable table, AtomicBoolean stopSignal) {
+        this.table = table;
+        this.stopSignal = stopSignal;
+        positions = new MancalaEngine[MAX_PLY + 1];
+        moveLists = new int[MAX_PLY + 1][MancalaEngine.NUMBER_OF_MOVES];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new MancalaEngine();
+        }
+    }
+
+    /**
+     * Searches the position until the time budget runs out.
+     * @param position the position to search, left unchanged
+     * @param timeBudgetMillis the time allowed for the move
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    public int findBestMove(MancalaEngine position, long timeBudgetMillis) {
+        return findBestMove(position, timeBudgetMillis, MAX_DEPTH);
+    }
+
+    /**
+     * Searches the position until the time budget runs out or the maximum depth is completed.
+     * @param position the position to search, left unchanged
+     * @param timeBudgetMillis the time allowed for the move
+     * @param maxDepth the deepest iteration to search, 1 - MAX_DEPTH
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    public int findBestMove(MancalaEngine position, long timeBudgetMillis, int maxDepth) {
+        SearchEvent event = EngineMetrics.recordsEvents() ? new SearchEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        table.newSearch();
+        stopSignal.set(false);
+        int move = search(position, System.nanoTime() + timeBudgetMillis * 1_000_000L, maxDepth, 1);
+        EngineMetrics.searched(depthReached, nodes, tableCounters, cutoffs, firstMoveCutoffs, elapsedNanos);
+        if (event != null) {
+            event.threads = 1;
+            event.bestMove = move;
+            event.score = bestScore;
+            event.depth = depthReached;
+            event.fromBook = fromBook;
+            event.nodes = nodes;
+            event.tableProbes = tableCounters.getProbes();
+            event.tableHits = tableCounters.getHits();
+            event.cutoffs = cutoffs;
+            event.firstMoveCutoffs = firstMoveCutoffs;
+            event.commit();
+        }
+        return move;
+    }
+
+    /**
+     * Searches a single move to a fixed depth, the way findBestMove searches each move at the root, so that its
+     * score can be set against the best one. There is no time limit, and a single legal move is searched too.
+     * @param position the position, left unchanged
+     * @param pitNumber a legal move of the position
+     * @param depth the depth to search, counting the move, 1 - MAX_DEPTH
+     * @return the score of the move, from the point of view of the player who makes it
+     */
+    public int evaluateMove(MancalaEngine position, int pitNumber, int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be 1 - " + MAX_DEPTH + ": " + depth);
+        }
+        if (pitNumber < 0 || pitNumber >= MancalaEngine.NUMBER_OF_MOVES || !position.isLegalMove(pitNumber)
+                || position.checkIfGameOver() != 0) {
+            throw new IllegalArgumentException("Pit number must be a legal move: " + pitNumber);
+        }
+        long start = System.nanoTime();
+        table.newSearch();
+        stopSignal.set(false);
+        deadline = Long.MAX_VALUE;
+        stopped = false;
+        nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        tableCounters.reset();
+        resetProgress();
+        fromBook = false;
+
+        positions[0].copyFrom(position);
+        MancalaEngine child = positions[1];
+        child.copyFrom(position);
+        child.move(pitNumber);
+        int score = child.getCurrentTurn() == position.getCurrentTurn()
+                ? negamax(1, depth - 1, -INFINITY, INFINITY)
+                : -negamax(1, depth - 1, -INFINITY, INFINITY);
+        bestMove = pitNumber;
+        bestScore = score;
+        depthReached = depth;
+        elapsedNanos = System.nanoTime() - start;
+        nodesSoFar = nodes;
+        return score;
+    }
+
+    /**
+     * Scores every legal move of a position to a fixed depth, each with a full window as evaluateMove does, for an
+     * analysis that shows them all. There is no time limit, and unlike evaluateMove the stop signal is neither
+     * lowered nor the table's search counted anew, so that PositionAnalyser, which owns both, can stop the search
+     * before it even starts and keep the table of the last positions.
+     * @param position the position, left unchanged
+     * @param depth the depth to search each move, counting the move, 1 - MAX_DEPTH
+     * @param scores receives the score of each legal move by pit number, from the point of view of the player
+     *               to move; the other pits are left as they are
+     * @return true if every move was scored, false if the search was stopped
+     */
+    boolean scoreMoves(MancalaEngine position, int depth, int[] scores) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be 1 - " + MAX_DEPTH + ": " + depth);
+        }
+        long start = System.nanoTime();
+        deadline = Long.MAX_VALUE;
+        stopped = stopSignal.get();
+        nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        tableCounters.reset();
+        resetProgress();
+        fromBook = false;
+        bestMove = -1;
+        bestScore = 0;
+        depthReached = 0;
+
+        int moves = position.checkIfGameOver() == 0 ? position.legalMoves() : 0;
+        positions[0].copyFrom(position);
+        MancalaEngine child = positions[1];
+        for (; moves != 0 && !stopped; moves &= moves - 1) {
+            int pit = Integer.numberOfTrailingZeros(moves);
+            child.copyFrom(position);
+            child.move(pit);
+            int score = child.getCurrentTurn() == position.getCurrentTurn()
+                    ? negamax(1, depth - 1, -INFINITY, INFINITY)
+                    : -negamax(1, depth - 1, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            scores[pit] = score;
+            if (bestMove < 0 || score > bestScore) {
+                bestMove = pit;
+                bestScore = score;
+            }
+        }
+        if (!stopped) {
+            depthReached = depth;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        nodesSoFar = nodes;
+        return !stopped;
+    }
+
+    /**
+     * Follows the best moves stored in the table, the line the last search expects to be played. The line ends
+     * where the table has no legal move for the position, or the game is over.
+     * @param position the position, left unchanged
+     * @param firstMove the legal move the line starts with
+     * @param line receives the moves, as many as it holds at most
+     * @return the number of moves of the line
+     */
+    int principalVariation(MancalaEngine position, int firstMove, int[] line) {
+        MancalaEngine walk = positions[0];
+        walk.copyFrom(position);
+        int length = 0;
+        int move = firstMove;
+        while (length < line.length && walk.checkIfGameOver() == 0
+                && move >= 0 && move < MancalaEngine.NUMBER_OF_MOVES && walk.isLegalMove(move)) {
+            line[length++] = move;
+            walk.move(move);
+            long stored = table.probe(walk.getHash(), tableCounters);
+            move = stored == 0 ? -1 : TranspositionTable.move(stored);
+        }
+        return length;
+    }
+
+    /**
+     * Sets the endgame database used to score late positions exactly.
+     * @param endgame the database, or null for none
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        this.endgame = endgame;
+    }
+
+    /**
+     * Sets the opening book whose moves are played without searching.
+     * @param openingBook the book, or null for none
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Asks the search to stop as soon as possible. It still returns the best move of the deepest completed
+     * iteration. May be called from any thread.
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    /**
+     * Runs the iterative deepening loop without starting a new search in the table or lowering the stop
+     * signal, so that ParallelSearch can run several of these at once. Raises the stop signal when done.
+     * @param position the position to search, left unchanged
+     * @param deadline the System.nanoTime at which to stop
+     * @param maxDepth the deepest iteration to search
+     * @param firstDepth the first iteration to search
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    int search(MancalaEngine position, long deadline, int maxDepth, int firstDepth) {
+        long start = System.nanoTime();
+        this.deadline = deadline;
+        stopped = false;
+        nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        tableCounters.reset();
+        bestMove = -1;
+        bestScore = 0;
+        depthReached = 0;
+        rootBestMove = -1;
+        resetProgress();
+
+        fromBook = false;
+
+        int moves = position.legalMoves();
+        int bookMove = openingBook == null ? -1 : openingBook.getMove(position);
+        if (bookMove >= 0) {
+            fromBook = true;
+            bestMove = bookMove;
+            bestScore = openingBook.getScore(position);
+            depthReached = openingBook.getDepth(position);
+            iterationSoFar = (long) depthReached << 32 | (bestScore & 0xFFFFFFFFL);
+        } else if (moves != 0 && position.checkIfGameOver() == 0) {
+            bestMove = Integer.numberOfTrailingZeros(moves);
+            positions[0].copyFrom(position);
+
+            //a single legal move needs no search
+            int lastDepth = Math.min(maxDepth, MAX_DEPTH);
+            for (int depth = Math.min(firstDepth, lastDepth); depth <= lastDepth && Integer.bitCount(moves) > 1;
+                 depth++) {
+                int score = negamax(0, depth, -INFINITY, INFINITY);
+                if (stopped) {
+                    break;
+                }
+                bestMove = rootBestMove;
+                bestScore = score;
+                depthReached = depth;
+                iterationSoFar = (long) depth << 32 | (score & 0xFFFFFFFFL);
+                if (Math.abs(score) >= WIN_SCORE - MAX_PLY) {
+                    break; // the game is decided, deeper iterations can't change the outcome
+                }
+                if (endgame != null && endgame.contains(position)) {
+                    break; // every move leads to a position of the database, so depth 1 is exact
+                }
+            }
+        }
+        if (!stopped) {
+            stopSignal.set(true);
+        }
+        elapsedNanos = System.nanoTime() - start;
+        nodesSoFar = nodes;
+        return bestMove;
+    }
+
+    /**
+     * Clears the progress of the last search, for a ParallelSearch whose helpers don't all search.
+     */
+    void resetProgress() {
+        nodesSoFar = 0;
+        iterationSoFar = 0;
+    }
+
+    /**
+     * Gets the number of nodes the running search has visited so far. May be called from any thread.
+     * @return the number of nodes, counted in steps of 1024
+     */
+    public long getNodesSoFar() {
+        return nodesSoFar;
+    }
+
+    /**
+     * Gets the last iteration the running search completed. May be called from any thread.
+     * @return the depth in the high 32 bits and the score in the low 32 bits, 0 if no iteration is complete
+     */
+    public long getIterationSoFar() {
+        return iterationSoFar;
+    }
+
+    /**
+     * Gets the move found by the last search.
+     * @return the pit number, or -1 if there was no legal move
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Gets the score of the last search, from the point of view of the player who was to move.
+     * Scores beyond WIN_SCORE - MAX_DEPTH mean the game is won (or lost, if negative).
+     * @return the score in stones
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Gets the depth of the deepest iteration completed by the last search.
+     * @return the depth in plies
+     */
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    /**
+     * Tells if the last move was taken from the opening book, in which case the depth and score are those of
+     * the search that made the book.
+     * @return true for a book move
+     */
+    public boolean isFromBook() {
+        return fromBook;
+    }
+
+    /**
+     * Gets the number of positions visited by the last search.
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of positions of the last search whose moves were not all searched, because one of them
+     * scored enough to refute the opponent's move before.
+     * @return the number of beta cutoffs
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Gets the number of cutoffs of the last search made by the first move tried. The closer to getCutoffs, the
+     * better the moves are ordered.
+     * @return the number of beta cutoffs on the first move
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * Gets how long the last search took.
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the transposition table.
+     * @return the table used by this search
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Gets what the last search did with the transposition table.
+     * @return the probes, hits, misses in occupied buckets, stores and overwrites of the last search
+     */
+    public TranspositionTable.Counters getTableCounters() {
+        return tableCounters;
+    }
+
+    /**
+     * Gets the search speed of the last search.
+     * @return the number of nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    private int negamax(int ply, int depth, int alpha, int beta) {
+        MancalaEngine position = positions[ply];
+        if ((++nodes & 1023) == 0) {
+            nodesSoFar = nodes;
+            if (System.nanoTime() > deadline || stopSignal.get()) {
+                stopped = true;
+            }
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        int gameOverFlag = position.checkIfGameOver();
+        if (gameOverFlag != 0) {
+            int turn = position.getCurrentTurn();
+            position.checkWinner(gameOverFlag);
+            return terminalScore(position, turn, ply);
+        }
+        if (endgame != null && ply > 0 && endgame.contains(position)) {
+            return finalScore(evaluate(position) + endgame.getValue(position), ply);
+        }
+        int moves = position.legalMoves();
+        if (depth == 0 || moves == 0 || ply == MAX_PLY) {
+            return evaluate(position);
+        }
+
+        //a result stored for this position may settle it, or at least tell which move to try first
+        long stored = table.probe(position.getHash(), tableCounters);
+        int firstMove = ply == 0 ? rootBestMove : -1;
+        if (stored != 0) {
+            if (ply > 0 && TranspositionTable.depth(stored) >= depth) {
+                int score = fromTable(TranspositionTable.score(stored), ply);
+                int bound = TranspositionTable.bound(stored);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER_BOUND && score >= beta
+                        || bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+                    return score;
+                }
+            }
+            if (firstMove < 0) {
+                firstMove = TranspositionTable.move(stored);
+            }
+        }
+
+        int[] moveList = moveLists[ply];
+        int count = orderMoves(position, moves, firstMove, moveList);
+        MancalaEngine child = positions[ply + 1];
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestPit = -1;
+        for (int i = 0; i < count; i++) {
+            int pit = moveList[i];
+            child.copyFrom(position);
+            child.move(pit);
+
+            int score = child.getCurrentTurn() == position.getCurrentTurn()
+                    ? negamax(ply + 1, depth - 1, alpha, beta)
+                    : -negamax(ply + 1, depth - 1, -beta, -alpha);
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestPit = pit;
+                if (ply == 0) {
+                    rootBestMove = pit;
+                }
+            }
+            if (best > alpha) {
+                alpha = best;
+                if (alpha >= beta) {
+                    cutoffs++;
+                    if (i == 0) {
+                        firstMoveCutoffs++;
+                    }
+                    break;
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : best >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table.store(position.getHash(), depth, bound, toTable(best, ply), bestPit, tableCounters);
+        return best;
+    }
+
+    /**
+     * Converts a score to be stored in the table: won and lost games count their plies from this position
+     * rather than from the root, so the score stays right when the position is reached at another ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) return score + ply;
+        if (score <= -WIN_SCORE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) return score - ply;
+        if (score <= -WIN_SCORE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    /**
+     * Fills the move list in search order.
+     * @return the number of moves
+     */
+    private static int orderMoves(MancalaEngine position, int moves, int firstMove, int[] moveList) {
+        int count = 0;
+        if (firstMove >= 0 && (moves & 1 << firstMove) != 0) {
+            moveList[count++] = firstMove;
+            moves &= ~(1 << firstMove);
+        }
+        int captures = 0, quiet = 0;
+        while (moves != 0) {
+            int pit = 31 - Integer.numberOfLeadingZeros(moves);
+            moves &= ~(1 << pit);
+            if (position.givesExtraTurn(pit)) {
+                moveList[count++] = pit;
+            } else if (position.isCapture(pit)) {
+                captures |= 1 << pit;
+            } else {
+                quiet |= 1 << pit;
+            }
+        }
+        while (captures != 0) {
+            int pit = 31 - Integer.numberOfLeadingZeros(captures);
+            captures &= ~(1 << pit);
+            moveList[count++] = pit;
+        }
+        while (quiet != 0) {
+            int pit = 31 - Integer.numberOfLeadingZeros(quiet);
+            quiet &= ~(1 << pit);
+            moveList[count++] = pit;
+        }
+        return count;
+    }
+
+    /**
+     * Scores a position that is not searched further: the stones in the mover's Mancala minus the opponent's.
+     */
+    private static int evaluate(MancalaEngine position) {
+        int difference = position.getMancalaDifference();
+        return position.getCurrentTurn() == MancalaEngine.A_TURN ? difference : -difference;
+    }
+
+    /**
+     * Scores a finished game for the player to move.
+     */
+    private static int terminalScore(MancalaEngine finished, int turn, int ply) {
+        int difference = finished.getMancalaDifference();
+        return finalScore(turn == MancalaEngine.A_TURN ? difference : -difference, ply);
+    }
+
+    /**
+     * Scores the final Mancala difference of a game, from the point of view of the player to move, preferring
+     * quicker wins and slower losses.
+     */
+    private static int finalScore(int difference, int ply) {
+        if (difference > 0) return WIN_SCORE - ply + difference;
+        if (difference < 0) return -WIN_SCORE + ply + difference;
+        return 0;
+    }
+}
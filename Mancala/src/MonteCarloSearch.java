@@ -0,0 +1,515 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Computer player that picks a move with Monte Carlo Tree Search: each playout walks down the tree choosing
+ * children by UCT, adds the children of the node it stops at, plays random moves from there to the end of the game
+ * and counts the result in every node it went through. The move with the most visits at the root is played.
+ * Playouts use MancalaEngine, so they follow the rules of MancalaBoardModel.move exactly.
+ *
+ * The playouts run on a ForkJoinPool. In tree-parallel mode all threads share one tree; in root-parallel mode each
+ * thread grows a tree of its own and the root visits are summed at the end. Trees are preallocated arrays of
+ * nodes that are reused by every search, so growing the tree allocates nothing. A node's visits and rewards are packed
+ * in one long, updated with a single atomic add without locking, and a thread claims a node to expand with a
+ * compare-and-set. Visits are counted on the way down, so nodes other threads are exploring look less attractive
+ * until their results come in.
+ *
+ * The strength is set by the number of playouts per second of the time budget, which keeps a difficulty level
+ * the same on a fast machine and on a busy one.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class MonteCarloSearch implements ComputerPlayer {
+
+    //Playouts per second of the difficulty levels
+    public static final long EASY = 2_000;
+    public static final long MEDIUM = 20_000;
+    public static final long HARD = 200_000;
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    public static final int DEFAULT_NODES = 1 << 20;   // nodes per tree
+
+    private static final double EXPLORATION = 1.4;
+    private static final int EXPAND_VISITS = 2;         // visits before a leaf gets children
+    private static final int MAX_TREE_DEPTH = 256;
+    private static final int CHECK_INTERVAL = 64;       // playouts between time checks
+
+    private final boolean rootParallel;
+    private final Tree[] trees;
+    private final Worker[] workers;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private volatile long playoutsPerSecond = UNLIMITED;
+
+    private final long[] rootVisits = new long[MancalaEngine.NUMBER_OF_MOVES];
+    private final long[] rootRewards = new long[MancalaEngine.NUMBER_OF_MOVES];
+    private long playouts;
+    private long elapsedNanos;
+    private int bestMove = -1;
+    private double bestWinRate;
+    private volatile boolean searching;     // the trees hold the running search
+    private volatile long searchStart;      // System.nanoTime when the running search began
+
+    /**
+     * Constructs a tree-parallel search with trees of the default size.
+     * @param threads the number of threads running playouts
+     */
+    public MonteCarloSearch(int threads) {
+        this(threads, false, DEFAULT_NODES);
+    }
+
+    /**
+     * Constructs a MonteCarloSearch.
+     * @param threads the number of threads running playouts
+     * @param rootParallel true for one tree per thread, false for one tree shared by all threads
+     * @param nodes the number of nodes of each tree
+     */
+    public MonteCarloSearch(int threads, boolean rootParallel, int nodes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one playout thread is needed: " + threads);
+        }
+        this.rootParallel = rootParallel;
+        trees = new Tree[rootParallel ? threads : 1];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new Tree(nodes);
+        }
+        workers = new Worker[threads];
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(trees[rootParallel ? i : 0], seeds.split());
+        }
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("Mancala playouts " + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Sets the strength of the player.
+     * @param playoutsPerSecond the playouts allowed per second of the time budget, EASY, MEDIUM, HARD or
+     *                          UNLIMITED to run until the time is up
+     */
+    public void setPlayoutsPerSecond(long playoutsPerSecond) {
+        if (playoutsPerSecond < 1) {
+            throw new IllegalArgumentException("At least one playout per second is needed: " + playoutsPerSecond);
+        }
+        this.playoutsPerSecond = playoutsPerSecond;
+    }
+
+    public long getPlayoutsPerSecond() {
+        return playoutsPerSecond;
+    }
+
+    /**
+     * Runs playouts until the time budget or the playout budget runs out.
+     * @param position the position to search, left unchanged
+     * @param timeBudgetMillis the time allowed for the move
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    @Override
+    public int findBestMove(MancalaEngine position, long timeBudgetMillis) {
+        long start = System.nanoTime();
+        searchStart = start;
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+        long budget = playoutsPerSecond == UNLIMITED ? UNLIMITED
+                : Math.max(1, (long) (playoutsPerSecond * (timeBudgetMillis / 1000.0)));
+        stopSignal.set(false);
+        playouts = 0;
+        bestMove = -1;
+        bestWinRate = 0;
+
+        int moves = position.legalMoves();
+        if (moves == 0 || position.checkIfGameOver() != 0) {
+            elapsedNanos = System.nanoTime() - start;
+            return -1;
+        }
+        if (Integer.bitCount(moves) == 1) {
+            //a single legal move needs no search
+            bestMove = Integer.numberOfTrailingZeros(moves);
+            elapsedNanos = System.nanoTime() - start;
+            return bestMove;
+        }
+
+        for (Tree tree : trees) {
+            tree.reset();
+        }
+        searching = true;
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[i];
+            //the first workers take the rest of the division
+            long share = budget == UNLIMITED ? UNLIMITED
+                    : budget / workers.length + (i < budget % workers.length ? 1 : 0);
+            running.add(pool.submit(() -> worker.run(position, deadline, share)));
+        }
+        for (Future<?> worker : running) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                stopSignal.set(true);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Playout thread failed", e.getCause());
+            }
+        }
+        searching = false;
+        elapsedNanos = System.nanoTime() - start;
+        for (Worker worker : workers) {
+            playouts += worker.playouts;
+        }
+        chooseMove();
+        return bestMove;
+    }
+
+    /**
+     * Picks the root child with the most visits, summed over the trees.
+     */
+    private void chooseMove() {
+        long[] visits = rootVisits;
+        long[] rewards = rootRewards;
+        Arrays.fill(visits, 0);
+        Arrays.fill(rewards, 0);
+        for (Tree tree : trees) {
+            int first = tree.firstChild.get(Tree.ROOT);
+            for (int child = first; first >= 0 && child < first + tree.childCount[Tree.ROOT]; child++) {
+                long stats = tree.stats.get(child);
+                visits[tree.move[child]] += Tree.visits(stats);
+                rewards[tree.move[child]] += Tree.rewards(stats);
+            }
+        }
+        for (int move = 0; move < visits.length; move++) {
+            if (visits[move] > 0 && (bestMove < 0 || visits[move] > visits[bestMove])) {
+                bestMove = move;
+            }
+        }
+        if (bestMove >= 0) {
+            bestWinRate = rewards[bestMove] / (2.0 * visits[bestMove]);
+        }
+    }
+
+    /**
+     * Asks all threads to stop as soon as possible. May be called from any thread.
+     */
+    @Override
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    @Override
+    public String describeLastMove() {
+        return playouts / 1000 + "k playouts, " + Math.round(100 * bestWinRate) + "% wins";
+    }
+
+    /**
+     * Describes the running search from the visits of the root children, which are read atomically, so it may
+     * be called from any thread.
+     */
+    @Override
+    public String describeProgress() {
+        if (!searching) {
+            return "0k playouts";
+        }
+        long elapsed = System.nanoTime() - searchStart;
+        long total = 0;
+        long[] visits = new long[MancalaEngine.NUMBER_OF_MOVES];
+        long[] rewards = new long[MancalaEngine.NUMBER_OF_MOVES];
+        for (Tree tree : trees) {
+            total += Tree.visits(tree.stats.get(Tree.ROOT));
+            int first = tree.firstChild.get(Tree.ROOT);
+            for (int child = first; first >= 0 && child < first + tree.childCount[Tree.ROOT]; child++) {
+                long stats = tree.stats.get(child);
+                visits[tree.move[child]] += Tree.visits(stats);
+                rewards[tree.move[child]] += Tree.rewards(stats);
+            }
+        }
+        int best = 0;
+        for (int move = 1; move < visits.length; move++) {
+            if (visits[move] > visits[best]) {
+                best = move;
+            }
+        }
+        double winRate = visits[best] == 0 ? 0 : rewards[best] / (2.0 * visits[best]);
+        return total / 1000 + "k playouts, " + Math.round(100 * winRate) + "% wins, "
+                + (elapsed <= 0 ? 0 : total * 1_000_000 / elapsed) + "k playouts/s";
+    }
+
+    /**
+     * Stops the playout threads. The search can't be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public boolean isRootParallel() {
+        return rootParallel;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Gets the share of the playouts through the chosen move that its player won, counting ties as half.
+     * @return the win rate, 0 - 1
+     */
+    public double getBestWinRate() {
+        return bestWinRate;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getPlayoutsPerSecondReached() {
+        return elapsedNanos == 0 ? 0 : playouts * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Gets the number of nodes used by the last search, over all trees.
+     * @return the number of nodes
+     */
+    public int getNodesUsed() {
+        int used = 0;
+        for (Tree tree : trees) {
+            used += Math.min(tree.size.get(), tree.capacity);
+        }
+        return used;
+    }
+
+    /**
+     * A search tree kept in preallocated arrays, indexed by node. The children of a node are consecutive, from
+     * firstChild for childCount nodes. A node's stats hold its visits in the upper 32 bits and the rewards of
+     * the player who moved into it, in half points (2 for a win, 1 for a tie), in the lower 32 bits.
+     */
+    private static final class Tree {
+
+        static final int ROOT = 0;
+        static final int UNEXPANDED = -1;
+        static final int EXPANDING = -2;   // claimed by a thread that is adding the children
+        static final int LEAF = -3;        // no room left for children
+        static final long VISIT = 1L << 32;
+
+        final int capacity;
+        final AtomicIntegerArray firstChild;
+        final byte[] childCount;
+        final byte[] move;
+        final AtomicLongArray stats;
+        final AtomicInteger size = new AtomicInteger();
+
+        Tree(int capacity) {
+            if (capacity < 1 + MancalaEngine.NUMBER_OF_MOVES) {
+                throw new IllegalArgumentException("A tree needs room for the root and its children: " + capacity);
+            }
+            this.capacity = capacity;
+            firstChild = new AtomicIntegerArray(capacity);
+            childCount = new byte[capacity];
+            move = new byte[capacity];
+            stats = new AtomicLongArray(capacity);
+        }
+
+        /**
+         * Empties the tree down to a root without children. The other nodes are reset when they are reused.
+         */
+        void reset() {
+            size.set(1);
+            stats.set(ROOT, 0);
+            childCount[ROOT] = 0;
+            firstChild.set(ROOT, UNEXPANDED);
+        }
+
+        /**
+         * Adds the children of a node claimed with EXPANDING. The children are written before firstChild, whose
+         * volatile write publishes them to the other threads.
+         */
+        void expand(int node, int moves) {
+            int count = Integer.bitCount(moves);
+            int first = size.getAndAdd(count);
+            if (first + count > capacity) {
+                firstChild.set(node, LEAF);
+                return;
+            }
+            for (int child = first; moves != 0; child++, moves &= moves - 1) {
+                move[child] = (byte) Integer.numberOfTrailingZeros(moves);
+                childCount[child] = 0;
+                stats.set(child, 0);
+                firstChild.set(child, UNEXPANDED);
+            }
+            childCount[node] = (byte) count;
+            firstChild.set(node, first);
+        }
+
+        /**
+         * Picks the child with the highest upper confidence bound; unvisited children come first.
+         */
+        int select(int node, int first) {
+            double logVisits = Math.log(Math.max(1, visits(stats.get(node))));
+            int best = first;
+            double bestBound = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + childCount[node]; child++) {
+                long childStats = stats.get(child);
+                long visits = visits(childStats);
+                if (visits == 0) {
+                    return child;
+                }
+                double bound = rewards(childStats) / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        static long visits(long stats) {
+            return stats >>> 32;
+        }
+
+        static long rewards(long stats) {
+            return stats & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * The state of one playout thread.
+     */
+    private final class Worker {
+
+        private final Tree tree;
+        private final SplittableRandom random;
+        private final MancalaEngine position = new MancalaEngine();
+        private final int[] path = new int[MAX_TREE_DEPTH + 1];
+        private final int[] movers = new int[MAX_TREE_DEPTH + 1];
+        private long playouts;
+
+        Worker(Tree tree, SplittableRandom random) {
+            this.tree = tree;
+            this.random = random;
+        }
+
+        void run(MancalaEngine root, long deadline, long budget) {
+            playouts = 0;
+            while (playouts < budget && !stopSignal.get()
+                    && (playouts % CHECK_INTERVAL != 0 || System.nanoTime() < deadline)) {
+                playout(root);
+                playouts++;
+            }
+        }
+
+        private void playout(MancalaEngine root) {
+            position.copyFrom(root);
+            int node = Tree.ROOT;
+            int depth = 0;
+            tree.stats.getAndAdd(node, Tree.VISIT);
+
+            //select down the tree, expanding the node where the tree ends
+            while (depth < MAX_TREE_DEPTH && position.checkIfGameOver() == 0) {
+                int first = tree.firstChild.get(node);
+                if (first == Tree.UNEXPANDED) {
+                    int moves = position.legalMoves();
+                    if (moves == 0 || Tree.visits(tree.stats.get(node)) < EXPAND_VISITS && node != Tree.ROOT
+                            || !tree.firstChild.compareAndSet(node, Tree.UNEXPANDED, Tree.EXPANDING)) {
+                        break;
+                    }
+                    tree.expand(node, moves);
+                    first = tree.firstChild.get(node);
+                }
+                if (first < 0) {
+                    break;
+                }
+                node = tree.select(node, first);
+                movers[depth] = position.getCurrentTurn();
+                position.move(tree.move[node]);
+                tree.stats.getAndAdd(node, Tree.VISIT);
+                path[depth++] = node;
+            }
+
+            int winner = playRandomly();
+            for (int i = 0; i < depth; i++) {
+                int mover = movers[i] + 1;
+                tree.stats.getAndAdd(path[i], winner == 3 ? 1 : winner == mover ? 2 : 0);
+            }
+        }
+
+        /**
+         * Plays random moves to the end of the game.
+         * @return 1 if winner is A, 2 if the winner is B or 3 if there is a tie
+         */
+        private int playRandomly() {
+            int gameOverFlag;
+            while ((gameOverFlag = position.checkIfGameOver()) == 0) {
+                int moves = position.legalMoves();
+                if (moves == 0) {
+                    //only moves the board can't hold are left, the Mancalas decide
+                    int difference = position.getMancalaDifference();
+                    return difference > 0 ? 1 : difference < 0 ? 2 : 3;
+                }
+                for (int skip = random.nextInt(Integer.bitCount(moves)); skip > 0; skip--) {
+                    moves &= moves - 1;
+                }
+                position.move(Integer.numberOfTrailingZeros(moves));
+            }
+            return position.checkWinner(gameOverFlag);
+        }
+    }
+
+    /**
+     * Plays the tree-parallel and root-parallel searches against the alpha-beta search and prints the results.
+     * @param args the number of games per side (default 20), the playouts per second (default HARD) and the
+     *             time per move in milliseconds (default 100)
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long rate = args.length > 1 ? Long.parseLong(args[1]) : HARD;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        MancalaSearch alphaBeta = new MancalaSearch();
+        for (boolean rootParallel : new boolean[] { false, true }) {
+            MonteCarloSearch monteCarlo = new MonteCarloSearch(threads, rootParallel, DEFAULT_NODES);
+            monteCarlo.setPlayoutsPerSecond(rate);
+            int wins = 0, ties = 0;
+            long playouts = 0, nanos = 0;
+            for (int game = 0; game < 2 * games; game++) {
+                MancalaEngine position = new MancalaEngine(game % 4 < 2 ? 4 : 3);
+                int monteCarloTurn = game % 2;
+                while (position.checkIfGameOver() == 0 && position.legalMoves() != 0) {
+                    int pit;
+                    if (position.getCurrentTurn() == monteCarloTurn) {
+                        pit = monteCarlo.findBestMove(position, millis);
+                        playouts += monteCarlo.getPlayouts();
+                        nanos += monteCarlo.getElapsedNanos();
+                    } else {
+                        pit = alphaBeta.findBestMove(position, millis, 4);
+                    }
+                    position.move(pit);
+                }
+                int gameOverFlag = position.checkIfGameOver();
+                int winner = gameOverFlag == 0 ? 3 : position.checkWinner(gameOverFlag);
+                if (winner == monteCarloTurn + 1) wins++;
+                if (winner == 3) ties++;
+            }
+            System.out.printf("%s, %d threads: %d wins, %d ties in %d games against depth 4 alpha-beta, "
+                            + "%.0f playouts/s%n", rootParallel ? "root-parallel" : "tree-parallel", threads, wins,
+                    ties, 2 * games, playouts * 1e9 / nanos);
+            monteCarlo.shutdown();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a change of a MancalaBoardModel told to its listeners. Its duration is the time the
+ * listeners took, on the thread that changed the board, so a slow listener shows up as a long event. It is made
+ * only if EngineMetrics.recordsEvents.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+@Name("mancala.Notification")
+@Label("Board Notification")
+@Category("Mancala")
+@Description("The listeners of a MancalaBoardModel told of a change")
+class NotificationEvent extends Event {
+
+    @Label("Cause")
+    @Description("BoardChangeEvent.getCause: 0 move, 1 undo, 2 end of game, 3 redo, 4 jump")
+    int cause;
+
+    @Label("Pit Number")
+    int pitNumber;
+
+    @Label("Listeners")
+    int listeners;
+}
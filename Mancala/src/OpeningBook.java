@@ -0,0 +1,230 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Best moves of the first plies of the 3 and 4 stone games, searched deeply ahead of time, so that the computer
+ * player answers them at once instead of spending its time budget. Every game starts from one of these two
+ * positions, so the book covers each position reachable in the first plies when one side plays the book moves
+ * and the other side plays anything.
+ *
+ * The file holds a 16 byte header followed by one entry per position, sorted by Zobrist hash: the hash (8 bytes)
+ * and the move, depth and score (4 bytes). Loading reads it into two arrays that are searched by binary search.
+ *
+ * Generate a file with: java OpeningBook [file] [plies] [depth]
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class OpeningBook {
+
+    public static final String DEFAULT_FILE = "mancala-opening.book";
+    public static final int DEFAULT_PLIES = 12;
+    public static final int DEFAULT_DEPTH = 16;
+
+    private static final long MAGIC = 0x4D4E434C424F4F4BL; // "MNCLBOOK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int[] STARTING_STONES = { 3, 4 };
+    private static final long NO_TIME_LIMIT = 3_600_000; // milliseconds
+
+    private final long[] hashes;    // sorted
+    private final int[] entries;    // move (4 bits), depth (8 bits), score (16 bits) of hashes[i]
+
+    private OpeningBook(long[] hashes, int[] entries) {
+        this.hashes = hashes;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads a book file.
+     * @param file the file written by generate
+     * @return the book
+     * @throws IOException if the file can't be read or is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.limit() < HEADER_SIZE || buffer.getLong() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(file + " is not a Mancala opening book");
+        }
+        int size = buffer.getInt();
+        if (size < 0 || buffer.remaining() != (long) size * ENTRY_SIZE) {
+            throw new IOException(file + " is damaged");
+        }
+        long[] hashes = new long[size];
+        int[] entries = new int[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = buffer.getLong();
+            entries[i] = buffer.getInt();
+            if (i > 0 && hashes[i] <= hashes[i - 1]) {
+                throw new IOException(file + " is not sorted");
+            }
+        }
+        return new OpeningBook(hashes, entries);
+    }
+
+    /**
+     * Gets the number of positions in the book.
+     * @return the number of entries
+     */
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * Gets the book move of a position.
+     * @param position the position
+     * @return the pit number to play, or -1 if the position is not in the book
+     */
+    public int getMove(MancalaEngine position) {
+        int i = find(position);
+        if (i < 0) {
+            return -1;
+        }
+        int move = entries[i] & 0xF;
+        //a hash collision with a position outside the book could name an illegal move
+        return (position.legalMoves() >> move & 1) != 0 ? move : -1;
+    }
+
+    /**
+     * Gets the search score of the book move, from the point of view of the player to move.
+     * @param position a position for which getMove is not -1
+     * @return the score, as MancalaSearch.getBestScore
+     */
+    public int getScore(MancalaEngine position) {
+        return entries[find(position)] >> 16;
+    }
+
+    /**
+     * Gets the depth the book move was searched to.
+     * @param position a position for which getMove is not -1
+     * @return the depth
+     */
+    public int getDepth(MancalaEngine position) {
+        return entries[find(position)] >> 4 & 0xFF;
+    }
+
+    private int find(MancalaEngine position) {
+        return Arrays.binarySearch(hashes, position.getHash());
+    }
+
+    /**
+     * Searches the openings and writes the book file.
+     * @param file the file to write
+     * @param plies the number of plies from the start covered by the book
+     * @param depth the depth each position is searched to
+     * @throws IOException if the file can't be written
+     */
+    public static void generate(Path file, int plies, int depth) throws IOException {
+        if (depth < 1 || depth > MancalaSearch.MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be 1 - " + MancalaSearch.MAX_DEPTH + ": " + depth);
+        }
+        Generator generator = new Generator(plies, depth);
+        for (int stones : STARTING_STONES) {
+            for (int bookSide = MancalaEngine.A_TURN; bookSide <= MancalaEngine.B_TURN; bookSide++) {
+                generator.expand(new MancalaEngine(stones), 0, bookSide);
+            }
+        }
+        generator.search.shutdown();
+
+        long[] hashes = new long[generator.book.size()];
+        int i = 0;
+        for (long hash : generator.book.keySet()) {
+            hashes[i++] = hash;
+        }
+        Arrays.sort(hashes);
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(partial);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hashes.length);
+            for (long hash : hashes) {
+                out.writeLong(hash);
+                out.writeInt(generator.book.get(hash));
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Walks the openings depth first, searching each new position once.
+     */
+    private static class Generator {
+
+        private final int plies;
+        private final int depth;
+        private final ParallelSearch search;
+        private final Map<Long, Integer> book = new HashMap<>();
+        //first ply each position was expanded at, one map for each book side
+        private final List<Map<Long, Integer>> expanded = List.of(new HashMap<>(), new HashMap<>());
+
+        Generator(int plies, int depth) {
+            this.plies = plies;
+            this.depth = depth;
+            search = new ParallelSearch(Runtime.getRuntime().availableProcessors(), new TranspositionTable(256));
+        }
+
+        /**
+         * Adds a position and, unless the last ply is reached, the positions after the book move if bookSide
+         * is to move, or after every move if the other side is.
+         */
+        void expand(MancalaEngine position, int ply, int bookSide) {
+            if (position.checkIfGameOver() != 0 || position.legalMoves() == 0) {
+                return;
+            }
+            //the same position may need expanding once for each book side, and again if reached in fewer plies
+            Map<Long, Integer> expandedForSide = expanded.get(bookSide);
+            Integer expandedAt = expandedForSide.get(position.getHash());
+            if (expandedAt != null && expandedAt <= ply) {
+                return;
+            }
+            expandedForSide.put(position.getHash(), ply);
+            Integer entry = book.get(position.getHash());
+            if (entry == null) {
+                int move = search.findBestMove(position, NO_TIME_LIMIT, depth);
+                entry = search.getBestScore() << 16 | search.getDepthReached() << 4 | move;
+                book.put(position.getHash(), entry);
+            }
+            if (ply == plies) {
+                return;
+            }
+            int moves = position.getCurrentTurn() == bookSide ? 1 << (entry & 0xF) : position.legalMoves();
+            for (; moves != 0; moves &= moves - 1) {
+                MancalaEngine next = new MancalaEngine();
+                next.copyFrom(position);
+                next.move(Integer.numberOfTrailingZeros(moves));
+                expand(next, ply + 1, bookSide);
+            }
+        }
+    }
+
+    /**
+     * Generates a book file.
+     * @param args the file (default mancala-opening.book), the plies covered (default DEFAULT_PLIES) and the
+     *             search depth (default DEFAULT_DEPTH)
+     * @throws IOException if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE);
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+        long start = System.nanoTime();
+        generate(file, plies, depth);
+        System.out.printf("%s: %d positions, %d plies searched to depth %d in %.1f s%n", file,
+                open(file).size(), plies, depth, (System.nanoTime() - start) / 1e9);
+    }
+}
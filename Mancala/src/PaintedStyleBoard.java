@@ -0,0 +1,154 @@
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.util.ArrayList;
+import javax.swing.Icon;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+
+/**
+ * Painted Style Board
+ * The board is one BoardComponent, horizontal or vertical, instead of buttons. The pit buttons are still made by
+ * MancalaBoardView but never shown: a click on the board is mapped to the pit under it, and the PitMouseListener
+ * of that pit's button is told, so the view handles it as a click on the button. With setMillisPerStone, the
+ * changes are animated by a SowingAnimator.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class PaintedStyleBoard implements BoardOrientation {
+
+    private final BoardComponent board;
+    private SowingAnimator animator;    // null if the changes are not animated
+
+    /**
+     * Constructs a painted board.
+     * @param vertical true for the layout of VerticalStyleBoard, false for that of HorizontalStyleBoard
+     */
+    public PaintedStyleBoard(boolean vertical) {
+        board = new BoardComponent(vertical);
+    }
+
+    /**
+     * Create the board for the Mancala game
+     * The BoardComponent paints the board, so the icon only gives the label its size.
+     * @return an empty Icon the size of the board
+     */
+    @Override
+    public Icon createBoard() {
+        Dimension size = board.getPreferredSize();
+        return new Icon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+            }
+
+            @Override
+            public int getIconWidth() {
+                return size.width;
+            }
+
+            @Override
+            public int getIconHeight() {
+                return size.height;
+            }
+        };
+    }
+
+    /**
+     * Add stones to the pits
+     * @param pits - all JButtons of pits, not used
+     * @param pitsData - number of stones in each pit
+     */
+    @Override
+    public void addStonesToPits(ArrayList<JButton> pits, int[] pitsData) {
+        if (animator != null) {
+            animator.setBoard(pitsData);
+        } else {
+            board.setBoard(pitsData);
+        }
+    }
+
+    /**
+     * Add stones to one pit, repainting just that pit
+     * @param pits - all JButtons of pits, not used
+     * @param pit - position of the pit in the board array
+     * @param stones - number of stones in the pit
+     */
+    @Override
+    public void addStonesToPit(ArrayList<JButton> pits, int pit, int stones) {
+        board.setStones(pit, stones);
+    }
+
+    /**
+     * Show a change of the board, animated if an animation speed is set
+     * @param pits - all JButtons of pits, not used
+     * @param event - the pits that changed and why
+     */
+    @Override
+    public void showChange(ArrayList<JButton> pits, BoardChangeEvent event) {
+        if (animator != null) {
+            animator.animate(event);
+        } else {
+            BoardOrientation.super.showChange(pits, event);
+        }
+    }
+
+    /**
+     * Sets how fast the stones are sown.
+     * @param millisPerStone the time between two stones leaving a pit, in milliseconds, 0 to show changes at once
+     */
+    public void setMillisPerStone(int millisPerStone) {
+        if (animator == null) {
+            if (millisPerStone == 0) {
+                return;
+            }
+            animator = new SowingAnimator(board, millisPerStone);
+            int[] counts = new int[14];
+            for (int pit = 0; pit < counts.length; pit++) {
+                counts[pit] = board.getStones(pit);
+            }
+            animator.setBoard(counts);
+        } else {
+            animator.setMillisPerStone(millisPerStone);
+        }
+    }
+
+    /**
+     * Add the board component to the label and pass its clicks on to the pits
+     * @param pits - list of all JButtons of pits, whose PitMouseListeners get the clicks
+     * @param label - main Mancala Board
+     */
+    @Override
+    public void addPitsToBoard(ArrayList<JButton> pits, JLabel label) {
+        board.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int pit = board.pitAt(e.getX(), e.getY());
+                if (pit == BoardComponent.NO_PIT) {
+                    return;
+                }
+                for (MouseListener listener : pits.get(pit).getMouseListeners()) {
+                    if (listener instanceof PitMouseListener) {
+                        listener.mousePressed(e);
+                    }
+                }
+            }
+        });
+        label.setLayout(new BorderLayout());
+        label.add(board, BorderLayout.CENTER);
+    }
+
+    /**
+     * Gets the component that paints the board.
+     * @return the board
+     */
+    public BoardComponent getBoardComponent() {
+        return board;
+    }
+}
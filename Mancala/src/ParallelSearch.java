@@ -0,0 +1,319 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lazy SMP search: several MancalaSearch threads search the same position at the same time and share one
+ * TranspositionTable, so each thread finds the results stored by the others. Half of the helper threads start one
+ * iteration deeper than the main thread, which spreads the threads over different parts of the tree.
+ * The search ends as soon as one thread completes the last iteration or the time runs out, and the move of the
+ * deepest completed iteration among all threads is played.
+ *
+ * Running the class prints how the time to reach a fixed depth scales with the number of threads:
+ * java ParallelSearch [depth] [maximum threads]
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class ParallelSearch implements ComputerPlayer {
+
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private final MancalaSearch[] searches;     // searches[0] runs on the calling thread
+    private final ExecutorService helpers;
+    private OpeningBook openingBook;
+
+    private MancalaSearch bestSearch;
+    private long nodes;
+    private long elapsedNanos;
+    private volatile long searchStart;  // System.nanoTime when the running search began
+    private final TranspositionTable.Counters tableCounters = new TranspositionTable.Counters();
+
+    /**
+     * Constructs a ParallelSearch with a transposition table of the default size.
+     * @param threads the number of threads searching, including the calling thread
+     */
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Constructs a ParallelSearch.
+     * @param threads the number of threads searching, including the calling thread
+     * @param table the transposition table shared by the threads
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed: " + threads);
+        }
+        this.table = table;
+        searches = new MancalaSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new MancalaSearch(table, stopSignal);
+        }
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread thread = new Thread(r, "Mancala search helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        bestSearch = searches[0];
+    }
+
+    /**
+     * Searches the position with all threads until the time budget runs out.
+     * @param position the position to search, left unchanged
+     * @param timeBudgetMillis the time allowed for the move
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    @Override
+    public int findBestMove(MancalaEngine position, long timeBudgetMillis) {
+        return findBestMove(position, timeBudgetMillis, MancalaSearch.MAX_DEPTH);
+    }
+
+    /**
+     * Searches the position with all threads until the time budget runs out or one thread completes the
+     * maximum depth.
+     * @param position the position to search, left unchanged while the search runs
+     * @param timeBudgetMillis the time allowed for the move
+     * @param maxDepth the deepest iteration to search, 1 - MAX_DEPTH
+     * @return the pit number to play, or -1 if the player to move has no legal move
+     */
+    public int findBestMove(MancalaEngine position, long timeBudgetMillis, int maxDepth) {
+        SearchEvent event = EngineMetrics.recordsEvents() ? new SearchEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+        table.newSearch();
+        stopSignal.set(false);
+        for (MancalaSearch search : searches) {
+            search.resetProgress();
+        }
+        searchStart = start;
+
+        //book moves need no helpers
+        int used = openingBook != null && openingBook.getMove(position) >= 0 ? 1 : searches.length;
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 1; i < used; i++) {
+            MancalaSearch helper = searches[i];
+            int firstDepth = 1 + i % 2;
+            running.add(helpers.submit(() -> helper.search(position, deadline, maxDepth, firstDepth)));
+        }
+        searches[0].search(position, deadline, maxDepth, 1);
+        stopSignal.set(true);
+        for (Future<?> helper : running) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        //the deepest completed iteration wins, the main thread wins ties
+        bestSearch = searches[0];
+        nodes = 0;
+        tableCounters.reset();
+        long cutoffs = 0;
+        long firstMoveCutoffs = 0;
+        for (int i = 0; i < used; i++) {
+            MancalaSearch search = searches[i];
+            nodes += search.getNodes();
+            tableCounters.add(search.getTableCounters());
+            cutoffs += search.getCutoffs();
+            firstMoveCutoffs += search.getFirstMoveCutoffs();
+            if (search.getDepthReached() > bestSearch.getDepthReached()) {
+                bestSearch = search;
+            }
+        }
+        EngineMetrics.searched(bestSearch.getDepthReached(), nodes, tableCounters, cutoffs, firstMoveCutoffs,
+                elapsedNanos);
+        if (event != null) {
+            event.threads = used;
+            event.bestMove = bestSearch.getBestMove();
+            event.score = bestSearch.getBestScore();
+            event.depth = bestSearch.getDepthReached();
+            event.fromBook = bestSearch.isFromBook();
+            event.nodes = nodes;
+            event.tableProbes = tableCounters.getProbes();
+            event.tableHits = tableCounters.getHits();
+            event.cutoffs = cutoffs;
+            event.firstMoveCutoffs = firstMoveCutoffs;
+            event.commit();
+        }
+        return bestSearch.getBestMove();
+    }
+
+    /**
+     * Sets the endgame database used by all threads to score late positions exactly.
+     * @param endgame the database, or null for none
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        for (MancalaSearch search : searches) {
+            search.setEndgameDatabase(endgame);
+        }
+    }
+
+    /**
+     * Sets the opening book whose moves are played without searching.
+     * @param openingBook the book, or null for none
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+        for (MancalaSearch search : searches) {
+            search.setOpeningBook(openingBook);
+        }
+    }
+
+    /**
+     * Asks all threads to stop as soon as possible. May be called from any thread.
+     */
+    @Override
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    @Override
+    public String describeLastMove() {
+        if (isFromBook()) {
+            return "opening book";
+        }
+        return "depth " + getDepthReached() + ", " + getNodesPerSecond() / 1000 + "k nodes/s";
+    }
+
+    /**
+     * Describes the running search from the last iteration completed by any thread and the nodes of all threads.
+     * May be called from any thread.
+     */
+    @Override
+    public String describeProgress() {
+        long elapsed = System.nanoTime() - searchStart;
+        long nodesSoFar = 0;
+        long deepest = 0;
+        for (MancalaSearch search : searches) {
+            nodesSoFar += search.getNodesSoFar();
+            long iteration = search.getIterationSoFar();
+            if (iteration >>> 32 > deepest >>> 32) {
+                deepest = iteration;
+            }
+        }
+        int score = (int) deepest;
+        int decided = MancalaSearch.WIN_SCORE - MancalaSearch.MAX_DEPTH - 1;   // scores of won or lost games
+        String scoreText = score >= decided ? "win" : score <= -decided ? "loss" : (score > 0 ? "+" : "") + score;
+        return "depth " + (deepest >>> 32) + ", score " + scoreText + ", "
+                + (elapsed <= 0 ? 0 : nodesSoFar * 1_000_000 / elapsed) + "k nodes/s";
+    }
+
+    /**
+     * Stops the helper threads. The search can't be used afterwards.
+     */
+    public void shutdown() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    public int getBestMove() {
+        return bestSearch.getBestMove();
+    }
+
+    public int getBestScore() {
+        return bestSearch.getBestScore();
+    }
+
+    public int getDepthReached() {
+        return bestSearch.getDepthReached();
+    }
+
+    public boolean isFromBook() {
+        return bestSearch.isFromBook();
+    }
+
+    /**
+     * Gets the number of positions visited by all threads in the last search.
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Gets what all threads did with the transposition table in the last search.
+     * @return the summed counters
+     */
+    public TranspositionTable.Counters getTableCounters() {
+        return tableCounters;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Prints the time to reach a fixed depth from a few 4 stone openings for 1, 2, 4, ... threads, with the
+     * speedup over one thread and the search overhead: the extra nodes searched compared with one thread.
+     * @param args the depth (default 16) and the maximum number of threads (default all processors)
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int[][] openings = { {}, { 2 }, { 2, 5, 9, 0, 7 }, { 3, 8 } };
+        MancalaEngine[] positions = new MancalaEngine[openings.length];
+        for (int i = 0; i < openings.length; i++) {
+            positions[i] = new MancalaEngine(4);
+            for (int pit : openings[i]) {
+                positions[i].move(pit);
+            }
+        }
+
+        //warm up the JIT before measuring
+        for (int round = 0; round < 2; round++) {
+            ParallelSearch warmUp = new ParallelSearch(Math.min(2, maxThreads), new TranspositionTable(64));
+            for (MancalaEngine position : positions) {
+                warmUp.findBestMove(position, 600_000, depth);
+            }
+            warmUp.shutdown();
+        }
+
+        System.out.println("depth " + depth + ", " + positions.length + " positions");
+        System.out.println("threads   time ms   speedup        nodes   overhead   Mnodes/s");
+        double baseTime = 0, baseNodes = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long time = 0, totalNodes = 0;
+            for (MancalaEngine position : positions) {
+                ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(64));
+                search.findBestMove(position, 600_000, depth);
+                time += search.getElapsedNanos();
+                totalNodes += search.getNodes();
+                search.shutdown();
+            }
+            if (threads == 1) {
+                baseTime = time;
+                baseNodes = totalNodes;
+            }
+            System.out.printf("%7d %9.1f %9.2f %12d %9.1f%% %10.2f%n", threads, time / 1e6, baseTime / time,
+                    totalNodes, 100 * (totalNodes / baseNodes - 1), totalNodes * 1e3 / time);
+        }
+    }
+}
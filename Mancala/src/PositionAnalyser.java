@@ -0,0 +1,241 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Analyses the position of a game in the background while it is played: every legal move is scored, one depth
+ * after the other, until the game is decided or MancalaSearch.MAX_DEPTH is reached, and the listener is told of
+ * each depth completed. A new position stops the analysis of the last one.
+ *
+ * Restarting is cheap. The transposition table is kept from one position to the next, so the positions searched
+ * before, most of the new position's tree after a move, are scored from the table. Each analysis is also kept in a
+ * cache of the last positions, so a position seen before, as after an undo, is shown at once and deepened from
+ * where it was left.
+ *
+ * The analysis runs on a thread of its own with a MancalaSearch that only it uses; the cache and the position
+ * asked for are guarded by a lock, and the search is stopped through a stop signal raised under that lock.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class PositionAnalyser {
+
+    public static final int DEFAULT_CACHE_SIZE = 4096;  // positions
+    public static final int MAX_LINE = 16;              // moves of a principal variation
+
+    private static final int WON = MancalaSearch.WIN_SCORE - MancalaSearch.MAX_DEPTH; // the lowest won score
+
+    /**
+     * Told of each depth an analysis completes. Called on the analyser's thread.
+     */
+    public interface Listener {
+        void analysed(Analysis analysis);
+    }
+
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private final MancalaSearch search = new MancalaSearch(
+            new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES), stopSignal);
+    private final Listener listener;
+    private final Object lock = new Object();
+    private final Map<Long, Analysis> cache;    // guarded by lock, in order of use
+    private MancalaEngine requested;            // guarded by lock, null when there is nothing to analyse
+    private long requests;                      // guarded by lock, counts the positions asked for
+
+    /**
+     * Constructs a PositionAnalyser and starts its thread, which waits for a position.
+     * @param listener told of each depth completed
+     * @param cacheSize the number of positions whose analysis is kept, 1 or more
+     */
+    public PositionAnalyser(Listener listener, int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be 1 or more: " + cacheSize);
+        }
+        this.listener = listener;
+        cache = new LinkedHashMap<Long, Analysis>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Analysis> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        Thread thread = new Thread(this::run, "Mancala analyser");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sets the endgame database used to score late positions exactly. Must be called before the first position.
+     * @param endgame the database, or null for none
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        search.setEndgameDatabase(endgame);
+    }
+
+    /**
+     * Stops the analysis of the last position and starts analysing another. May be called from any thread.
+     * @param position the position, copied, or null to stop analysing
+     * @return the deepest analysis of the position known so far, or null if it was never analysed
+     */
+    public Analysis analyse(MancalaEngine position) {
+        synchronized (lock) {
+            requests++;
+            stopSignal.set(true);
+            if (position == null) {
+                requested = null;
+                return null;
+            }
+            requested = new MancalaEngine();
+            requested.copyFrom(position);
+            lock.notifyAll();
+            return cached(position);
+        }
+    }
+
+    /**
+     * Gets the analysis of a position from the cache.
+     * @return the analysis, or null if there is none
+     */
+    private Analysis cached(MancalaEngine position) {
+        Analysis analysis = cache.get(position.getHash());
+        return analysis != null && analysis.isOf(position) ? analysis : null;
+    }
+
+    /**
+     * Analyses each position asked for, deeper and deeper, until it is stopped.
+     */
+    private void run() {
+        MancalaEngine position = new MancalaEngine();
+        int[] scores = new int[MancalaEngine.NUMBER_OF_MOVES];
+        int[] line = new int[MAX_LINE];
+        long done = 0;  // the last request analysed as deep as it goes
+        while (true) {
+            long request;
+            Analysis last;
+            synchronized (lock) {
+                while (requested == null || requests == done) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                position.copyFrom(requested);
+                request = requests;
+                last = cached(position);
+                stopSignal.set(false);
+            }
+            search.getTranspositionTable().newSearch();
+            boolean stopped = false;
+            int depth = last == null ? 1 : last.depth + 1;
+            boolean decided = last != null && last.isDecided();
+            for (; depth <= MancalaSearch.MAX_DEPTH && !decided && !stopped; depth++) {
+                Arrays.fill(scores, Analysis.NO_SCORE);
+                if (!search.scoreMoves(position, depth, scores)) {
+                    stopped = true;
+                    break;
+                }
+                int best = search.getBestMove();
+                int length = best < 0 ? 0 : search.principalVariation(position, best, line);
+                Analysis analysis = new Analysis(position, depth, scores, Arrays.copyOf(line, length));
+                decided = analysis.isDecided();
+                synchronized (lock) {
+                    cache.put(position.getHash(), analysis);
+                    stopped = requests != request;
+                }
+                if (!stopped) {
+                    listener.analysed(analysis);
+                }
+            }
+            if (!stopped) {
+                done = request;
+            }
+        }
+    }
+
+    /**
+     * The scores of the legal moves of a position at a depth, and the line the search expects. Immutable, so it
+     * can be handed to any thread.
+     */
+    public static final class Analysis {
+
+        private static final int NO_SCORE = Integer.MIN_VALUE;
+
+        private final long lowPits;
+        private final long highPits;
+        private final int turn;
+        private final int depth;
+        private final int[] scores;
+        private final int[] line;
+
+        private Analysis(MancalaEngine position, int depth, int[] scores, int[] line) {
+            this.lowPits = position.getLowPits();
+            this.highPits = position.getHighPits();
+            this.turn = position.getCurrentTurn();
+            this.depth = depth;
+            this.scores = scores.clone();
+            this.line = line;
+        }
+
+        /**
+         * Tells if this is the analysis of a position.
+         * @param position the position
+         * @return true if the pits and the player to move are those analysed
+         */
+        public boolean isOf(MancalaEngine position) {
+            return position.getLowPits() == lowPits && position.getHighPits() == highPits
+                    && position.getCurrentTurn() == turn;
+        }
+
+        /**
+         * Gets the depth each move was searched to.
+         * @return the depth in plies, counting the move
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Tells if a pit is a legal move of the position, and so has a score.
+         * @param pitNumber the pit number, 0 - 11
+         * @return true if the pit was scored
+         */
+        public boolean hasScore(int pitNumber) {
+            return scores[pitNumber] != NO_SCORE;
+        }
+
+        /**
+         * Gets the score of a move, from the point of view of the player to move. Scores beyond
+         * MancalaSearch.WIN_SCORE - MancalaSearch.MAX_DEPTH mean the game is won (or lost, if negative).
+         * @param pitNumber a pit with a score
+         * @return the score in stones
+         */
+        public int getScore(int pitNumber) {
+            if (!hasScore(pitNumber)) {
+                throw new IllegalArgumentException("Pit number must be a legal move: " + pitNumber);
+            }
+            return scores[pitNumber];
+        }
+
+        /**
+         * Gets the line the search expects to be played, starting with the best move.
+         * @return the pit numbers, none if the position has no legal move
+         */
+        public int[] getPrincipalVariation() {
+            return line.clone();
+        }
+
+        /**
+         * Tells if searching deeper can't change the analysis: every move wins or loses, or there is no move.
+         */
+        private boolean isDecided() {
+            for (int score : scores) {
+                if (score != NO_SCORE && Math.abs(score) < WON) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.MouseEvent;
+import java.io.PrintStream;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures how quickly the Swing client answers a click, from the press of the mouse to the end of the paint that
+ * shows the new board, and reports the event dispatch thread when it stalls. MancalaBoardView installs it when
+ * run with -Dmancala.latency=true; a stall is an event that keeps the thread busy longer than
+ * -Dmancala.stall.millis, 100 by default.
+ *
+ * Each click is timed in stages:
+ * input queue, from the time the system stamped the mouse event to the start of mousePressed, in whole milliseconds;
+ * model update, from the start of mousePressed to the model telling its listeners that the board changed;
+ * view update, the time MancalaBoardView takes to show the change, until boardChanged returns;
+ * paint, from there to the end of the next paint of the window;
+ * and input to paint, the whole of it. A click that doesn't change the board only counts in input queue and input
+ * to paint, and a click that paints nothing ends once the events queued behind it are handled.
+ *
+ * The monitor pushes an EventQueue of its own, which times every event it dispatches, and sets a RepaintManager
+ * whose paints tell when the window was painted. A watchdog thread looks at the event being dispatched every
+ * half a threshold, and prints the stack of the event dispatch thread when the event has run longer than the
+ * threshold. The histograms of the stages and of all the events dispatched are printed when the program exits.
+ *
+ * Everything but the watchdog and the report at exit runs on the event dispatch thread. The histograms are
+ * still recorded under the monitor's lock, which the event dispatch thread alone takes almost every time and so
+ * costs next to nothing, because the report runs on a shutdown hook: it can't wait for the event dispatch
+ * thread, which is blocked in System.exit when the window is closed, so it copies the histograms under the lock
+ * and prints the copies.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class ResponsivenessMonitor {
+
+    public static final long DEFAULT_STALL_MILLIS = 100;
+
+    private static final int STACK_DEPTH = 32;  // frames printed of a stalled thread
+    private static ResponsivenessMonitor installed;
+
+    private final long stallNanos;
+    private final PrintStream out;
+
+    //The stages of a click and the events dispatched, guarded by this
+    private final LatencyHistogram inputQueue = new LatencyHistogram();
+    private final LatencyHistogram modelUpdate = new LatencyHistogram();
+    private final LatencyHistogram viewUpdate = new LatencyHistogram();
+    private final LatencyHistogram paint = new LatencyHistogram();
+    private final LatencyHistogram inputToPaint = new LatencyHistogram();
+    private final LatencyHistogram dispatch = new LatencyHistogram();
+
+    //The click being timed, on the event dispatch thread
+    private long clicks;
+    private long pressed;           // System.nanoTime at the start of mousePressed, 0 if no click is timed
+    private long queued;            // nanoseconds the mouse event waited before it
+    private long modelChanged;      // System.nanoTime when the model first told of a change, 0 if it didn't
+    private long viewChanged;       // System.nanoTime when the view last showed one
+    private boolean handled;        // mousePressed returned
+
+    //The event being dispatched, for the watchdog
+    private volatile Thread dispatchThread;
+    private volatile AWTEvent dispatching;
+    private volatile long dispatchStart;
+    private volatile long reportedStart;    // dispatchStart of the last stall printed
+    private long stalls;                    // guarded by this
+    private long stalledNanos;              // guarded by this
+
+    private ResponsivenessMonitor(long stallMillis, PrintStream out) {
+        this.stallNanos = stallMillis * 1_000_000;
+        this.out = out;
+    }
+
+    /**
+     * Starts monitoring the event dispatch thread, once; the report is printed to System.err at exit.
+     * @param stallMillis the time an event may keep the event dispatch thread busy before it counts as a stall
+     * @return the monitor
+     */
+    public static synchronized ResponsivenessMonitor install(long stallMillis) {
+        if (stallMillis < 1) {
+            throw new IllegalArgumentException("Stall milliseconds must be 1 or more: " + stallMillis);
+        }
+        if (installed == null) {
+            ResponsivenessMonitor monitor = new ResponsivenessMonitor(stallMillis, System.err);
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor.new TimedEventQueue());
+            SwingUtilities.invokeLater(() -> RepaintManager.setCurrentManager(monitor.new TimedRepaintManager()));
+            Thread watchdog = new Thread(monitor::watch, "Mancala EDT watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(monitor::printReport, "Mancala EDT report"));
+            installed = monitor;
+        }
+        return installed;
+    }
+
+    /**
+     * Starts timing a click. Called first thing in mousePressed.
+     * @param event the mouse event
+     */
+    public void inputStarted(MouseEvent event) {
+        if (pressed != 0) {
+            finishClick(System.nanoTime(), false);   // the last click never painted
+        }
+        pressed = System.nanoTime();
+        queued = Math.max(0, System.currentTimeMillis() - event.getWhen()) * 1_000_000;
+        modelChanged = 0;
+        handled = false;
+    }
+
+    /**
+     * Marks the end of mousePressed. The next paint ends the click; if there is none, the click ends once the
+     * events queued behind it are handled.
+     */
+    public void inputHandled() {
+        if (pressed == 0) {
+            return;
+        }
+        handled = true;
+        long click = clicks;
+        SwingUtilities.invokeLater(() -> {
+            if (pressed != 0 && clicks == click) {
+                finishClick(System.nanoTime(), false);
+            }
+        });
+    }
+
+    /**
+     * Marks the model telling the view of a change. Called first thing in boardChanged.
+     */
+    public void modelChanged() {
+        if (pressed != 0 && modelChanged == 0) {
+            modelChanged = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the view done showing a change. Called last thing in boardChanged.
+     */
+    public void viewChanged() {
+        if (pressed != 0 && modelChanged != 0) {
+            viewChanged = System.nanoTime();
+        }
+    }
+
+    private void painted() {
+        if (pressed != 0 && handled) {
+            finishClick(System.nanoTime(), true);
+        }
+    }
+
+    private void finishClick(long now, boolean painted) {
+        synchronized (this) {
+            inputQueue.record(queued);
+            if (modelChanged != 0) {
+                modelUpdate.record(modelChanged - pressed);
+                viewUpdate.record(viewChanged - modelChanged);
+                if (painted) {
+                    paint.record(now - viewChanged);
+                }
+            }
+            inputToPaint.record(queued + now - pressed);
+        }
+        pressed = 0;
+        clicks++;
+    }
+
+    /**
+     * Checks the event being dispatched every half a threshold until the program exits.
+     */
+    private void watch() {
+        long period = Math.max(1, stallNanos / 2_000_000);
+        while (true) {
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = dispatchStart;
+            AWTEvent event = dispatching;
+            Thread thread = dispatchThread;
+            if (start == 0 || start == reportedStart || System.nanoTime() - start < stallNanos || thread == null) {
+                continue;
+            }
+            reportedStart = start;
+            StackTraceElement[] stack = thread.getStackTrace();
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("EDT stalled for %d ms on %s%n", (System.nanoTime() - start) / 1_000_000,
+                    event));
+            for (int i = 0; i < Math.min(stack.length, STACK_DEPTH); i++) {
+                report.append("\tat ").append(stack[i]).append(System.lineSeparator());
+            }
+            if (stack.length > STACK_DEPTH) {
+                report.append("\t... ").append(stack.length - STACK_DEPTH).append(" more")
+                        .append(System.lineSeparator());
+            }
+            out.print(report);
+        }
+    }
+
+    private synchronized void stalled(long nanos) {
+        stalls++;
+        stalledNanos += nanos;
+    }
+
+    /**
+     * Prints the histograms of the stages of a click and of the events dispatched, and the stalls. May be called
+     * from any thread: the histograms are copied under the lock they are recorded under.
+     */
+    public void printReport() {
+        String[] stages = { "input queue", "model update", "view update", "paint", "input to paint",
+                "event dispatch" };
+        LatencyHistogram[] copies = new LatencyHistogram[stages.length];
+        long stallCount;
+        long stallTotal;
+        synchronized (this) {
+            LatencyHistogram[] histograms = { inputQueue, modelUpdate, viewUpdate, paint, inputToPaint, dispatch };
+            for (int i = 0; i < histograms.length; i++) {
+                copies[i] = new LatencyHistogram();
+                copies[i].add(histograms[i]);
+            }
+            stallCount = stalls;
+            stallTotal = stalledNanos;
+        }
+        out.println("EDT latency (ms)   count      mean       p50       p90       p99     p99.9       max");
+        for (int i = 0; i < stages.length; i++) {
+            printHistogram(stages[i], copies[i]);
+        }
+        out.printf("%d stalls over %d ms, %.1f ms in all%n", stallCount, stallNanos / 1_000_000, stallTotal / 1e6);
+    }
+
+    private void printHistogram(String stage, LatencyHistogram histogram) {
+        out.printf("%-15s %8d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", stage, histogram.getCount(),
+                histogram.getMean() / 1e6, histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(90) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    /**
+     * Times every event dispatched, and shows the watchdog the one being dispatched.
+     */
+    private class TimedEventQueue extends EventQueue {
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            AWTEvent outer = dispatching;
+            long outerStart = dispatchStart;
+            long start = System.nanoTime();
+            dispatchThread = Thread.currentThread();
+            dispatching = event;
+            dispatchStart = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                //an event dispatched inside another, as by a modal dialog, goes back to the outer one
+                dispatching = outer;
+                dispatchStart = outerStart;
+                if (outer == null) {
+                    synchronized (ResponsivenessMonitor.this) {
+                        dispatch.record(nanos);
+                    }
+                }
+                if (nanos >= stallNanos) {
+                    stalled(nanos);
+                    if (reportedStart == start) {
+                        out.printf("EDT stall ended after %d ms%n", nanos / 1_000_000);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the monitor when a paint of the dirty regions is over.
+     */
+    private class TimedRepaintManager extends RepaintManager {
+
+        @Override
+        public void paintDirtyRegions() {
+            super.paintDirtyRegions();
+            painted();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a move chosen by MancalaSearch or ParallelSearch. Its duration is the time the move
+ * took. It is made only if EngineMetrics.recordsEvents, and then costs next to nothing unless a recording is
+ * running with it enabled:
+ * java -Dmancala.jfr=true -XX:StartFlightRecording=filename=mancala.jfr ... then
+ * jfr print --events mancala.Search mancala.jfr
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+@Name("mancala.Search")
+@Label("Search")
+@Category("Mancala")
+@Description("A move chosen by the alpha-beta search")
+class SearchEvent extends Event {
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Best Move")
+    int bestMove;
+
+    @Label("Score")
+    @Description("The score of the best move in stones, from the point of view of the player to move")
+    int score;
+
+    @Label("Depth Reached")
+    int depth;
+
+    @Label("From Opening Book")
+    boolean fromBook;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Table Probes")
+    long tableProbes;
+
+    @Label("Table Hits")
+    long tableHits;
+
+    @Label("Cutoffs")
+    long cutoffs;
+
+    @Label("First Move Cutoffs")
+    long firstMoveCutoffs;
+}
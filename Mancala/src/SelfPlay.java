@@ -0,0 +1,412 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays many computer games without a board on screen and collects statistics: who wins, how long games last
+ * and how often moves give an extra turn or capture. Games alternate between 3 and 4 stones.
+ *
+ * The games are split into a fixed number of shards, each with its own SplittableRandom split from the seed and
+ * its own Statistics, and the shards run on a pool with one thread per core. A run therefore gives the same
+ * results for the same seed on any number of cores, and the threads share nothing until the shards' statistics
+ * are added up at the end.
+ *
+ * The games can also be archived. Each shard writes its games to a file of its own, and the shard files are
+ * joined in shard order at the end, so the archive too is the same for the same seed on any number of cores.
+ * Moves of alphabeta players are archived with the score the search gave them. A run that fails or is
+ * interrupted leaves no archive behind, neither the shard files nor the joined one.
+ *
+ * Run with: java SelfPlay [games] [player A] [player B] [seed] [threads] [archive]
+ * where a player is random, greedy or alphabeta:DEPTH.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class SelfPlay {
+
+    private static final int SHARDS = 256;
+    private static final int[] STARTING_STONES = { 3, 4 };
+    private static final long NO_TIME_LIMIT = 3_600_000; // milliseconds
+
+    private final String playerA;
+    private final String playerB;
+
+    /**
+     * Constructs a SelfPlay between two players.
+     * @param playerA the player of A: random, greedy or alphabeta:DEPTH
+     * @param playerB the player of B, in the same form
+     */
+    public SelfPlay(String playerA, String playerB) {
+        createPlayer(playerA);
+        createPlayer(playerB);
+        this.playerA = playerA;
+        this.playerB = playerB;
+    }
+
+    /**
+     * Plays the games.
+     * @param games the number of games
+     * @param seed the seed of the random moves
+     * @param threads the number of threads playing
+     * @param archive the file the games are written to, or null not to keep them
+     * @return the statistics of the games, one for each number of starting stones
+     * @throws InterruptedIOException if the thread is interrupted before all the games are played
+     * @throws IOException if the archive can't be written
+     */
+    public Statistics[] run(long games, long seed, int threads, Path archive) throws IOException {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Statistics[]>> shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            long first = games * shard / SHARDS;
+            long last = games * (shard + 1) / SHARDS;
+            SplittableRandom random = seeds.split();
+            Path shardArchive = archive == null ? null : shardArchive(archive, shard);
+            shards.add(pool.submit(() -> playShard(first, last, random, shardArchive)));
+        }
+
+        Statistics[] total = { new Statistics(STARTING_STONES[0]), new Statistics(STARTING_STONES[1]) };
+        Path partial = archive == null ? null : archive.resolveSibling(archive.getFileName() + ".tmp");
+        boolean complete = false;
+        try (GameRecordWriter writer = archive == null ? null : GameRecordWriter.create(partial)) {
+            for (int shard = 0; shard < SHARDS; shard++) {
+                Statistics[] result = shards.get(shard).get();
+                for (int i = 0; i < total.length; i++) {
+                    total[i].add(result[i]);
+                }
+                if (writer != null) {
+                    writer.copyRecords(shardArchive(archive, shard));
+                    Files.delete(shardArchive(archive, shard));
+                }
+            }
+            complete = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Self-play interrupted");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Self-play shard failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            if (archive != null && !complete) {
+                deletePartialArchive(pool, archive, partial);
+            }
+        }
+        if (archive != null && complete) {
+            Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return total;
+    }
+
+    private static Path shardArchive(Path archive, int shard) {
+        return archive.resolveSibling(archive.getFileName() + "." + shard);
+    }
+
+    /**
+     * Deletes the files of a run that didn't complete, once the shards still running have stopped writing them.
+     */
+    private static void deletePartialArchive(ExecutorService pool, Path archive, Path partial) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        try {
+            Files.deleteIfExists(partial);
+            for (int shard = 0; shard < SHARDS; shard++) {
+                Files.deleteIfExists(shardArchive(archive, shard));
+            }
+        } catch (IOException e) {
+            System.err.println("Partial archive not deleted: " + e.getMessage());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Plays games first - last - 1 on the calling thread, with players of its own, writing them to the shard's
+     * archive if there is one. Stops early if the thread is interrupted, when the run is given up.
+     */
+    private Statistics[] playShard(long first, long last, SplittableRandom random, Path archive)
+            throws IOException {
+        Player[] players = { createPlayer(playerA), createPlayer(playerB) };
+        Statistics[] statistics = { new Statistics(STARTING_STONES[0]), new Statistics(STARTING_STONES[1]) };
+        MancalaEngine position = new MancalaEngine();
+        GameRecord record = archive == null ? null : new GameRecord();
+        try (GameRecordWriter writer = archive == null ? null : GameRecordWriter.create(archive)) {
+            for (long game = first; game < last && !Thread.currentThread().isInterrupted(); game++) {
+                int variant = (int) (game % STARTING_STONES.length);
+                position.initializeTheBoard(STARTING_STONES[variant]);
+                if (record != null) {
+                    record.reset(STARTING_STONES[variant]);
+                }
+                playGame(position, players, random, statistics[variant], record);
+                if (writer != null) {
+                    writer.write(record);
+                }
+            }
+        }
+        return statistics;
+    }
+
+    private static void playGame(MancalaEngine position, Player[] players, SplittableRandom random,
+                                 Statistics statistics, GameRecord record) {
+        int plies = 0;
+        int gameOverFlag;
+        while ((gameOverFlag = position.checkIfGameOver()) == 0 && position.legalMoves() != 0) {
+            Player player = players[position.getCurrentTurn()];
+            int pit = player.choose(position, random);
+            if (position.givesExtraTurn(pit)) statistics.extraTurns++;
+            if (position.isCapture(pit)) statistics.captures++;
+            position.move(pit);
+            plies++;
+            if (record != null) {
+                record.addMove(pit, GameRecord.NO_CLOCK, player.getEvaluation());
+            }
+        }
+        //a game can also end with only moves left that the board can't hold, then the Mancalas decide
+        int winner;
+        if (gameOverFlag != 0) {
+            winner = position.checkWinner(gameOverFlag);
+        } else {
+            int difference = position.getMancalaDifference();
+            winner = difference > 0 ? 1 : difference < 0 ? 2 : 3;
+        }
+        statistics.games++;
+        statistics.plies += plies;
+        if (winner == 1) statistics.winsA++;
+        if (winner == 2) statistics.winsB++;
+        statistics.margin += Math.abs(position.getMancalaDifference());
+        if (record != null) {
+            record.setResult(gameOverFlag != 0 ? winner : 0, position.getAmountInPit(MancalaEngine.MANCALA_A),
+                    position.getAmountInPit(MancalaEngine.MANCALA_B));
+        }
+    }
+
+    /**
+     * Chooses moves for one side.
+     */
+    private interface Player {
+        /**
+         * @param position the position, not to be changed
+         * @param random the random numbers of the shard
+         * @return a legal pit number
+         */
+        int choose(MancalaEngine position, SplittableRandom random);
+
+        /**
+         * @return the score of the last move chosen from the mover's point of view, or GameRecord.NO_EVALUATION
+         */
+        default int getEvaluation() {
+            return GameRecord.NO_EVALUATION;
+        }
+    }
+
+    /**
+     * Creates a player from its name.
+     * @param name random, greedy or alphabeta:DEPTH
+     * @return a new player, for use by one thread
+     */
+    private static Player createPlayer(String name) {
+        if (name.equals("random")) {
+            return SelfPlay::randomMove;
+        }
+        if (name.equals("greedy")) {
+            MancalaEngine next = new MancalaEngine();
+            return (position, random) -> greedyMove(position, next, random);
+        }
+        if (name.startsWith("alphabeta:")) {
+            int depth = Integer.parseInt(name.substring("alphabeta:".length()));
+            if (depth < 1 || depth > MancalaSearch.MAX_DEPTH) {
+                throw new IllegalArgumentException("Depth must be 1 - " + MancalaSearch.MAX_DEPTH + ": " + depth);
+            }
+            MancalaSearch search = new MancalaSearch(new TranspositionTable(1));
+            return new Player() {
+                @Override
+                public int choose(MancalaEngine position, SplittableRandom random) {
+                    return search.findBestMove(position, NO_TIME_LIMIT, depth);
+                }
+
+                @Override
+                public int getEvaluation() {
+                    return search.getBestScore();
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown player, use random, greedy or alphabeta:DEPTH: " + name);
+    }
+
+    private static int randomMove(MancalaEngine position, SplittableRandom random) {
+        int moves = position.legalMoves();
+        for (int skip = random.nextInt(Integer.bitCount(moves)); skip > 0; skip--) {
+            moves &= moves - 1;
+        }
+        return Integer.numberOfTrailingZeros(moves);
+    }
+
+    /**
+     * Plays the move that gains the most stones right away, preferring extra turns and choosing randomly
+     * between equal moves.
+     */
+    private static int greedyMove(MancalaEngine position, MancalaEngine next, SplittableRandom random) {
+        int turn = position.getCurrentTurn();
+        int best = -1;
+        int bestGain = Integer.MIN_VALUE;
+        int equal = 0;
+        for (int moves = position.legalMoves(); moves != 0; moves &= moves - 1) {
+            int pit = Integer.numberOfTrailingZeros(moves);
+            next.copyFrom(position);
+            next.move(pit);
+            int gain = next.getMancalaDifference() - position.getMancalaDifference();
+            gain = 2 * (turn == MancalaEngine.A_TURN ? gain : -gain) + (next.getCurrentTurn() == turn ? 1 : 0);
+            if (gain > bestGain) {
+                best = pit;
+                bestGain = gain;
+                equal = 1;
+            } else if (gain == bestGain && random.nextInt(++equal) == 0) {
+                best = pit;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Totals of the games played from one number of starting stones. Each shard fills its own, so the fields
+     * are plain longs that are added up with add.
+     */
+    public static class Statistics {
+
+        private final int stones;
+        private long games;
+        private long winsA;
+        private long winsB;
+        private long plies;
+        private long extraTurns;
+        private long captures;
+        private long margin;
+
+        public Statistics(int stones) {
+            this.stones = stones;
+        }
+
+        /**
+         * Adds the totals of another Statistics to this one.
+         * @param other the totals to add
+         */
+        public void add(Statistics other) {
+            games += other.games;
+            winsA += other.winsA;
+            winsB += other.winsB;
+            plies += other.plies;
+            extraTurns += other.extraTurns;
+            captures += other.captures;
+            margin += other.margin;
+        }
+
+        public int getStones() {
+            return stones;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWinsA() {
+            return winsA;
+        }
+
+        public long getWinsB() {
+            return winsB;
+        }
+
+        public long getTies() {
+            return games - winsA - winsB;
+        }
+
+        /**
+         * Gets the average number of moves per game.
+         * @return the plies per game
+         */
+        public double getAveragePlies() {
+            return games == 0 ? 0 : (double) plies / games;
+        }
+
+        /**
+         * Gets the share of moves that gave the mover another turn.
+         * @return the extra turns per move, 0 - 1
+         */
+        public double getExtraTurnRate() {
+            return plies == 0 ? 0 : (double) extraTurns / plies;
+        }
+
+        /**
+         * Gets the share of moves that captured.
+         * @return the captures per move, 0 - 1
+         */
+        public double getCaptureRate() {
+            return plies == 0 ? 0 : (double) captures / plies;
+        }
+
+        /**
+         * Gets the average difference between the Mancalas at the end of a game.
+         * @return the average winning margin in stones
+         */
+        public double getAverageMargin() {
+            return games == 0 ? 0 : (double) margin / games;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d stones: %d games, A wins %.1f%%, B wins %.1f%%, ties %.1f%%, %.1f moves, "
+                            + "%.1f%% extra turns, %.1f%% captures, margin %.1f", stones, games,
+                    percent(winsA), percent(winsB), percent(getTies()), getAveragePlies(),
+                    100 * getExtraTurnRate(), 100 * getCaptureRate(), getAverageMargin());
+        }
+
+        private double percent(long count) {
+            return games == 0 ? 0 : 100.0 * count / games;
+        }
+    }
+
+    /**
+     * Plays the games and prints the statistics and the games per second.
+     * @param args the number of games (default 1000000), player A (default random), player B (default random),
+     *             the seed (default 1), the number of threads (default all processors) and the archive file
+     *             (default none)
+     * @throws IOException if the archive can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String playerA = args.length > 1 ? args[1] : "random";
+        String playerB = args.length > 2 ? args[2] : "random";
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        Path archive = args.length > 5 ? Paths.get(args[5]) : null;
+
+        long start = System.nanoTime();
+        Statistics[] statistics = new SelfPlay(playerA, playerB).run(games, seed, threads, archive);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(playerA + " (A) against " + playerB + " (B), seed " + seed + ", " + threads + " threads");
+        for (Statistics variant : statistics) {
+            System.out.println(variant);
+        }
+        System.out.printf("%d games in %.2f s, %.0f games/s%n", games, seconds, games / seconds);
+    }
+}
@@ -0,0 +1,247 @@
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.Point2D;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import javax.swing.Timer;
+
+/**
+ * Animates the changes of a BoardComponent. For a move, the stones leave the chosen pit one at a time and fly to the
+ * pits they are sown in, skipping the opponent's Mancala; then the stones of a capture, of the sweep at the end of
+ * the game or of an undo fly to where the model put them.
+ *
+ * A Swing Timer ticks about 60 times a second on the event dispatch thread. Each tick works out where every stone
+ * is from the time since the change began, so a late tick skips ahead instead of slowing the animation down, and
+ * the tick only sets the counts and the flying stones of the BoardComponent, whose repaints Swing merges into one.
+ * Nothing waits, so clicks are handled while stones fly. Changes arriving during an animation are queued, and the
+ * animation speeds up by one for each change waiting, so the board never falls far behind the game.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class SowingAnimator implements ActionListener {
+
+    public static final int DEFAULT_MILLIS_PER_STONE = 120;
+
+    private static final int FRAME_MILLIS = 16;         // about 60 frames a second
+    private static final double FLIGHT_TIME = 3;        // a stone flies while 3 more leave the pit
+    private static final double TRANSFER_GAP = 0.25;    // captured and swept stones leave 4 times as fast
+    private static final double LIFT = 25;              // height of the arc a stone flies in, board units
+
+    private final BoardComponent board;
+    private final Timer timer;
+    private final ArrayDeque<BoardChangeEvent> pending = new ArrayDeque<>();
+    private int millisPerStone;
+
+    private final int[] base = new int[14];     // the board before the change being animated
+    private final int[] target = new int[14];   // the board after it
+    private final int[] shown = new int[14];    // the counts shown by the last tick
+    private final int[] sim = new int[14];      // counts while the flights are planned
+
+    //Flights of the change being animated, by launch time
+    private int flights;
+    private int[] from = new int[0];
+    private int[] to = new int[0];
+    private double[] launch = new double[0];    // in stones, that is in millisPerStone
+    private double[] path = new double[0];      // start x, start y, end x, end y of each flight
+    private double[] locations = new double[0]; // x, y of the stones in the air
+
+    private double elapsed;     // since the change began, in stones
+    private long lastTick;      // System.nanoTime of the last tick
+
+    /**
+     * Constructs an animator for a board.
+     * @param board the board to animate
+     * @param millisPerStone the time between two stones leaving a pit, in milliseconds, 0 for no animation
+     */
+    public SowingAnimator(BoardComponent board, int millisPerStone) {
+        this.board = board;
+        timer = new Timer(FRAME_MILLIS, this);
+        timer.setCoalesce(true);
+        setMillisPerStone(millisPerStone);
+    }
+
+    /**
+     * Sets the speed of the animation.
+     * @param millisPerStone the time between two stones leaving a pit, in milliseconds, 0 for no animation
+     */
+    public void setMillisPerStone(int millisPerStone) {
+        if (millisPerStone < 0) {
+            throw new IllegalArgumentException("Milliseconds per stone must be 0 or more: " + millisPerStone);
+        }
+        this.millisPerStone = millisPerStone;
+    }
+
+    public int getMillisPerStone() {
+        return millisPerStone;
+    }
+
+    /**
+     * Shows a board at once, dropping any animation.
+     * @param board the number of stones in each pit
+     */
+    public void setBoard(int[] board) {
+        timer.stop();
+        pending.clear();
+        flights = 0;
+        System.arraycopy(board, 0, base, 0, base.length);
+        System.arraycopy(board, 0, target, 0, target.length);
+        this.board.setFlyingStones(locations, 0);
+        this.board.setBoard(board);
+    }
+
+    /**
+     * Animates a change of the board after those already shown or queued.
+     * @param event the change
+     */
+    public void animate(BoardChangeEvent event) {
+        if (millisPerStone == 0) {
+            if (!timer.isRunning()) {
+                event.applyTo(base);
+                event.applyTo(target);
+                board.setBoard(base);
+                return;
+            }
+            //finish what is in the air first, at the next tick
+        }
+        pending.add(event);
+        if (!timer.isRunning() && startNext()) {
+            lastTick = System.nanoTime();
+            timer.start();
+        }
+    }
+
+    public boolean isAnimating() {
+        return timer.isRunning();
+    }
+
+    /**
+     * Moves the stones to where they are at this time.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long now = System.nanoTime();
+        if (millisPerStone == 0) {
+            elapsed = Double.POSITIVE_INFINITY;
+        } else {
+            elapsed += (now - lastTick) / 1e6 * (1 + pending.size()) / millisPerStone;
+        }
+        lastTick = now;
+
+        if (elapsed >= launch[flights - 1] + FLIGHT_TIME) {
+            finishChange();
+            if (!startNext()) {
+                timer.stop();
+            }
+            return;
+        }
+
+        System.arraycopy(base, 0, shown, 0, shown.length);
+        int inAir = 0;
+        for (int k = 0; k < flights && launch[k] <= elapsed; k++) {
+            shown[from[k]]--;
+            double t = (elapsed - launch[k]) / FLIGHT_TIME;
+            if (t >= 1) {
+                shown[to[k]]++;
+                continue;
+            }
+            double s = t * t * (3 - 2 * t);
+            locations[2 * inAir] = path[4 * k] + (path[4 * k + 2] - path[4 * k]) * s;
+            locations[2 * inAir + 1] = path[4 * k + 1] + (path[4 * k + 3] - path[4 * k + 1]) * s
+                    - LIFT * Math.sin(Math.PI * t);
+            inAir++;
+        }
+        board.setBoard(shown);
+        board.setFlyingStones(locations, inAir);
+    }
+
+    private void finishChange() {
+        System.arraycopy(target, 0, base, 0, base.length);
+        board.setFlyingStones(locations, 0);
+        board.setBoard(base);
+        flights = 0;
+    }
+
+    /**
+     * Plans the flights of the next queued change, showing at once the changes that move no stones.
+     * @return true if there is a change to animate
+     */
+    private boolean startNext() {
+        while (!pending.isEmpty()) {
+            planFlights(pending.poll());
+            if (flights > 0 && millisPerStone > 0) {
+                elapsed = 0;
+                return true;
+            }
+            finishChange();
+        }
+        return false;
+    }
+
+    /**
+     * Plans the flights from base to the board after a change: the sowing of a move, then the stones that are
+     * still not where the model put them, from the pits with too many to the pits with too few.
+     */
+    private void planFlights(BoardChangeEvent event) {
+        System.arraycopy(base, 0, target, 0, target.length);
+        event.applyTo(target);
+        System.arraycopy(base, 0, sim, 0, sim.length);
+        flights = 0;
+        double time = 0;
+
+        if (event.getCause() == BoardChangeEvent.MOVE) {
+            int start = event.getPitNumber() < 6 ? event.getPitNumber() : event.getPitNumber() + 1;
+            int skip = start < 6 ? 13 : 6;     // the opponent's Mancala
+            int pit = start;
+            for (int stones = base[start]; stones > 0; stones--) {
+                do {
+                    pit = (pit + 1) % 14;
+                } while (pit == skip || pit == start);
+                addFlight(start, pit, time);
+                time += 1;
+            }
+            if (flights > 0) {
+                time = launch[flights - 1] + FLIGHT_TIME;
+            }
+        }
+
+        int source = 0;
+        for (int sink = 0; sink < sim.length && source < sim.length; sink++) {
+            while (sim[sink] < target[sink]) {
+                while (source < sim.length && sim[source] <= target[source]) {
+                    source++;
+                }
+                if (source == sim.length) {
+                    break;
+                }
+                addFlight(source, sink, time);
+                time += TRANSFER_GAP;
+            }
+        }
+    }
+
+    private void addFlight(int fromPit, int toPit, double time) {
+        if (flights == from.length) {
+            int capacity = Math.max(64, 2 * flights);
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            launch = Arrays.copyOf(launch, capacity);
+            path = Arrays.copyOf(path, 4 * capacity);
+            locations = Arrays.copyOf(locations, 2 * capacity);
+        }
+        sim[fromPit]--;
+        Point2D.Double start = board.getStoneLocation(fromPit, Math.max(0, sim[fromPit]));
+        Point2D.Double end = board.getStoneLocation(toPit, sim[toPit]);
+        sim[toPit]++;
+        from[flights] = fromPit;
+        to[flights] = toPit;
+        launch[flights] = time;
+        path[4 * flights] = start.x;
+        path[4 * flights + 1] = start.y;
+        path[4 * flights + 2] = end.x;
+        path[4 * flights + 3] = end.y;
+        flights++;
+    }
+}
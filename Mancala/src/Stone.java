@@ -2,11 +2,18 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.Icon;
 
 /**
  * A stone icon paints multiple stones in rows.
+ * The stones are drawn once into an antialiased sprite for each number of stones, color and display scale, and
+ * every repaint after that is a single drawImage, however many stones there are. The sprites are shared by all
+ * Stone icons, so the board styles can keep one icon per pit and just change its number of stones.
  *
  * @team Shark
  * @author Aria Rostami, Aryan Vaid, Hieu Hoang
@@ -15,13 +22,16 @@ import javax.swing.Icon;
 
 public class Stone implements Icon {
 
-    private static final int MAX_STONE_PER_ROW = 7;	// number of stones to draw per row
-    private static final int DIAMETER = 10;					// diameter of the stones to draw
+    static final int MAX_STONE_PER_ROW = 7;	// number of stones to draw per row
+    static final int DIAMETER = 10;					// diameter of the stones to draw
     private int numberOfStones; 								// number of the stones to draw
     private Color colorOfStone;								// color of the stones to draw
     private int widthOfStone;										// width of this icon
     private int heightOfStone;										// height of this icon
 
+    //Sprites by key, see spriteKey
+    private static final ConcurrentHashMap<Long, BufferedImage> SPRITES = new ConcurrentHashMap<>();
+
     /**
      * Draws
      * @param count the number of stones this Stone Icon will draw
@@ -35,24 +45,70 @@ public class Stone implements Icon {
 
     /**
      * Draws the stones.
+     * As before the sprites, the rows start DIAMETER from the left of the component and the first row is at y.
      */
     @Override
     public void paintIcon(Component c, Graphics g, int x, int y) {
+        if (numberOfStones <= 0) {
+            return;
+        }
+        AffineTransform transform = ((Graphics2D) g).getTransform();
+        double scale = Math.max(transform.getScaleX(), transform.getScaleY());
+        BufferedImage sprite = getSprite(numberOfStones, colorOfStone, scale);
+        g.drawImage(sprite, DIAMETER, y, spriteWidth(numberOfStones), spriteHeight(numberOfStones), null);
+    }
 
-        Graphics2D g2 = (Graphics2D) g;
+    /**
+     * Gets the sprite of a number of stones, drawing it the first time.
+     * @param count the number of stones
+     * @param color the color of the stones
+     * @param scale the display scale, 1 for one image pixel per user space unit
+     * @return the sprite, to be drawn spriteWidth by spriteHeight
+     */
+    private static BufferedImage getSprite(int count, Color color, double scale) {
+        return SPRITES.computeIfAbsent(spriteKey(count, color, scale), key -> drawSprite(count, color, scale));
+    }
 
-        for(int i = 1; i <= numberOfStones; i++) {
-            if (i == 1) x = DIAMETER;
+    /**
+     * Packs the color (32 bits), the scale in hundredths (16 bits) and the number of stones (16 bits).
+     */
+    private static long spriteKey(int count, Color color, double scale) {
+        long hundredths = Math.min(0xFFFF, Math.round(scale * 100));
+        return (long) color.getRGB() << 32 | hundredths << 16 | Math.min(count, 0xFFFF);
+    }
+
+    private static BufferedImage drawSprite(int count, Color color, double scale) {
+        int width = (int) Math.ceil(spriteWidth(count) * scale);
+        int height = (int) Math.ceil(spriteHeight(count) * scale);
+        BufferedImage sprite = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = sprite.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.scale(scale, scale);
+        g2.setColor(color);
+
+        //the stones in rows, as the icon used to paint them one by one
+        int x = 0, y = 0;
+        for(int i = 1; i <= count; i++) {
+            if (i == 1) x = 0;
             else if ((i-1) % MAX_STONE_PER_ROW == 0 ) {
-                x = DIAMETER;
+                x = 0;
                 y += (DIAMETER + 1);
 
             } else x += (DIAMETER + 1);
 
-            Ellipse2D.Double stone = new Ellipse2D.Double(x, y, DIAMETER, DIAMETER);
-            g2.setColor(colorOfStone);
-            g2.fill(stone);
+            g2.fill(new Ellipse2D.Double(x, y, DIAMETER, DIAMETER));
         }
+        g2.dispose();
+        return sprite;
+    }
+
+    private static int spriteWidth(int count) {
+        return Math.min(count, MAX_STONE_PER_ROW) * (DIAMETER + 1) - 1;
+    }
+
+    private static int spriteHeight(int count) {
+        int rows = (count + MAX_STONE_PER_ROW - 1) / MAX_STONE_PER_ROW;
+        return rows * (DIAMETER + 1) - 1;
     }
 
     /**
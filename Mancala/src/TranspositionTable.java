@@ -0,0 +1,262 @@
+import java.util.Arrays;
+
+/**
+ * Fixed size table of search results keyed by the Zobrist hash of MancalaEngine positions.
+ * The table is one preallocated long array, so probing and storing never allocate and the memory used is
+ * set once by the constructor. Each bucket has two slots: a depth-preferred slot, which keeps the deepest result
+ * of the current search, and an always-replace slot, which takes everything else.
+ * A slot is two longs, the hash XOR the data and the data itself, so that a slot half written by another
+ * thread fails the key check instead of returning another position's result.
+ *
+ * The data long holds, from the lowest bit: the score (16 bits, signed), the depth (8 bits), the bound (2 bits),
+ * the best move plus one (4 bits, 0 for none) and the age of the search that stored it (8 bits).
+ *
+ * Several searches may share one table from different threads without locking. Each search counts its own
+ * probes, hits, misses in occupied buckets and overwrites in a Counters object, so that the threads don't contend
+ * on counters.
+ *
+ * @team Shark
+ * @author Aria Rostami, Aryan Vaid, Hieu Hoang
+ * @version 1.0
+ */
+
+public class TranspositionTable {
+
+    //Bound of a stored score
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int age;
+
+    /**
+     * Constructs a table using at most the given amount of memory, rounded down to a power of two buckets.
+     * @param megabytes the size of the table in megabytes, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 8192) {
+            throw new IllegalArgumentException("Table size must be 1 - 8192 MB: " + megabytes);
+        }
+        long buckets = Long.highestOneBit(megabytes * (1L << 20) / BYTES_PER_BUCKET);
+        buckets = Math.min(buckets, 1 << 29); // keeps the array index within an int
+        table = new long[(int) buckets * LONGS_PER_BUCKET];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * @param hash the Zobrist hash of the position
+     * @param counters the counters of the caller
+     * @return the stored data, to be read with score, depth, bound and move, or 0 if the position is not stored
+     */
+    public long probe(long hash, Counters counters) {
+        counters.probes++;
+        int slot = ((int) hash & bucketMask) * LONGS_PER_BUCKET;
+        for (int i = slot; i < slot + LONGS_PER_BUCKET; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == hash && data != 0) {
+                counters.hits++;
+                return data;
+            }
+        }
+        if (table[slot + 1] != 0 || table[slot + 3] != 0) {
+            counters.occupiedMisses++;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result. It goes to the depth-preferred slot if it is as deep as the result there, or the
+     * result there is from an earlier search; otherwise it goes to the always-replace slot.
+     * @param hash the Zobrist hash of the position
+     * @param depth the depth searched, 0 - 255
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score the score found
+     * @param move the best move found, or -1 for none
+     * @param counters the counters of the caller
+     */
+    public void store(long hash, int depth, int bound, int score, int move, Counters counters) {
+        counters.stores++;
+        long data = (score & 0xFFFFL) | (long) depth << 16 | (long) bound << 24 | (long) (move + 1) << 26
+                | (long) age << 32;
+        int slot = ((int) hash & bucketMask) * LONGS_PER_BUCKET;
+
+        long preferred = table[slot + 1];
+        boolean samePosition = (table[slot] ^ preferred) == hash;
+        if (preferred == 0 || samePosition || depth >= depth(preferred) || age(preferred) != age) {
+            if (preferred != 0 && !samePosition) {
+                counters.overwrites++;
+            }
+            table[slot] = hash ^ data;
+            table[slot + 1] = data;
+        } else {
+            long replaced = table[slot + 3];
+            if (replaced != 0 && (table[slot + 2] ^ replaced) != hash) {
+                counters.overwrites++;
+            }
+            table[slot + 2] = hash ^ data;
+            table[slot + 3] = data;
+        }
+    }
+
+    /**
+     * Starts a new search: results of earlier searches stay usable but give way in the depth-preferred slots.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        age = 0;
+    }
+
+    /**
+     * Gets the memory used by the table.
+     * @return the size in bytes
+     */
+    public long getSizeInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Gets the number of positions the table can hold.
+     * @return two per bucket
+     */
+    public long getCapacity() {
+        return (long) (bucketMask + 1) * 2;
+    }
+
+    /**
+     * Gets the fraction of slots in use, sampled from the first thousand buckets.
+     * @return the fill rate, 0 - 1
+     */
+    public double getFillRate() {
+        int sampled = Math.min(1000, bucketMask + 1);
+        int used = 0;
+        for (int i = 0; i < sampled * LONGS_PER_BUCKET; i += 2) {
+            if (table[i + 1] != 0) used++;
+        }
+        return used / (2.0 * sampled);
+    }
+
+    public static int score(long data) {
+        return (short) data;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 16) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 24) & 0x3;
+    }
+
+    /**
+     * Gets the best move of stored data.
+     * @return the pit number, or -1 for none
+     */
+    public static int move(long data) {
+        return ((int) (data >>> 26) & 0xF) - 1;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable [" + getSizeInBytes() / (1 << 20) + " MB, " + getCapacity() + " entries]";
+    }
+
+    /**
+     * Table activity counted by one search. The fields are plain longs, so each thread keeps its own Counters
+     * and the totals are summed with add.
+     */
+    public static class Counters {
+
+        private long probes;
+        private long hits;
+        private long occupiedMisses;
+        private long stores;
+        private long overwrites;
+
+        /**
+         * Adds the counts of another Counters to this one.
+         * @param other the counts to add
+         */
+        public void add(Counters other) {
+            probes += other.probes;
+            hits += other.hits;
+            occupiedMisses += other.occupiedMisses;
+            stores += other.stores;
+            overwrites += other.overwrites;
+        }
+
+        public void reset() {
+            probes = 0;
+            hits = 0;
+            occupiedMisses = 0;
+            stores = 0;
+            overwrites = 0;
+        }
+
+        /**
+         * Gets the number of lookups.
+         * @return the number of probes
+         */
+        public long getProbes() {
+            return probes;
+        }
+
+        /**
+         * Gets the number of lookups that found their position.
+         * @return the number of hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Gets the number of lookups that missed while their bucket held other positions. Most are positions
+         * that were never stored, or were replaced, rather than hash collisions: the whole 64 bit hash is
+         * checked, so two positions only collide if their hashes are equal, which the table can't tell.
+         * @return the number of misses in occupied buckets
+         */
+        public long getOccupiedMisses() {
+            return occupiedMisses;
+        }
+
+        /**
+         * Gets the number of results stored.
+         * @return the number of stores
+         */
+        public long getStores() {
+            return stores;
+        }
+
+        /**
+         * Gets the number of stores that replaced the result of another position.
+         * @return the number of overwrites
+         */
+        public long getOverwrites() {
+            return overwrites;
+        }
+
+        @Override
+        public String toString() {
+            return "Counters [probes=" + probes + ", hits=" + hits + ", occupiedMisses=" + occupiedMisses
+                    + ", stores=" + stores + ", overwrites=" + overwrites + "]";
+        }
+    }
+}
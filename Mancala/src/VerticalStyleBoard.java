@@ -15,6 +15,9 @@ public class VerticalStyleBoard implements BoardOrientation
     JButton buttonMancalaA = new JButton();
     JButton buttonMancalaB = new JButton();
 
+    // Stone icon of each pit, by position in the board array
+    private final Stone[] stoneIcons = new Stone[14];
+
     /**
      * Create vertical board style
      * Dimension 600x600
@@ -138,22 +141,43 @@ public class VerticalStyleBoard implements BoardOrientation
     @Override
     public void addStonesToPits(ArrayList<JButton> pits, int [] pitsData) {
         for(int i = 0; i < pitsData.length; i++) {
-            Stone stones  = new Stone(pitsData[i]);
-            stones.setIconHeight(50);
-            stones.setIconWidth(90);
-
-            // Mancala A
-            if(i == 6)
-                buttonMancalaA.setIcon(stones);
-                // Mancala B
-            else if(i == 13)
-                buttonMancalaB.setIcon(stones);
-                // other Pits
-            else
-            if(i > 6)
-                pits.get(i - 1).setIcon(stones);
-            else
-                pits.get(i).setIcon(stones);
+            addStonesToPit(pits, i, pitsData[i]);
+        }
+    }
+
+    /**
+     * Add stones to one pit
+     * @param pits - all JButtons of pits
+     * @param pit - position of the pit in the board array
+     * @param stones - number of stones in the pit
+     */
+    @Override
+    public void addStonesToPit(ArrayList<JButton> pits, int pit, int stones) {
+        JButton button;
+        // Mancala A
+        if(pit == 6)
+            button = buttonMancalaA;
+        // Mancala B
+        else if(pit == 13)
+            button = buttonMancalaB;
+        // Other Pits
+        else
+        if(pit > 6)
+            button = pits.get(pit - 1);
+        else
+            button = pits.get(pit);
+
+        // Each pit keeps its Stone icon and only the number of stones changes
+        Stone icon = stoneIcons[pit];
+        if (icon == null || button.getIcon() != icon) {
+            icon = new Stone(stones);
+            icon.setIconHeight(50);
+            icon.setIconWidth(90);
+            stoneIcons[pit] = icon;
+            button.setIcon(icon);
+        } else {
+            icon.setNumberOfStones(stones);
+            button.repaint();
         }
     }
 }
\ No newline at end of file